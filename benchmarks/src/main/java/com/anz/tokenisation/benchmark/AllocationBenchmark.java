@@ -0,0 +1,105 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.controller.BinaryTokenCodec;
+import com.anz.tokenisation.controller.TokenisationController;
+import com.anz.tokenisation.service.TokenisationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap allocated per request on the controller and service path, for existing values with the cache off so
+ * every lookup reaches the store. Bodies are prepared up front and the controller is called directly, so
+ * the score covers parse, lookup and serialise without the servlet container. Run with -prof gc and read
+ * gc.alloc.rate.norm (bytes per operation), or through the allocation gate (see {@link AllocationGate}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AllocationBenchmark {
+
+    private static final int EXISTING = 10_000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"jpa", "off-heap"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private TokenisationController controller;
+    private final List<byte[]> accountsJson = new ArrayList<>();
+    private final List<byte[]> tokensJson = new ArrayList<>();
+    private final List<byte[]> accountsBinary = new ArrayList<>();
+    private final List<byte[]> tokensBinary = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = Fixtures.start(WebApplicationType.NONE, store, false, "--tokenisation.coalesce.enabled=false");
+        controller = context.getBean(TokenisationController.class);
+        TokenisationService service = context.getBean(TokenisationService.class);
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+        List<String> accounts = Fixtures.accounts(1, EXISTING);
+        for (int i = 0; i < EXISTING; i += BATCH_SIZE) {
+            List<String> accountBatch = accounts.subList(i, i + BATCH_SIZE);
+            List<String> tokenBatch = service.tokenise(accountBatch);
+            accountsJson.add(objectMapper.writeValueAsBytes(accountBatch));
+            tokensJson.add(objectMapper.writeValueAsBytes(tokenBatch));
+            accountsBinary.add(BinaryTokenCodec.writeAccountNumbers(accountBatch));
+            tokensBinary.add(BinaryTokenCodec.writeTokens(tokenBatch));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> tokeniseJson() throws IOException {
+        return controller.tokenise(accountsJson.get(nextBatch()));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> detokeniseJson() throws IOException {
+        return controller.detokenise(tokensJson.get(nextBatch()));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> tokeniseBinary() {
+        return controller.tokeniseBinary(accountsBinary.get(nextBatch()));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> detokeniseBinary() {
+        return controller.detokeniseBinary(tokensBinary.get(nextBatch()));
+    }
+
+    private int nextBatch() {
+        int batch = next;
+        next = (next + 1) % accountsJson.size();
+        return batch;
+    }
+}
@@ -0,0 +1,117 @@
+package com.anz.tokenisation.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs {@link AllocationBenchmark} with the GC profiler and checks bytes per operation (gc.alloc.rate.norm)
+ * against a budget file, one line per benchmark and store, e.g. tokeniseJson.jpa=123456.
+ * <pre>
+ * java -jar benchmarks.jar allocation-gate [budget file] [--record]
+ * </pre>
+ * Fails (returns false) when a benchmark allocates more than its budget plus tolerance-percent, or has no budget.
+ * --record writes the measured values as the new budget instead; commit it with the change that earned it.
+ * Bytes per operation hardly depend on the machine, unlike time, so the gate can run on any build agent.
+ */
+final class AllocationGate {
+
+    private static final String DEFAULT_BUDGET = "allocation-budget.properties";
+    private static final String TOLERANCE = "tolerance-percent";
+    private static final double DEFAULT_TOLERANCE = 10;
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private AllocationGate() {
+    }
+
+    static boolean run(List<String> args) throws Exception {
+        boolean record = args.contains("--record");
+        Path budgetFile = Path.of(args.stream().filter(arg -> !arg.startsWith("--")).findFirst().orElse(DEFAULT_BUDGET));
+
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(AllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("allocation-result.json")
+                .build()).run();
+        Map<String, Double> measured = new TreeMap<>();
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String key = benchmark.substring(benchmark.lastIndexOf('.') + 1) + "." + result.getParams().getParam("store");
+            measured.put(key, bytesPerOperation(result));
+        }
+
+        Properties budget = load(budgetFile);
+        double tolerance = Double.parseDouble(budget.getProperty(TOLERANCE, String.valueOf(DEFAULT_TOLERANCE)));
+        if (record) {
+            write(budgetFile, tolerance, measured);
+            System.out.println("Allocation budget written to " + budgetFile);
+            return true;
+        }
+
+        boolean ok = true;
+        System.out.printf("%-28s %14s %14s %9s%n", "benchmark", "budget B/op", "measured B/op", "change");
+        for (Map.Entry<String, Double> entry : measured.entrySet()) {
+            String allowed = budget.getProperty(entry.getKey());
+            if (allowed == null) {
+                System.out.printf("%-28s %14s %14.0f  no budget, run with --record%n", entry.getKey(), "-", entry.getValue());
+                ok = false;
+                continue;
+            }
+            double limit = Double.parseDouble(allowed);
+            double change = (entry.getValue() - limit) / limit * 100;
+            boolean over = change > tolerance;
+            ok &= !over;
+            System.out.printf("%-28s %14.0f %14.0f %+8.1f%%%s%n", entry.getKey(), limit, entry.getValue(), change,
+                    over ? "  <<" : "");
+        }
+        System.out.println(ok ? "OK (tolerance " + tolerance + "%)" : "ALLOCATION REGRESSED (tolerance " + tolerance + "%)");
+        return ok;
+    }
+
+    private static double bytesPerOperation(RunResult result) {
+        for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+            // Older JMH versions prefix profiler results with a dot.
+            if (secondary.getKey().endsWith(ALLOCATION)) {
+                return secondary.getValue().getScore();
+            }
+        }
+        throw new IllegalStateException("No " + ALLOCATION + " result, is the GC profiler supported on this JVM?");
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    private static void write(Path file, double tolerance, Map<String, Double> measured) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("# Bytes allocated per operation (JMH gc.alloc.rate.norm) that AllocationBenchmark may reach,\n");
+            writer.write("# per benchmark and store. Checked by: mvn -B verify -P ci (from the root), or java -jar target/benchmarks.jar allocation-gate\n");
+            writer.write("# Rewritten by the java -jar command with --record.\n");
+            writer.write(TOLERANCE + "=" + (tolerance == Math.rint(tolerance) ? String.valueOf((long) tolerance) : tolerance) + "\n");
+            for (Map.Entry<String, Double> entry : measured.entrySet()) {
+                writer.write(entry.getKey() + "=" + (long) Math.ceil(entry.getValue()) + "\n");
+            }
+        }
+    }
+}
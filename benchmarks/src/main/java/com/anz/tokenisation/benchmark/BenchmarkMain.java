@@ -0,0 +1,30 @@
+package com.anz.tokenisation.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: the JMH command line, writing results as JSON (jmh-result.json) unless
+ * another -rf is given, so runs can be kept and compared before and after an upgrade.
+ * "allocation-gate" as the first argument runs the allocation check instead (see {@link AllocationGate}).
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.isEmpty() && arguments.get(0).equals("allocation-gate")) {
+            System.exit(AllocationGate.run(arguments.subList(1, arguments.size())) ? 0 : 1);
+        }
+        if (!arguments.contains("-rf") && !arguments.contains("-h") && !arguments.contains("-l")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
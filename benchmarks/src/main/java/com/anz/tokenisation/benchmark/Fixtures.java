@@ -0,0 +1,55 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.TokenisationServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared setup: the real application context (one per fork) and deterministic account numbers.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Start the service with the given store type and cache switch, quiet and without the H2 console.
+     * More settings can follow as --name=value arguments.
+     */
+    static ConfigurableApplicationContext start(WebApplicationType type, String store, boolean cache,
+                                                String... settings) {
+        List<String> args = new ArrayList<>(List.of("--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--spring.h2.console.enabled=false",
+                "--server.port=0",
+                "--tokenisation.store.type=" + store,
+                "--tokenisation.cache.enabled=" + cache));
+        args.addAll(List.of(settings));
+        return new SpringApplicationBuilder(TokenisationServiceApplication.class)
+                .web(type)
+                // Arguments, not default properties, so they win over application.properties.
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * count distinct account numbers, the same for the same prefix.
+     */
+    static List<String> accounts(int prefix, int count) {
+        List<String> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            accounts.add(account(prefix, i));
+        }
+        return accounts;
+    }
+
+    /**
+     * The n-th account number of a prefix.
+     */
+    static String account(int prefix, int n) {
+        return String.format("%04d-%04d-%04d-%04d", prefix, n / 100_000_000, (n / 10_000) % 10_000, n % 10_000);
+    }
+}
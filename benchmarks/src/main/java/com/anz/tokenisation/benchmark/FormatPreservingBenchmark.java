@@ -0,0 +1,104 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.service.TokenisationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FF1 format-preserving tokens versus the JPA vault, through TokenisationService. mode=ff1 puts every account
+ * in a format-preserving range (pure CPU, Luhn cycle walking on); vault-hot serves existing mappings from the
+ * cache and vault-cold goes to the database for every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatPreservingBenchmark {
+
+    private static final int EXISTING = 10_000;
+
+    @Param({"ff1", "vault-hot", "vault-cold"})
+    public String mode;
+
+    @Param({"1", "100"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private TokenisationService service;
+    private List<List<String>> accountBatches;
+    private List<List<String>> tokenBatches;
+    private int next;
+    private int newAccounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Fixtures.start(WebApplicationType.NONE, "jpa", !mode.equals("vault-cold"),
+                "--tokenisation.format-preserving.enabled=" + mode.equals("ff1"));
+        service = context.getBean(TokenisationService.class);
+
+        List<String> accounts = Fixtures.accounts(1, EXISTING);
+        List<String> tokens = new ArrayList<>(EXISTING);
+        for (int i = 0; i < EXISTING; i += 1000) {
+            tokens.addAll(service.tokenise(accounts.subList(i, i + 1000)));
+        }
+        accountBatches = split(accounts);
+        tokenBatches = split(tokens);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> tokeniseExisting() {
+        return service.tokenise(accountBatches.get(nextBatch()));
+    }
+
+    @Benchmark
+    public List<String> detokenise() {
+        return service.detokenise(tokenBatches.get(nextBatch()));
+    }
+
+    @Benchmark
+    public List<String> tokeniseNew() {
+        List<String> accounts = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            accounts.add(Fixtures.account(9, newAccounts++));
+        }
+        return service.tokenise(accounts);
+    }
+
+    private int nextBatch() {
+        int batch = next;
+        next = (next + 1) % accountBatches.size();
+        return batch;
+    }
+
+    private List<List<String>> split(List<String> values) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i + batchSize <= values.size(); i += batchSize) {
+            batches.add(values.subList(i, i + batchSize));
+        }
+        return batches;
+    }
+}
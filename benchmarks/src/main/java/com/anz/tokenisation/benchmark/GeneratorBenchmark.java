@@ -0,0 +1,59 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.TokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation on its own: one token per call versus a batch per call, single threaded and contended.
+ * The collision check against the store that makes a candidate unique is part of
+ * {@link TokenisationBenchmark#tokeniseNewBatched}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private TokenGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new TokenGenerator(new TokenisationProperties());
+    }
+
+    @Benchmark
+    public String generateOne() {
+        return generator.generate();
+    }
+
+    @Benchmark
+    public List<String> generateBatch() {
+        return generator.generate(batchSize);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateOneContended() {
+        return generator.generate();
+    }
+}
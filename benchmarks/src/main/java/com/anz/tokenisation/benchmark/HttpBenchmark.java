@@ -0,0 +1,108 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.controller.BinaryTokenCodec;
+import com.anz.tokenisation.service.TokenisationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end throughput of the embedded server: 8 client threads posting batches of already tokenised values
+ * over HTTP/1.1 keep-alive connections, in either wire format. Runs on the default (jpa) store with the cache on,
+ * with and without request coalescing. Every client sends the same values, so coalesced windows dedupe heavily.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class HttpBenchmark {
+
+    @Param({"1", "100"})
+    public int batchSize;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest tokenise;
+    private HttpRequest detokenise;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = Fixtures.start(WebApplicationType.SERVLET, "jpa", true,
+                "--tokenisation.coalesce.enabled=" + coalesce);
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        List<String> accounts = Fixtures.accounts(1, batchSize);
+        List<String> tokens = context.getBean(TokenisationService.class).tokenise(accounts);
+
+        boolean binary = format.equals("binary");
+        ObjectMapper objectMapper = new ObjectMapper();
+        tokenise = post(base + "/tokenise", binary,
+                binary ? BinaryTokenCodec.writeAccountNumbers(accounts) : objectMapper.writeValueAsBytes(accounts));
+        detokenise = post(base + "/detokenise", binary,
+                binary ? BinaryTokenCodec.writeTokens(tokens) : objectMapper.writeValueAsBytes(tokens));
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] tokenise() throws IOException, InterruptedException {
+        return send(tokenise);
+    }
+
+    @Benchmark
+    public byte[] detokenise() throws IOException, InterruptedException {
+        return send(detokenise);
+    }
+
+    private byte[] send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " from " + request.uri());
+        }
+        return response.body();
+    }
+
+    private static HttpRequest post(String uri, boolean binary, byte[] body) {
+        String contentType = binary ? BinaryTokenCodec.MEDIA_TYPE : "application/json";
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", contentType)
+                .header("Accept", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+}
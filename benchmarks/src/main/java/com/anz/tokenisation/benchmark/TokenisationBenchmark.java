@@ -0,0 +1,126 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.service.TokenisationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenisationService inside the real application context, per store type.
+ * Every benchmark handles batchSize values per invocation, either as one batched call or as batchSize
+ * single value calls, so the scores of a pair compare directly. With cache=hot the two way cache holds
+ * every mapping, with cache=cold it is disabled and every lookup goes to the store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenisationBenchmark {
+
+    // Mappings created up front, the existing account benchmarks cycle through them.
+    private static final int EXISTING = 10_000;
+
+    @Param({"jpa", "off-heap", "sharded", "tiered"})
+    public String store;
+
+    @Param({"hot", "cold"})
+    public String cache;
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private TokenisationService service;
+    private List<List<String>> accountBatches;
+    private List<List<String>> tokenBatches;
+    private int next;
+    private int newAccounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Fixtures.start(WebApplicationType.NONE, store, cache.equals("hot"));
+        service = context.getBean(TokenisationService.class);
+
+        List<String> accounts = Fixtures.accounts(1, EXISTING);
+        List<String> tokens = new ArrayList<>(EXISTING);
+        for (int i = 0; i < EXISTING; i += 1000) {
+            tokens.addAll(service.tokenise(accounts.subList(i, i + 1000)));
+        }
+        accountBatches = split(accounts);
+        tokenBatches = split(tokens);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> tokeniseExistingBatched() {
+        return service.tokenise(accountBatches.get(nextBatch()));
+    }
+
+    @Benchmark
+    public void tokeniseExistingSingly(Blackhole blackhole) {
+        for (String accountNumber : accountBatches.get(nextBatch())) {
+            blackhole.consume(service.tokenise(List.of(accountNumber)));
+        }
+    }
+
+    @Benchmark
+    public List<String> detokeniseBatched() {
+        return service.detokenise(tokenBatches.get(nextBatch()));
+    }
+
+    @Benchmark
+    public void detokeniseSingly(Blackhole blackhole) {
+        for (String token : tokenBatches.get(nextBatch())) {
+            blackhole.consume(service.detokenise(List.of(token)));
+        }
+    }
+
+    /**
+     * Accounts never seen before: generation, collision check and insert.
+     */
+    @Benchmark
+    public List<String> tokeniseNewBatched() {
+        List<String> accounts = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            accounts.add(Fixtures.account(9, newAccounts++));
+        }
+        return service.tokenise(accounts);
+    }
+
+    private int nextBatch() {
+        int batch = next;
+        next = (next + 1) % accountBatches.size();
+        return batch;
+    }
+
+    private List<List<String>> split(List<String> values) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i + batchSize <= values.size(); i += batchSize) {
+            batches.add(values.subList(i, i + batchSize));
+        }
+        return batches;
+    }
+}
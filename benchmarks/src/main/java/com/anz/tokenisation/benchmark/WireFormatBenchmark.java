@@ -0,0 +1,96 @@
+package com.anz.tokenisation.benchmark;
+
+import com.anz.tokenisation.controller.BinaryTokenCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON versus the binary wire format for the request and response bodies of /tokenise and /detokenise:
+ * parsing account numbers, writing tokens and parsing tokens.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {
+    };
+
+    @Param({"10", "1000"})
+    public int batchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<String> tokens;
+    private byte[] accountsJson;
+    private byte[] accountsBinary;
+    private byte[] tokensJson;
+    private byte[] tokensBinary;
+
+    @Setup
+    public void setUp() throws IOException {
+        SecureRandom random = new SecureRandom();
+        List<String> accountNumbers = new ArrayList<>(batchSize);
+        tokens = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            accountNumbers.add(String.format("4111-%04d-%04d-%04d", i % 10_000, random.nextInt(10_000), random.nextInt(10_000)));
+            byte[] raw = new byte[BinaryTokenCodec.RAW_TOKEN_BYTES];
+            random.nextBytes(raw);
+            tokens.add(Base64.getUrlEncoder().withoutPadding().encodeToString(raw));
+        }
+        accountsJson = objectMapper.writeValueAsBytes(accountNumbers);
+        tokensJson = objectMapper.writeValueAsBytes(tokens);
+        accountsBinary = BinaryTokenCodec.writeAccountNumbers(accountNumbers);
+        tokensBinary = BinaryTokenCodec.writeTokens(tokens);
+    }
+
+    @Benchmark
+    public List<String> readAccountNumbersJson() throws IOException {
+        return objectMapper.readValue(accountsJson, STRING_LIST);
+    }
+
+    @Benchmark
+    public List<String> readAccountNumbersBinary() {
+        return BinaryTokenCodec.readAccountNumbers(accountsBinary);
+    }
+
+    @Benchmark
+    public byte[] writeTokensJson() throws IOException {
+        return objectMapper.writeValueAsBytes(tokens);
+    }
+
+    @Benchmark
+    public byte[] writeTokensBinary() {
+        return BinaryTokenCodec.writeTokens(tokens);
+    }
+
+    @Benchmark
+    public List<String> readTokensJson() throws IOException {
+        return objectMapper.readValue(tokensJson, STRING_LIST);
+    }
+
+    @Benchmark
+    public List<String> readTokensBinary() {
+        return BinaryTokenCodec.readTokens(tokensBinary);
+    }
+}
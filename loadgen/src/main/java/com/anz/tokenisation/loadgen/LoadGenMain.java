@@ -0,0 +1,84 @@
+package com.anz.tokenisation.loadgen;
+
+import com.anz.tokenisation.TokenisationServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of loadgen.jar.
+ * <pre>
+ * java -jar loadgen.jar [--name=value ...]                   run against an embedded server, or --target=URL
+ * java -jar loadgen.jar compare baseline.json candidate.json [max-regression-percent]
+ * </pre>
+ * A run tokenises the existing accounts, applies open-loop load for warmup plus duration, and writes the report
+ * (JSON) and the interval latencies (HdrHistogram log, .hlog next to it). compare exits with 1 on a regression.
+ */
+public final class LoadGenMain {
+
+    private static final double DEFAULT_MAX_REGRESSION = 10;
+
+    private LoadGenMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("compare")) {
+            System.exit(compare(args, System.out));
+        }
+
+        LoadOptions options = LoadOptions.parse(Arrays.asList(args));
+        ConfigurableApplicationContext context = options.target == null ? startEmbedded(options) : null;
+        try {
+            String base = context == null
+                    ? options.target
+                    : "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            LoadRunner runner = new LoadRunner(options, base, System.out);
+            System.out.printf("Tokenising %d existing accounts%n", options.accounts);
+            Workload workload = new Workload(options, runner.preload());
+            Report report = runner.run(workload);
+            report.print(System.out);
+            report.write(Path.of(options.report));
+            System.out.println("Report written to " + options.report);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Run the compare command and return the exit code: 0 when the candidate is within the limit, 1 on a
+     * regression and 2 on a usage error.
+     */
+    static int compare(String[] args, PrintStream out) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: compare baseline.json candidate.json [max-regression-percent]");
+            return 2;
+        }
+        double maxRegression = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_MAX_REGRESSION;
+        return Report.compare(Path.of(args[1]), Path.of(args[2]), maxRegression, out) ? 0 : 1;
+    }
+
+    /**
+     * The service in this JVM on a free port, with the tokenisation.*, spring.* and server.* arguments given.
+     * Convenient for comparing builds; it shares the machine with the load, so size nodes against a real deployment.
+     */
+    private static ConfigurableApplicationContext startEmbedded(LoadOptions options) {
+        List<String> args = new ArrayList<>(List.of("--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--spring.h2.console.enabled=false",
+                "--server.port=0"));
+        args.addAll(options.serviceArguments);
+        return new SpringApplicationBuilder(TokenisationServiceApplication.class)
+                .web(WebApplicationType.SERVLET)
+                // Arguments, not default properties, so they win over application.properties.
+                .run(args.toArray(String[]::new));
+    }
+}
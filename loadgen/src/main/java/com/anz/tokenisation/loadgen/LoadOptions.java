@@ -0,0 +1,151 @@
+package com.anz.tokenisation.loadgen;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load run, from --name=value arguments. Arguments for the service itself (tokenisation.*,
+ * spring.*, server.*) are kept apart and passed to the embedded server.
+ */
+final class LoadOptions {
+
+    private static final List<String> SERVICE_PREFIXES = List.of("tokenisation.", "spring.", "server.", "logging.");
+
+    /**
+     * Base URL of a running service, null starts an embedded one.
+     */
+    String target;
+    /**
+     * Requests per second, sent on schedule whether or not earlier ones have returned.
+     */
+    double rate = 1_000;
+    Duration duration = Duration.ofSeconds(60);
+    /**
+     * Load before measuring starts, at the same rate.
+     */
+    Duration warmup = Duration.ofSeconds(10);
+    Duration interval = Duration.ofSeconds(1);
+    /**
+     * Share of requests that detokenise, the rest tokenise.
+     */
+    double detokeniseRatio = 0.5;
+    int minBatch = 1;
+    int maxBatch = 20;
+    /**
+     * Existing accounts, tokenised before the run and drawn from for every request.
+     */
+    int accounts = 100_000;
+    /**
+     * Zipf exponent of account reuse, below 1; 0 draws accounts uniformly.
+     */
+    double zipf = 0.99;
+    /**
+     * Share of tokenised values that are accounts never seen before.
+     */
+    double newAccountRatio = 0.01;
+    /**
+     * Requests in flight at most. Requests due while all are busy wait, and the wait counts as latency.
+     */
+    int connections = 64;
+    String format = "json";
+    long seed = 42;
+    String label = "run";
+    String report = "loadgen-report.json";
+
+    final Map<String, String> settings = new LinkedHashMap<>();
+    final List<String> serviceArguments = new ArrayList<>();
+
+    static LoadOptions parse(List<String> arguments) {
+        LoadOptions options = new LoadOptions();
+        for (String argument : arguments) {
+            int equals = argument.indexOf('=');
+            if (!argument.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + argument);
+            }
+            String name = argument.substring(2, equals);
+            String value = argument.substring(equals + 1);
+            if (SERVICE_PREFIXES.stream().anyMatch(name::startsWith)) {
+                options.serviceArguments.add(argument);
+                continue;
+            }
+            options.settings.put(name, value);
+            switch (name) {
+                case "target" -> options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "rate" -> options.rate = positive(name, Double.parseDouble(value));
+                case "duration" -> options.duration = duration(value);
+                case "warmup" -> options.warmup = duration(value);
+                case "interval" -> options.interval = duration(value);
+                case "detokenise-ratio" -> options.detokeniseRatio = ratio(name, Double.parseDouble(value));
+                case "batch-size" -> options.batchSize(value);
+                case "accounts" -> options.accounts = (int) positive(name, Integer.parseInt(value));
+                case "zipf" -> {
+                    options.zipf = Double.parseDouble(value);
+                    if (options.zipf < 0 || options.zipf >= 1) {
+                        throw new IllegalArgumentException("zipf must be at least 0 and below 1");
+                    }
+                }
+                case "new-account-ratio" -> options.newAccountRatio = ratio(name, Double.parseDouble(value));
+                case "connections" -> options.connections = (int) positive(name, Integer.parseInt(value));
+                case "format" -> {
+                    if (!value.equals("json") && !value.equals("binary")) {
+                        throw new IllegalArgumentException("format must be json or binary");
+                    }
+                    options.format = value;
+                }
+                case "seed" -> options.seed = Long.parseLong(value);
+                case "label" -> options.label = value;
+                case "report" -> options.report = value;
+                default -> throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * A fixed size (20) or a uniform range (1-20).
+     */
+    private void batchSize(String value) {
+        int dash = value.indexOf('-');
+        minBatch = (int) positive("batch-size", Integer.parseInt(dash < 0 ? value : value.substring(0, dash)));
+        maxBatch = (int) positive("batch-size", Integer.parseInt(dash < 0 ? value : value.substring(dash + 1)));
+        if (maxBatch < minBatch) {
+            throw new IllegalArgumentException("batch-size range must be low-high");
+        }
+    }
+
+    /**
+     * ISO-8601 (PT30M) or a number with a unit: 500ms, 30s, 10m, 2h.
+     */
+    static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Unknown duration " + value);
+        };
+    }
+
+    private static double positive(String name, double value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    private static double ratio(String name, double value) {
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,223 @@
+package com.anz.tokenisation.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: request i is due at start + i / rate and is sent then, however many earlier requests are still
+ * outstanding (up to the connection limit). Latency is measured from the time a request was due, not from when
+ * it went out, so a stalled server is charged for every request it held up (no coordinated omission).
+ * Latencies go into HdrHistogram recorders, reported per interval on the console and in an HdrHistogram log,
+ * and summed over the measured part of the run for the report.
+ */
+final class LoadRunner {
+
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int PRELOAD_BATCH = 1_000;
+
+    private final LoadOptions options;
+    private final String base;
+    private final HttpClient client;
+    private final PrintStream out;
+    private final Semaphore inFlight;
+    private final Map<Workload.Operation, Stats> stats = new EnumMap<>(Workload.Operation.class);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder lateStarts = new LongAdder();
+    // Reporter only.
+    private long lastReport;
+    private long measureStartMillis;
+
+    LoadRunner(LoadOptions options, String base, PrintStream out) {
+        this.options = options;
+        this.base = base;
+        this.out = out;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.inFlight = new Semaphore(options.connections);
+        for (Workload.Operation operation : Workload.Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * Tokenise every existing account (creating those the service hasn't seen) and return their tokens in order.
+     */
+    List<String> preload() throws IOException, InterruptedException {
+        List<String> tokens = new ArrayList<>(options.accounts);
+        for (int first = 0; first < options.accounts; first += PRELOAD_BATCH) {
+            List<String> accounts = new ArrayList<>(PRELOAD_BATCH);
+            for (int n = first; n < Math.min(first + PRELOAD_BATCH, options.accounts); n++) {
+                accounts.add(Workload.account(n));
+            }
+            HttpRequest request = post(Workload.Operation.TOKENISE, Workload.json(accounts), "application/json");
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Preload failed with HTTP " + response.statusCode());
+            }
+            tokens.addAll(Workload.readJson(response.body()));
+        }
+        return tokens;
+    }
+
+    Report run(Workload workload) throws IOException, InterruptedException {
+        Path logPath = Path.of(options.report.replaceFirst("\\.json$", "") + ".hlog");
+        long start = System.nanoTime();
+        long measureStart = start + options.warmup.toNanos();
+        long end = measureStart + options.duration.toNanos();
+        double periodNanos = 1e9 / options.rate;
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("loadgen-reporter").daemon().factory());
+        try (PrintStream logStream = new PrintStream(logPath.toFile())) {
+            HistogramLogWriter log = new HistogramLogWriter(logStream);
+            log.outputLogFormatVersion();
+            measureStartMillis = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(measureStart - start);
+            log.outputStartTime(measureStartMillis);
+            log.setBaseTime(measureStartMillis);
+            log.outputLegend();
+            long intervalNanos = options.interval.toNanos();
+            lastReport = measureStart;
+            reporter.scheduleAtFixedRate(() -> report(log, measureStart),
+                    measureStart - start + intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+
+            out.printf("%s: %.0f requests/s for %s after %s warmup against %s%n",
+                    options.label, options.rate, options.duration, options.warmup, base);
+            for (long i = 0; ; i++) {
+                long due = start + (long) (i * periodNanos);
+                if (due >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Workload.Request request = workload.next();
+                inFlight.acquireUninterruptibly();
+                boolean measured = due >= measureStart;
+                if (measured && System.nanoTime() - due > LATE_NANOS) {
+                    lateStarts.increment();
+                }
+                send(request, workload.contentType(), due, measured);
+            }
+            if (!inFlight.tryAcquire(options.connections, REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+                out.println("Requests still outstanding at the end of the run are left out");
+            }
+            reporter.shutdown();
+            reporter.awaitTermination(1, TimeUnit.MINUTES);
+            // Whatever completed since the last interval.
+            report(log, measureStart);
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        double seconds = options.duration.toNanos() / 1e9;
+        Report report = new Report(options, base, seconds, lateStarts.sum(), errors);
+        stats.forEach((operation, operationStats) -> report.add(operation.metric(), operationStats.requests.sum(),
+                operationStats.values.sum(), operationStats.errors.sum(), operationStats.total));
+        return report;
+    }
+
+    private void send(Workload.Request request, String contentType, long due, boolean measured) {
+        client.sendAsync(post(request.operation(), request.body(), contentType), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long latencyNanos = System.nanoTime() - due;
+                    if (measured) {
+                        record(request, latencyNanos, response, failure);
+                    }
+                    inFlight.release();
+                });
+    }
+
+    private void record(Workload.Request request, long latencyNanos, HttpResponse<?> response, Throwable failure) {
+        Stats operationStats = stats.get(request.operation());
+        // Failed requests are in the histogram too, a fast error is still an answer the caller waited for.
+        operationStats.recorder.recordValue(Math.min(HIGHEST_MICROS, latencyNanos / 1_000));
+        operationStats.requests.increment();
+        operationStats.values.add(request.values());
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        String error = failure != null
+                ? failure.getClass().getSimpleName()
+                : response.statusCode() != 200 ? "HTTP " + response.statusCode() : null;
+        if (error != null) {
+            operationStats.errors.increment();
+            errors.computeIfAbsent(error, key -> new LongAdder()).increment();
+        }
+    }
+
+    private HttpRequest post(Workload.Operation operation, byte[] body, String contentType) {
+        return HttpRequest.newBuilder(URI.create(base + operation.path()))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", contentType)
+                .header("Accept", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    /**
+     * Move each recorder's interval into the run total, the log and a console line.
+     */
+    private synchronized void report(HistogramLogWriter log, long measureStart) {
+        long now = System.nanoTime();
+        double elapsed = (now - measureStart) / 1e9;
+        double intervalSeconds = (now - lastReport) / 1e9;
+        lastReport = now;
+        for (Map.Entry<Workload.Operation, Stats> entry : stats.entrySet()) {
+            Stats operationStats = entry.getValue();
+            operationStats.interval = operationStats.recorder.getIntervalHistogram(operationStats.interval);
+            Histogram interval = operationStats.interval;
+            interval.setTag(entry.getKey().metric());
+            // Recording starts with the measurement, the first interval does too.
+            interval.setStartTimeStamp(Math.max(interval.getStartTimeStamp(), measureStartMillis));
+            operationStats.total.add(interval);
+            log.outputIntervalHistogram(interval);
+            long errorsSoFar = operationStats.errors.sum();
+            out.printf("%7.1fs %-10s %8.0f req/s  p50 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms  errors %d%n",
+                    elapsed, entry.getKey().metric(), interval.getTotalCount() / intervalSeconds,
+                    millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                    millis(interval.getValueAtPercentile(99.9)), millis(interval.getMaxValue()),
+                    errorsSoFar - operationStats.reportedErrors);
+            operationStats.reportedErrors = errorsSoFar;
+        }
+    }
+
+    static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+
+    private static final class Stats {
+
+        private final Recorder recorder = new Recorder(HIGHEST_MICROS, 3);
+        private final Histogram total = new Histogram(HIGHEST_MICROS, 3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder values = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        // Reporter thread only.
+        private Histogram interval;
+        private long reportedErrors;
+    }
+}
@@ -0,0 +1,145 @@
+package com.anz.tokenisation.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Summary of a measured run as JSON: the settings, and per operation throughput, error count and latency
+ * percentiles in milliseconds. Two reports can be compared, e.g. the last release against a candidate build.
+ */
+final class Report {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final ObjectNode root = OBJECT_MAPPER.createObjectNode();
+    private final ObjectNode operations;
+    private final double seconds;
+
+    Report(LoadOptions options, String target, double seconds, long lateStarts, Map<String, LongAdder> errors) {
+        this.seconds = seconds;
+        root.put("label", options.label);
+        root.put("started", Instant.now().minusNanos((long) (seconds * 1e9)).toString());
+        root.put("target", target);
+        root.put("java", Runtime.version().toString());
+        root.put("processors", Runtime.getRuntime().availableProcessors());
+        ObjectNode settings = root.putObject("settings");
+        options.settings.forEach(settings::put);
+        if (!options.serviceArguments.isEmpty()) {
+            settings.put("service", String.join(" ", options.serviceArguments));
+        }
+        root.put("seconds", seconds);
+        // Requests sent over a millisecond late: the client couldn't keep the rate, raise connections or use a bigger box.
+        root.put("lateStarts", lateStarts);
+        ObjectNode errorCounts = root.putObject("errors");
+        new TreeMap<>(errors).forEach((error, count) -> errorCounts.put(error, count.sum()));
+        this.operations = root.putObject("operations");
+    }
+
+    void add(String operation, long requests, long values, long errors, Histogram latency) {
+        ObjectNode node = operations.putObject(operation);
+        node.put("requests", requests);
+        node.put("values", values);
+        node.put("errors", errors);
+        node.put("requestsPerSecond", round(requests / seconds));
+        node.put("valuesPerSecond", round(values / seconds));
+        ObjectNode latencyMs = node.putObject("latencyMs");
+        latencyMs.put("mean", round(latency.getMean() / 1_000));
+        for (double percentile : PERCENTILES) {
+            latencyMs.put(percentileName(percentile), LoadRunner.millis(latency.getValueAtPercentile(percentile)));
+        }
+        latencyMs.put("max", LoadRunner.millis(latency.getMaxValue()));
+    }
+
+    void write(Path path) throws IOException {
+        OBJECT_MAPPER.writeValue(path.toFile(), root);
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-10s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "req/s", "values/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "p99.99 ms", "max ms");
+        operations.fields().forEachRemaining(entry -> {
+            JsonNode node = entry.getValue();
+            JsonNode latency = node.get("latencyMs");
+            out.printf("%-10s %10.1f %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    node.get("requestsPerSecond").asDouble(), node.get("valuesPerSecond").asDouble(),
+                    node.get("errors").asLong(), latency.get("p50").asDouble(), latency.get("p99").asDouble(),
+                    latency.get("p99.9").asDouble(), latency.get("p99.99").asDouble(), latency.get("max").asDouble());
+        });
+        if (root.get("lateStarts").asLong() > 0) {
+            out.printf("%d requests went out over 1 ms late, the client fell behind the rate%n",
+                    root.get("lateStarts").asLong());
+        }
+    }
+
+    /**
+     * Print every metric of both reports with the change, and whether the candidate regressed by more than
+     * maxRegression percent: throughput down, p99 latency up, or errors where the baseline had none.
+     */
+    static boolean compare(Path baseline, Path candidate, double maxRegression, PrintStream out) throws IOException {
+        JsonNode before = OBJECT_MAPPER.readTree(baseline.toFile());
+        JsonNode after = OBJECT_MAPPER.readTree(candidate.toFile());
+        out.printf("%s (%s) -> %s (%s)%n", before.path("label").asText(), baseline.getFileName(),
+                after.path("label").asText(), candidate.getFileName());
+        boolean regressed = false;
+        Iterator<Map.Entry<String, JsonNode>> operations = before.path("operations").fields();
+        while (operations.hasNext()) {
+            Map.Entry<String, JsonNode> entry = operations.next();
+            JsonNode was = entry.getValue();
+            JsonNode now = after.path("operations").path(entry.getKey());
+            if (now.isMissingNode()) {
+                out.printf("%s: missing from %s%n", entry.getKey(), candidate.getFileName());
+                continue;
+            }
+            out.println(entry.getKey());
+            regressed |= line(out, "requests/s", was.get("requestsPerSecond"), now.get("requestsPerSecond"),
+                    -maxRegression);
+            line(out, "values/s", was.get("valuesPerSecond"), now.get("valuesPerSecond"), Double.NaN);
+            Iterator<Map.Entry<String, JsonNode>> latencies = was.get("latencyMs").fields();
+            while (latencies.hasNext()) {
+                Map.Entry<String, JsonNode> latency = latencies.next();
+                regressed |= line(out, latency.getKey() + " ms", latency.getValue(),
+                        now.get("latencyMs").get(latency.getKey()),
+                        latency.getKey().equals("p99") ? maxRegression : Double.NaN);
+            }
+            long errorsBefore = was.get("errors").asLong();
+            long errorsAfter = now.get("errors").asLong();
+            out.printf("  %-12s %12d %12d%n", "errors", errorsBefore, errorsAfter);
+            regressed |= errorsBefore == 0 && errorsAfter > 0;
+        }
+        out.println(regressed ? "REGRESSED (limit " + maxRegression + "%)" : "OK (limit " + maxRegression + "%)");
+        return !regressed;
+    }
+
+    /**
+     * One metric's line; true when the change passes limit percent (a negative limit flags drops).
+     */
+    private static boolean line(PrintStream out, String metric, JsonNode was, JsonNode now, double limit) {
+        double before = was.asDouble();
+        double after = now.asDouble();
+        double change = before == 0 ? 0 : (after - before) / before * 100;
+        boolean regressed = !Double.isNaN(limit) && (limit < 0 ? change < limit : change > limit);
+        out.printf("  %-12s %12.2f %12.2f %+8.1f%%%s%n", metric, before, after, change, regressed ? "  <<" : "");
+        return regressed;
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.anz.tokenisation.loadgen;
+
+import com.anz.tokenisation.controller.BinaryTokenCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The request mix: tokenise or detokenise by the configured ratio, a batch size from the configured range and
+ * values drawn from the existing accounts (or their tokens) by Zipfian rank. A share of tokenised values are
+ * accounts nobody has sent before. Used from the scheduler thread only.
+ */
+final class Workload {
+
+    enum Operation {
+        TOKENISE, DETOKENISE;
+
+        String path() {
+            return this == TOKENISE ? "/tokenise" : "/detokenise";
+        }
+
+        String metric() {
+            return name().toLowerCase();
+        }
+    }
+
+    record Request(Operation operation, int values, byte[] body) {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final LoadOptions options;
+    private final List<String> tokens;
+    private final ZipfianGenerator ranks;
+    private final SplittableRandom random;
+    private final boolean binary;
+
+    /**
+     * @param tokens the token of each existing account, by account index
+     */
+    Workload(LoadOptions options, List<String> tokens) {
+        this.options = options;
+        this.tokens = tokens;
+        this.ranks = new ZipfianGenerator(options.accounts, options.zipf);
+        this.random = new SplittableRandom(options.seed);
+        this.binary = options.format.equals("binary");
+    }
+
+    Request next() {
+        Operation operation = random.nextDouble() < options.detokeniseRatio ? Operation.DETOKENISE : Operation.TOKENISE;
+        int size = options.minBatch == options.maxBatch
+                ? options.minBatch
+                : random.nextInt(options.minBatch, options.maxBatch + 1);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (operation == Operation.DETOKENISE) {
+                values.add(tokens.get(ranks.next(random)));
+            } else if (options.newAccountRatio > 0 && random.nextDouble() < options.newAccountRatio) {
+                values.add(newAccount());
+            } else {
+                values.add(account(ranks.next(random)));
+            }
+        }
+        return new Request(operation, size, body(operation, values));
+    }
+
+    byte[] body(Operation operation, List<String> values) {
+        if (binary) {
+            return operation == Operation.TOKENISE
+                    ? BinaryTokenCodec.writeAccountNumbers(values)
+                    : BinaryTokenCodec.writeTokens(values);
+        }
+        return json(values);
+    }
+
+    String contentType() {
+        return binary ? BinaryTokenCodec.MEDIA_TYPE : "application/json";
+    }
+
+    /**
+     * The n-th existing account number.
+     */
+    static String account(int n) {
+        return String.format("5000-%04d-%04d-%04d", n / 100_000_000, (n / 10_000) % 10_000, n % 10_000);
+    }
+
+    /**
+     * A random account outside the existing ones, new with overwhelming probability even across runs.
+     */
+    private String newAccount() {
+        long n = random.nextLong(1_000_000_000_000L);
+        return String.format("5999-%04d-%04d-%04d", n / 100_000_000, (n / 10_000) % 10_000, n % 10_000);
+    }
+
+    static byte[] json(List<String> values) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<String> readJson(byte[] body) {
+        try {
+            return Arrays.asList(OBJECT_MAPPER.readValue(body, String[].class));
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed response", e);
+        }
+    }
+}
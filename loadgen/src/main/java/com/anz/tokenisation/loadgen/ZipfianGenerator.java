@@ -0,0 +1,62 @@
+package com.anz.tokenisation.loadgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distributed ranks 0..n-1, rank 0 the most frequent (Gray et al., "Quickly Generating Billion-Record
+ * Synthetic Databases", as in YCSB). Ranks are scrambled over the key space by a multiplicative bijection, so
+ * the hot accounts aren't neighbours. An exponent of 0 gives uniform ranks.
+ */
+final class ZipfianGenerator {
+
+    // Prime, so multiplying by it permutes 0..n-1 for any n it doesn't divide.
+    private static final long SCRAMBLE = 2_147_483_647L;
+
+    private final int n;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double halfPowTheta;
+
+    ZipfianGenerator(int n, double theta) {
+        this.n = n;
+        this.theta = theta;
+        this.zetaN = zeta(n, theta);
+        this.alpha = 1 / (1 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(Math.min(2, n), theta) / zetaN);
+        this.halfPowTheta = Math.pow(0.5, theta);
+    }
+
+    int next(SplittableRandom random) {
+        if (theta == 0 || n == 1) {
+            return random.nextInt(n);
+        }
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        long rank;
+        if (uz < 1) {
+            rank = 0;
+        } else if (uz < 1 + halfPowTheta) {
+            rank = 1;
+        } else {
+            rank = Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+        }
+        return scramble(rank, n);
+    }
+
+    /**
+     * Where rank lands in 0..n-1, a bijection for every n.
+     */
+    static int scramble(long rank, int n) {
+        return n % SCRAMBLE == 0 ? (int) rank : (int) (rank * SCRAMBLE % n);
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
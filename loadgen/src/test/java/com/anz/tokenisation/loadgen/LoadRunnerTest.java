@@ -0,0 +1,89 @@
+package com.anz.tokenisation.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Open-Loop Latency Is Measured From the Time a Request Was Due.
+class LoadRunnerTest {
+
+    private static final int STALLED_REQUEST = 150;
+    private static final long STALL_MILLIS = 500;
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Without TCP_NODELAY small responses wait out delayed ACKs and the server can't keep the rate.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // Answers at once, except one request that holds the only connection for STALL_MILLIS.
+        AtomicInteger received = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (received.incrementAndGet() == STALLED_REQUEST) {
+                try {
+                    Thread.sleep(STALL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRun_ServerStallsOneRequest_QueuedRequestsChargedFromDueTime() throws Exception {
+        // Arrange - one connection, a request due every 10 ms, a second of warmup for the client to keep up.
+        LoadOptions options = LoadOptions.parse(List.of("--rate=100", "--duration=2s", "--warmup=1s",
+                "--interval=1s", "--connections=1", "--accounts=10", "--detokenise-ratio=0",
+                "--report=" + directory.resolve("report.json")));
+        LoadRunner runner = new LoadRunner(options, "http://localhost:" + server.getAddress().getPort(),
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        Workload workload = new Workload(options, Collections.nCopies(options.accounts, "token"));
+
+        // Act
+        Report report = runner.run(workload);
+        report.write(directory.resolve("report.json"));
+
+        // Assert - the ~50 requests due during the stall waited for the connection, and that wait counts.
+        // Measured from when they went out, only the stalled request would be slow and p90 would be ~1 ms.
+        JsonNode root = new ObjectMapper().readTree(directory.resolve("report.json").toFile());
+        JsonNode tokenise = root.get("operations").get("tokenise");
+        assertEquals(200, tokenise.get("requests").asLong(), 2);
+        assertEquals(0, tokenise.get("errors").asLong());
+        assertTrue(tokenise.get("latencyMs").get("max").asDouble() >= STALL_MILLIS, tokenise.toString());
+        assertTrue(tokenise.get("latencyMs").get("p90").asDouble() >= 100, tokenise.toString());
+        assertTrue(root.get("lateStarts").asLong() >= 20, root.toString());
+        assertTrue(Files.exists(directory.resolve("report.hlog")));
+    }
+}
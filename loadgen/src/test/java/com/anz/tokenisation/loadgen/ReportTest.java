@@ -0,0 +1,120 @@
+package com.anz.tokenisation.loadgen;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Report Comparison Flags Throughput, p99 and Error Regressions and Sets the Exit Code.
+class ReportTest {
+
+    @TempDir
+    Path directory;
+
+    private Path baseline;
+
+    private ByteArrayOutputStream output;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        baseline = report("baseline", 1_000, 10, 0);
+        output = new ByteArrayOutputStream();
+    }
+
+    @Test
+    void testCompare_WithinLimit_PassesWithExitCodeZero() throws Exception {
+        // Arrange - 5% slower and 5% later, under the 10% limit.
+        Path candidate = report("candidate", 950, 10.5, 0);
+
+        // Act
+        int exitCode = LoadGenMain.compare(args(candidate), out());
+
+        // Assert
+        assertEquals(0, exitCode);
+        assertTrue(printed().contains("OK (limit 10.0%)"));
+    }
+
+    @Test
+    void testCompare_ThroughputDown_Regresses() throws Exception {
+        // Arrange
+        Path candidate = report("candidate", 850, 10, 0);
+
+        // Act
+        boolean ok = Report.compare(baseline, candidate, 10, out());
+
+        // Assert
+        assertFalse(ok);
+        assertTrue(printed().contains("requests/s") && printed().contains("-15.0%  <<"), printed());
+    }
+
+    @Test
+    void testCompare_P99Up_Regresses() throws Exception {
+        // Arrange
+        Path candidate = report("candidate", 1_000, 12, 0);
+
+        // Act
+        boolean ok = Report.compare(baseline, candidate, 10, out());
+
+        // Assert
+        assertFalse(ok);
+        assertTrue(printed().contains("+20.0%  <<"), printed());
+    }
+
+    @Test
+    void testCompare_ErrorsWhereBaselineHadNone_RegressesWithExitCodeOne() throws Exception {
+        // Arrange
+        Path candidate = report("candidate", 1_000, 10, 3);
+
+        // Act
+        int exitCode = LoadGenMain.compare(args(candidate), out());
+
+        // Assert
+        assertEquals(1, exitCode);
+        assertTrue(printed().contains("REGRESSED"));
+    }
+
+    @Test
+    void testCompare_MissingArguments_ExitCodeTwo() throws Exception {
+        // Act & Assert
+        assertEquals(2, LoadGenMain.compare(new String[] {"compare", baseline.toString()}, out()));
+    }
+
+    private String[] args(Path candidate) {
+        return new String[] {"compare", baseline.toString(), candidate.toString(), "10"};
+    }
+
+    private PrintStream out() {
+        return new PrintStream(output, true, StandardCharsets.UTF_8);
+    }
+
+    private String printed() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private Path report(String label, double requestsPerSecond, double p99, long errors) throws Exception {
+        Path path = directory.resolve(label + ".json");
+        Files.writeString(path, """
+                {
+                  "label": "%s",
+                  "operations": {
+                    "tokenise": {
+                      "requests": 60000,
+                      "values": 600000,
+                      "errors": %d,
+                      "requestsPerSecond": %s,
+                      "valuesPerSecond": %s,
+                      "latencyMs": {"mean": 2.0, "p50": 1.5, "p99": %s, "max": 40.0}
+                    }
+                  }
+                }
+                """.formatted(label, errors, requestsPerSecond, requestsPerSecond * 10, p99));
+        return path;
+    }
+}
@@ -0,0 +1,71 @@
+package com.anz.tokenisation.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Zipfian Ranks: Scrambled Without Collisions and Skewed as Zipf's Law Says.
+class ZipfianGeneratorTest {
+
+    @Test
+    void testScramble_SeveralKeySpaces_IsBijection() {
+        for (int n : new int[] {1, 2, 7, 1_000, 65_536, 99_991, 1_000_003}) {
+            // Act
+            BitSet hit = new BitSet(n);
+            for (long rank = 0; rank < n; rank++) {
+                int key = ZipfianGenerator.scramble(rank, n);
+                assertTrue(key >= 0 && key < n, "n=" + n + " rank=" + rank + " key=" + key);
+                hit.set(key);
+            }
+
+            // Assert - n ranks landed on n different keys.
+            assertEquals(n, hit.cardinality(), "n=" + n);
+        }
+    }
+
+    @Test
+    void testNext_Theta099_RankZeroDrawnOneInZetaN() {
+        // Arrange
+        int n = 1_000;
+        double theta = 0.99;
+        double zetaN = 0;
+        for (int i = 1; i <= n; i++) {
+            zetaN += 1 / Math.pow(i, theta);
+        }
+        ZipfianGenerator generator = new ZipfianGenerator(n, theta);
+        SplittableRandom random = new SplittableRandom(42);
+        int draws = 1_000_000;
+
+        // Act - rank 0 scrambles to key 0.
+        int rankZero = 0;
+        for (int i = 0; i < draws; i++) {
+            if (generator.next(random) == 0) {
+                rankZero++;
+            }
+        }
+
+        // Assert - about 1/zeta(n) = 13%, within a few standard deviations.
+        assertEquals(1 / zetaN, (double) rankZero / draws, 0.002);
+    }
+
+    @Test
+    void testNext_ThetaZero_DrawsUniformly() {
+        // Arrange
+        ZipfianGenerator generator = new ZipfianGenerator(10, 0);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] counts = new int[10];
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            counts[generator.next(random)]++;
+        }
+
+        // Assert
+        for (int count : counts) {
+            assertEquals(10_000, count, 500);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.anz.tokenisation;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 // Entry for ANZ Tokenisation Service.
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TokenisationServiceApplication {
 
     public static void main(String[] args) {
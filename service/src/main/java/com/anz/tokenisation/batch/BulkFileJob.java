@@ -0,0 +1,315 @@
+package com.anz.tokenisation.batch;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.TokenisationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tokenises (or detokenises) one column of a CSV or fixed width file into an output file.
+ * CSV fields may be quoted as in RFC 4180, with "" for a quote; a quoted field can't span lines, since
+ * chunks end on line breaks, and is rejected if it tries to.
+ * The input is memory mapped chunk by chunk, chunks end on line breaks and are processed in parallel on a
+ * fork-join pool, one service call per chunk. Results are written strictly in chunk order, with at most
+ * two chunks per worker in flight, and a checkpoint after every chunk lets an interrupted job resume.
+ */
+public class BulkFileJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkFileJob.class);
+
+    // Longest line accepted, a chunk is mapped with this much slack to find its closing line break.
+    static final int MAX_LINE_BYTES = 1 << 20;
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final TokenisationProperties.Batch settings;
+    private final Function<List<String>, List<String>> operation;
+    private final Path checkpointPath;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public BulkFileJob(TokenisationService tokenisationService, TokenisationProperties.Batch settings) {
+        if (settings.getInput() == null || settings.getOutput() == null) {
+            throw new IllegalArgumentException("tokenisation.batch.input and tokenisation.batch.output are required");
+        }
+        long chunkBytes = settings.getChunkSize().toBytes();
+        if (chunkBytes < 1 || chunkBytes > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("tokenisation.batch.chunk-size must be between 1B and 1GB");
+        }
+        this.settings = settings;
+        this.operation = settings.getMode() == TokenisationProperties.Batch.Mode.TOKENISE
+                ? tokenisationService::tokenise
+                : tokenisationService::detokenise;
+        this.checkpointPath = settings.getCheckpoint() != null
+                ? settings.getCheckpoint()
+                : settings.getOutput().resolveSibling(settings.getOutput().getFileName() + ".checkpoint");
+        this.chunkSize = (int) chunkBytes;
+        this.parallelism = settings.getParallelism() > 0
+                ? settings.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Run the job to the end of the input, resuming from the checkpoint if there is one.
+     */
+    public Result run() throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(checkpointPath);
+        long started = System.nanoTime();
+        long rows = 0;
+        int chunks = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel input = FileChannel.open(settings.getInput(), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(settings.getOutput(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Anything past the checkpoint was written by the interrupted run and is written again.
+            output.truncate(checkpoint.outputOffset());
+            long outputOffset = checkpoint.outputOffset();
+            long inputOffset = checkpoint.inputOffset();
+            long inputSize = input.size();
+            if (inputOffset > 0) {
+                log.info("Resuming bulk file job at input byte {} of {}", inputOffset, inputSize);
+            }
+
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            while (inputOffset < inputSize || !inFlight.isEmpty()) {
+                while (inputOffset < inputSize && inFlight.size() < 2 * parallelism) {
+                    ByteBuffer region = nextChunk(input, inputOffset, inputSize);
+                    long start = inputOffset;
+                    inputOffset += region.remaining();
+                    long end = inputOffset;
+                    inFlight.add(pool.submit(() -> process(region, start == 0 && settings.isHeader(), end)));
+                }
+
+                Chunk chunk = await(inFlight.poll());
+                ByteBuffer bytes = ByteBuffer.wrap(chunk.output());
+                while (bytes.hasRemaining()) {
+                    outputOffset += output.write(bytes, outputOffset);
+                }
+                // The checkpoint may only ever cover output that is on disk.
+                output.force(false);
+                new Checkpoint(chunk.inputEnd(), outputOffset).write(checkpointPath);
+                rows += chunk.rows();
+                chunks++;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Files.deleteIfExists(checkpointPath);
+
+        Result result = new Result(rows, chunks, checkpoint.inputOffset(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        log.info("Bulk file job wrote {} rows in {} chunks to {} in {} ms",
+                result.rows(), result.chunks(), settings.getOutput(), result.millis());
+        return result;
+    }
+
+    /**
+     * Map the next chunk: chunkSize bytes extended to the end of the line they stop in.
+     */
+    private ByteBuffer nextChunk(FileChannel input, long offset, long inputSize) throws IOException {
+        long length = Math.min(inputSize - offset, (long) chunkSize + MAX_LINE_BYTES);
+        ByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        if (offset + length == inputSize && length <= chunkSize) {
+            return window;
+        }
+        for (int i = chunkSize - 1; i < length; i++) {
+            if (window.get(i) == '\n') {
+                return window.slice(0, i + 1);
+            }
+        }
+        if (offset + length == inputSize) {
+            return window;
+        }
+        throw new IOException("Line longer than " + MAX_LINE_BYTES + " bytes near input byte " + (offset + chunkSize));
+    }
+
+    /**
+     * Locate the field in every line, resolve all values with one service call and rebuild the lines.
+     */
+    Chunk process(ByteBuffer region, boolean skipFirstLine, long inputEnd) {
+        byte[] data = new byte[region.remaining()];
+        region.get(data);
+
+        // Per line: [line start, field start, field end, content end, line end, quoted], field start -1 for pass
+        // through lines. A quoted field's start and end include its quotes.
+        List<int[]> lines = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        int position = 0;
+        while (position < data.length) {
+            int lineEnd = indexOf(data, (byte) '\n', position);
+            lineEnd = lineEnd < 0 ? data.length : lineEnd + 1;
+            int contentEnd = lineEnd;
+            while (contentEnd > position && (data[contentEnd - 1] == '\n' || data[contentEnd - 1] == '\r')) {
+                contentEnd--;
+            }
+            int[] line = {position, -1, -1, contentEnd, lineEnd, 0};
+            if (!(skipFirstLine && lines.isEmpty())) {
+                locateField(data, line);
+                if (line[1] >= 0) {
+                    values.add(line[5] == 1 ? unquote(data, line[1], line[2])
+                            : new String(data, line[1], line[2] - line[1], StandardCharsets.UTF_8));
+                }
+            }
+            lines.add(line);
+            position = lineEnd;
+        }
+
+        List<String> results = values.isEmpty() ? List.of() : operation.apply(values);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + values.size() * 16);
+        int next = 0;
+        for (int[] line : lines) {
+            if (line[1] < 0) {
+                out.write(data, line[0], line[4] - line[0]);
+                continue;
+            }
+            out.write(data, line[0], line[1] - line[0]);
+            String result = results.get(next++);
+            String field = line[5] == 1 ? quote(result == null ? "" : result) : result;
+            byte[] replacement = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+            out.writeBytes(replacement);
+            int after = line[2];
+            if (settings.getFormat() == TokenisationProperties.Batch.Format.FIXED_WIDTH) {
+                if (replacement.length > settings.getFieldLength()) {
+                    throw new IllegalStateException("Fixed width field of " + settings.getFieldLength()
+                            + " bytes is too narrow for a " + replacement.length + " byte result");
+                }
+                byte[] padding = new byte[settings.getFieldLength() - replacement.length];
+                Arrays.fill(padding, (byte) ' ');
+                out.writeBytes(padding);
+                after = Math.min(line[1] + settings.getFieldLength(), line[3]);
+            }
+            out.write(data, after, line[4] - after);
+        }
+        return new Chunk(out.toByteArray(), lines.size(), inputEnd);
+    }
+
+    /**
+     * Sets field start and end of the line, or leaves them at -1 when the line has no (or an empty) field.
+     */
+    private void locateField(byte[] data, int[] line) {
+        int start = line[0];
+        int contentEnd = line[3];
+        int fieldStart;
+        int fieldEnd;
+        if (settings.getFormat() == TokenisationProperties.Batch.Format.FIXED_WIDTH) {
+            fieldStart = start + settings.getFieldStart();
+            if (fieldStart >= contentEnd) {
+                return;
+            }
+            fieldEnd = Math.min(fieldStart + settings.getFieldLength(), contentEnd);
+            while (fieldEnd > fieldStart && data[fieldEnd - 1] == ' ') {
+                fieldEnd--;
+            }
+        } else {
+            byte delimiter = (byte) settings.getDelimiter();
+            fieldStart = start;
+            for (int column = 0; column < settings.getColumn(); column++) {
+                int next = fieldEnd(data, delimiter, fieldStart, contentEnd);
+                if (next >= contentEnd) {
+                    return;
+                }
+                fieldStart = next + 1;
+            }
+            fieldEnd = fieldEnd(data, delimiter, fieldStart, contentEnd);
+            if (fieldStart < fieldEnd && data[fieldStart] == '"') {
+                // An empty quoted field is no value, like an empty unquoted one.
+                if (fieldEnd - fieldStart > 2) {
+                    line[1] = fieldStart;
+                    line[2] = fieldEnd;
+                    line[5] = 1;
+                }
+                return;
+            }
+        }
+        if (fieldEnd > fieldStart) {
+            line[1] = fieldStart;
+            line[2] = fieldEnd;
+        }
+    }
+
+    /**
+     * End of the CSV field starting at from: the delimiter after it, or contentEnd. A field opening with a quote
+     * runs to its closing quote, past any delimiters and "" inside it.
+     */
+    private static int fieldEnd(byte[] data, byte delimiter, int from, int contentEnd) {
+        if (from >= contentEnd || data[from] != '"') {
+            int next = indexOf(data, delimiter, from);
+            return next < 0 || next > contentEnd ? contentEnd : next;
+        }
+        int i = from + 1;
+        while (true) {
+            if (i >= contentEnd) {
+                // The line isn't quoted in the message, it holds account numbers.
+                throw new IllegalStateException("Quoted CSV field isn't closed on its line, quoted line breaks aren't supported");
+            }
+            if (data[i] == '"') {
+                if (i + 1 < contentEnd && data[i + 1] == '"') {
+                    i += 2;
+                    continue;
+                }
+                i++;
+                break;
+            }
+            i++;
+        }
+        if (i < contentEnd && data[i] != delimiter) {
+            throw new IllegalStateException("Quoted CSV field is followed by more than a delimiter");
+        }
+        return i;
+    }
+
+    private static String unquote(byte[] data, int start, int end) {
+        return new String(data, start + 1, end - start - 2, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static int indexOf(byte[] data, byte value, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk file job interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Bulk file job chunk failed", e.getCause());
+        }
+    }
+
+    record Chunk(byte[] output, int rows, long inputEnd) {
+    }
+
+    /**
+     * Rows written by this run, chunks processed, input offset the run resumed from and elapsed time.
+     */
+    public record Result(long rows, int chunks, long resumedFrom, long millis) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.anz.tokenisation.batch;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.TokenisationService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the bulk file job at startup when tokenisation.batch.input is set, e.g.
+ * {@code java -jar app.jar --spring.main.web-application-type=none --tokenisation.batch.input=in.csv
+ * --tokenisation.batch.output=out.csv}. Shares the service, and so the store and cache, with the HTTP API.
+ */
+@Component
+@ConditionalOnProperty(name = "tokenisation.batch.input")
+public class BulkFileRunner implements ApplicationRunner {
+
+    private final TokenisationService tokenisationService;
+    private final TokenisationProperties properties;
+
+    public BulkFileRunner(TokenisationService tokenisationService, TokenisationProperties properties) {
+        this.tokenisationService = tokenisationService;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        new BulkFileJob(tokenisationService, properties.getBatch()).run();
+    }
+}
@@ -0,0 +1,37 @@
+package com.anz.tokenisation.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Progress of a bulk file job: input consumed and output written so far, both at a chunk boundary.
+ * Stored as two text lines so an operator can read (or reset) it.
+ */
+record Checkpoint(long inputOffset, long outputOffset) {
+
+    static final Checkpoint START = new Checkpoint(0, 0);
+
+    static Checkpoint read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return START;
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+        if (lines.size() < 2) {
+            throw new IOException("Malformed checkpoint: " + path);
+        }
+        return new Checkpoint(Long.parseLong(lines.get(0).trim()), Long.parseLong(lines.get(1).trim()));
+    }
+
+    /**
+     * Replace the checkpoint atomically, so a crash leaves either the old or the new one.
+     */
+    void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temporary, inputOffset + "\n" + outputOffset + "\n", StandardCharsets.US_ASCII);
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
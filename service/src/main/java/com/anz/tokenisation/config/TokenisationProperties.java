@@ -0,0 +1,1053 @@
+package com.anz.tokenisation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Tunables for the Tokenisation Service (prefix "tokenisation").
+@ConfigurationProperties(prefix = "tokenisation")
+public class TokenisationProperties {
+
+    private final Lookup lookup = new Lookup();
+    private final Cache cache = new Cache();
+    private final Store store = new Store();
+    private final Generator generator = new Generator();
+    private final Pool pool = new Pool();
+    private final FormatPreserving formatPreserving = new FormatPreserving();
+    private final Filter filter = new Filter();
+    private final Locks locks = new Locks();
+    private final Parallel parallel = new Parallel();
+    private final Coalesce coalesce = new Coalesce();
+    private final Snapshot snapshot = new Snapshot();
+    private final AccountHash accountHash = new AccountHash();
+    private final Stream stream = new Stream();
+    private final Batch batch = new Batch();
+
+    public Lookup getLookup() {
+        return lookup;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public Generator getGenerator() {
+        return generator;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public FormatPreserving getFormatPreserving() {
+        return formatPreserving;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    public Locks getLocks() {
+        return locks;
+    }
+
+    public Parallel getParallel() {
+        return parallel;
+    }
+
+    public Coalesce getCoalesce() {
+        return coalesce;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public AccountHash getAccountHash() {
+        return accountHash;
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Settings for set based (IN list) repository lookups.
+     */
+    public static class Lookup {
+
+        /**
+         * Maximum number of values bound into a single IN query.
+         * Keeps very large batches within the database's parameter limits.
+         */
+        private int chunkSize = 1000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("tokenisation.lookup.chunk-size must be at least 1");
+            }
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Settings for the in-process account/token cache.
+     */
+    public static class Cache {
+
+        public enum Eviction { LRU, W_TINYLFU }
+
+        private boolean enabled = true;
+
+        /**
+         * Memory budget shared by both directions of the cache (estimated heap bytes).
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        private Eviction eviction = Eviction.W_TINYLFU;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Eviction getEviction() {
+            return eviction;
+        }
+
+        public void setEviction(Eviction eviction) {
+            this.eviction = eviction;
+        }
+    }
+
+    /**
+     * Settings for the striped DRBG token generator.
+     */
+    public static class Generator {
+
+        /**
+         * Number of independent DRBG stripes, zero means twice the available processors.
+         */
+        private int stripes = 0;
+
+        /**
+         * Tokens generated by a stripe before it reseeds from the entropy source, zero disables reseeding.
+         */
+        private long reseedInterval = 1_000_000;
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public long getReseedInterval() {
+            return reseedInterval;
+        }
+
+        public void setReseedInterval(long reseedInterval) {
+            this.reseedInterval = reseedInterval;
+        }
+    }
+
+    /**
+     * Settings for the pool of pre-generated, pre-checked tokens that new accounts take from.
+     */
+    public static class Pool {
+
+        private boolean enabled = false;
+
+        /**
+         * Tokens held at most, rounded up to a power of two.
+         */
+        private int capacity = 65_536;
+
+        /**
+         * The producer refills once the pool is down to this many tokens.
+         */
+        private int lowWaterMark = 16_384;
+
+        /**
+         * Tokens generated and checked against the store per refill step.
+         */
+        private int refillBatch = 4_096;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            if (capacity < 1 || capacity > 1 << 24) {
+                throw new IllegalArgumentException("tokenisation.pool.capacity must be between 1 and 16777216");
+            }
+            this.capacity = capacity;
+        }
+
+        public int getLowWaterMark() {
+            return lowWaterMark;
+        }
+
+        public void setLowWaterMark(int lowWaterMark) {
+            if (lowWaterMark < 0) {
+                throw new IllegalArgumentException("tokenisation.pool.low-water-mark must not be negative");
+            }
+            this.lowWaterMark = lowWaterMark;
+        }
+
+        public int getRefillBatch() {
+            return refillBatch;
+        }
+
+        public void setRefillBatch(int refillBatch) {
+            if (refillBatch < 1) {
+                throw new IllegalArgumentException("tokenisation.pool.refill-batch must be at least 1");
+            }
+            this.refillBatch = refillBatch;
+        }
+    }
+
+    /**
+     * Settings for stateless FF1 tokens: account numbers in these ranges are encrypted instead of stored.
+     */
+    public static class FormatPreserving {
+
+        private boolean enabled = false;
+
+        /**
+         * Leading digits of the accounts that get FF1 tokens, e.g. a BIN. Empty means every all-digit value.
+         * A prefix can't be longer than preserveLeading, so tokens keep it and route back on detokenise.
+         */
+        private List<String> prefixes = new ArrayList<>();
+
+        /**
+         * Base64 AES key (16, 24 or 32 bytes). Unset falls back to a development key.
+         */
+        private String secret;
+
+        /**
+         * Base64 FF1 tweak, empty by default. Changing it or the key changes every token.
+         */
+        private String tweak = "";
+
+        /**
+         * Digits kept in the clear at the start (e.g. the BIN) and at the end of the account number.
+         */
+        private int preserveLeading = 6;
+        private int preserveTrailing = 4;
+
+        /**
+         * Keep the Luhn check of the account: Luhn valid accounts get Luhn valid tokens and the other way round.
+         */
+        private boolean luhn = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getPrefixes() {
+            return prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public String getTweak() {
+            return tweak;
+        }
+
+        public void setTweak(String tweak) {
+            this.tweak = tweak;
+        }
+
+        public int getPreserveLeading() {
+            return preserveLeading;
+        }
+
+        public void setPreserveLeading(int preserveLeading) {
+            if (preserveLeading < 0) {
+                throw new IllegalArgumentException("tokenisation.format-preserving.preserve-leading must not be negative");
+            }
+            this.preserveLeading = preserveLeading;
+        }
+
+        public int getPreserveTrailing() {
+            return preserveTrailing;
+        }
+
+        public void setPreserveTrailing(int preserveTrailing) {
+            if (preserveTrailing < 0) {
+                throw new IllegalArgumentException("tokenisation.format-preserving.preserve-trailing must not be negative");
+            }
+            this.preserveTrailing = preserveTrailing;
+        }
+
+        public boolean isLuhn() {
+            return luhn;
+        }
+
+        public void setLuhn(boolean luhn) {
+            this.luhn = luhn;
+        }
+    }
+
+    /**
+     * Settings for the Bloom filters that let lookups of unseen tokens and accounts skip the store.
+     * Only safe while this process sees every write to the store, so disable it when several nodes write one database.
+     */
+    public static class Filter {
+
+        private boolean enabled = true;
+
+        private long expectedInsertions = 1_000_000;
+
+        private double falsePositiveRate = 0.001;
+
+        /**
+         * Where the filters are saved on shutdown and loaded from at startup, unset means always rebuild from the store.
+         */
+        private Path snapshotPath;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedInsertions() {
+            return expectedInsertions;
+        }
+
+        public void setExpectedInsertions(long expectedInsertions) {
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+                throw new IllegalArgumentException("tokenisation.filter.false-positive-rate must be between 0 and 1");
+            }
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public Path getSnapshotPath() {
+            return snapshotPath;
+        }
+
+        public void setSnapshotPath(Path snapshotPath) {
+            this.snapshotPath = snapshotPath;
+        }
+    }
+
+    /**
+     * Settings for the streaming (NDJSON) endpoints.
+     */
+    public static class Stream {
+
+        /**
+         * Values read before a micro-batch is sent through the service and its results written back.
+         * Bounds the memory of a stream however long it is.
+         */
+        private int batchSize = 1000;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("tokenisation.stream.batch-size must be at least 1");
+            }
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Settings for the offline bulk file job, which runs at startup when an input file is set.
+     */
+    public static class Batch {
+
+        public enum Mode { TOKENISE, DETOKENISE }
+
+        public enum Format { CSV, FIXED_WIDTH }
+
+        private Path input;
+
+        private Path output;
+
+        /**
+         * Progress file for resuming an interrupted job, defaults to the output path plus ".checkpoint".
+         */
+        private Path checkpoint;
+
+        private Mode mode = Mode.TOKENISE;
+
+        private Format format = Format.CSV;
+
+        /**
+         * Copy the first line through unchanged.
+         */
+        private boolean header = false;
+
+        /**
+         * CSV: field separator (no quoting) and zero based index of the column to replace.
+         */
+        private char delimiter = ',';
+
+        private int column = 0;
+
+        /**
+         * Fixed width: zero based start and width of the field to replace. Results are right padded to the width.
+         */
+        private int fieldStart = 0;
+
+        private int fieldLength = 32;
+
+        /**
+         * Input bytes per chunk; chunks end at the next line break after this size.
+         */
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+
+        /**
+         * Worker threads for chunks, zero means the available processors.
+         */
+        private int parallelism = 0;
+
+        public Path getInput() {
+            return input;
+        }
+
+        public void setInput(Path input) {
+            this.input = input;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+
+        public void setOutput(Path output) {
+            this.output = output;
+        }
+
+        public Path getCheckpoint() {
+            return checkpoint;
+        }
+
+        public void setCheckpoint(Path checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public void setFormat(Format format) {
+            this.format = format;
+        }
+
+        public boolean isHeader() {
+            return header;
+        }
+
+        public void setHeader(boolean header) {
+            this.header = header;
+        }
+
+        public char getDelimiter() {
+            return delimiter;
+        }
+
+        public void setDelimiter(char delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public void setColumn(int column) {
+            this.column = column;
+        }
+
+        public int getFieldStart() {
+            return fieldStart;
+        }
+
+        public void setFieldStart(int fieldStart) {
+            this.fieldStart = fieldStart;
+        }
+
+        public int getFieldLength() {
+            return fieldLength;
+        }
+
+        public void setFieldLength(int fieldLength) {
+            this.fieldLength = fieldLength;
+        }
+
+        public DataSize getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(DataSize chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Settings for the striped per-account locks that serialise token creation for the same account.
+     */
+    public static class Locks {
+
+        /**
+         * Number of lock stripes, rounded up to a power of two. More stripes mean fewer unrelated accounts wait on each other.
+         */
+        private int stripes = 1024;
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            if (stripes < 1) {
+                throw new IllegalArgumentException("tokenisation.locks.stripes must be at least 1");
+            }
+            this.stripes = stripes;
+        }
+    }
+
+    /**
+     * Settings for splitting large tokenise batches into partitions processed in parallel.
+     */
+    public static class Parallel {
+
+        /**
+         * Batches with at least this many values are split, smaller ones run on the calling thread.
+         */
+        private int threshold = 2_000;
+
+        /**
+         * Partitions per large batch and threads shared by all requests, zero means the available processors.
+         */
+        private int partitions = 0;
+
+        public int getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(int threshold) {
+            if (threshold < 1) {
+                throw new IllegalArgumentException("tokenisation.parallel.threshold must be at least 1");
+            }
+            this.threshold = threshold;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            if (partitions < 0) {
+                throw new IllegalArgumentException("tokenisation.parallel.partitions must not be negative");
+            }
+            this.partitions = partitions;
+        }
+    }
+
+    /**
+     * Settings for coalescing small concurrent tokenise and detokenise requests into combined service calls.
+     */
+    public static class Coalesce {
+
+        private boolean enabled = false;
+
+        /**
+         * How long a window stays open for more requests after its first one arrives.
+         */
+        private Duration window = Duration.ofNanos(200_000);
+
+        /**
+         * Values that close a window early. Requests at least this large bypass coalescing.
+         */
+        private int maxBatch = 1_000;
+
+        /**
+         * Longest a request waits to join a window before its caller runs it alone.
+         */
+        private Duration maxWait = Duration.ofMillis(20);
+
+        /**
+         * Requests waiting per operation, callers beyond it run their request alone.
+         */
+        private int queueDepth = 10_000;
+
+        /**
+         * Combined calls running at once per operation, zero means the available processors.
+         */
+        private int concurrency = 0;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            if (window.isNegative()) {
+                throw new IllegalArgumentException("tokenisation.coalesce.window must not be negative");
+            }
+            this.window = window;
+        }
+
+        public int getMaxBatch() {
+            return maxBatch;
+        }
+
+        public void setMaxBatch(int maxBatch) {
+            if (maxBatch < 2) {
+                throw new IllegalArgumentException("tokenisation.coalesce.max-batch must be at least 2");
+            }
+            this.maxBatch = maxBatch;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            if (maxWait.isNegative() || maxWait.isZero()) {
+                throw new IllegalArgumentException("tokenisation.coalesce.max-wait must be positive");
+            }
+            this.maxWait = maxWait;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public void setQueueDepth(int queueDepth) {
+            if (queueDepth < 1) {
+                throw new IllegalArgumentException("tokenisation.coalesce.queue-depth must be at least 1");
+            }
+            this.queueDepth = queueDepth;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            if (concurrency < 0) {
+                throw new IllegalArgumentException("tokenisation.coalesce.concurrency must not be negative");
+            }
+            this.concurrency = concurrency;
+        }
+    }
+
+    /**
+     * Settings for vault snapshots: every mapping in a block compressed, checksummed file.
+     */
+    public static class Snapshot {
+
+        private Path path = Path.of("data/vault.snapshot");
+
+        /**
+         * Load the snapshot at startup when the store is empty, before requests are accepted.
+         */
+        private boolean warmStart = false;
+
+        private boolean exportOnShutdown = false;
+
+        /**
+         * Threads compressing or loading blocks, zero means the available processors.
+         */
+        private int parallelism = 0;
+
+        public Path getPath() {
+            return path;
+        }
+
+        public void setPath(Path path) {
+            this.path = path;
+        }
+
+        public boolean isWarmStart() {
+            return warmStart;
+        }
+
+        public void setWarmStart(boolean warmStart) {
+            this.warmStart = warmStart;
+        }
+
+        public boolean isExportOnShutdown() {
+            return exportOnShutdown;
+        }
+
+        public void setExportOnShutdown(boolean exportOnShutdown) {
+            this.exportOnShutdown = exportOnShutdown;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            if (parallelism < 0) {
+                throw new IllegalArgumentException("tokenisation.snapshot.parallelism must not be negative");
+            }
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Settings for the keyed account hash the database indexes instead of the account number.
+     */
+    public static class AccountHash {
+
+        /**
+         * Base64 HMAC key. Changing it orphans every stored mapping, so treat it like a database encryption key.
+         * Unset falls back to a development key.
+         */
+        private String secret;
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+    }
+
+    /**
+     * Selects and tunes the storage engine behind the service.
+     */
+    public static class Store {
+
+        public enum Type { JPA, OFF_HEAP, FILE, SHARDED, TIERED }
+
+        private Type type = Type.JPA;
+        private final OffHeap offHeap = new OffHeap();
+        private final File file = new File();
+        private final Sharded sharded = new Sharded();
+        private final Tiered tiered = new Tiered();
+
+        public Type getType() {
+            return type;
+        }
+
+        public void setType(Type type) {
+            this.type = type;
+        }
+
+        public OffHeap getOffHeap() {
+            return offHeap;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public Sharded getSharded() {
+            return sharded;
+        }
+
+        public Tiered getTiered() {
+            return tiered;
+        }
+
+        public static class OffHeap {
+
+            /**
+             * Size of each direct buffer arena holding the records (128KB to 64MB).
+             */
+            private DataSize chunkSize = DataSize.ofMegabytes(64);
+
+            /**
+             * Expected number of mappings, used to pre-size the hash indexes.
+             */
+            private long initialCapacity = 1 << 20;
+
+            public DataSize getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(DataSize chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+
+            public long getInitialCapacity() {
+                return initialCapacity;
+            }
+
+            public void setInitialCapacity(long initialCapacity) {
+                this.initialCapacity = initialCapacity;
+            }
+        }
+
+        /**
+         * Durable append-only log plus index snapshots (uses the off-heap settings for the index).
+         */
+        public static class File {
+
+            private Path directory = Path.of("data");
+
+            /**
+             * How long the flusher waits to gather concurrent appends into one fsync.
+             */
+            private Duration commitInterval = Duration.ofMillis(1);
+
+            /**
+             * How often the index is snapshotted, zero disables periodic snapshots.
+             */
+            private Duration snapshotInterval = Duration.ofMinutes(10);
+
+            private boolean snapshotOnShutdown = true;
+
+            public Path getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(Path directory) {
+                this.directory = directory;
+            }
+
+            public Duration getCommitInterval() {
+                return commitInterval;
+            }
+
+            public void setCommitInterval(Duration commitInterval) {
+                this.commitInterval = commitInterval;
+            }
+
+            public Duration getSnapshotInterval() {
+                return snapshotInterval;
+            }
+
+            public void setSnapshotInterval(Duration snapshotInterval) {
+                this.snapshotInterval = snapshotInterval;
+            }
+
+            public boolean isSnapshotOnShutdown() {
+                return snapshotOnShutdown;
+            }
+
+            public void setSnapshotOnShutdown(boolean snapshotOnShutdown) {
+                this.snapshotOnShutdown = snapshotOnShutdown;
+            }
+        }
+
+        /**
+         * Mappings split over several embedded stores, accounts routed by consistent hashing.
+         * Each shard gets initial-capacity / shards slots and, for the file engine, its own shard-N directory.
+         */
+        public static class Sharded {
+
+            public enum Engine { OFF_HEAP, FILE }
+
+            /**
+             * Number of shards (1 to 64). Fixed for the lifetime of the data, every token records its shard.
+             */
+            private int shards = 4;
+
+            private Engine engine = Engine.OFF_HEAP;
+
+            /**
+             * Points per shard on the hash ring, more points spread accounts more evenly.
+             */
+            private int virtualNodes = 128;
+
+            public int getShards() {
+                return shards;
+            }
+
+            public void setShards(int shards) {
+                if (shards < 1 || shards > 64) {
+                    throw new IllegalArgumentException("tokenisation.store.sharded.shards must be between 1 and 64");
+                }
+                this.shards = shards;
+            }
+
+            public Engine getEngine() {
+                return engine;
+            }
+
+            public void setEngine(Engine engine) {
+                this.engine = engine;
+            }
+
+            public int getVirtualNodes() {
+                return virtualNodes;
+            }
+
+            public void setVirtualNodes(int virtualNodes) {
+                if (virtualNodes < 1) {
+                    throw new IllegalArgumentException("tokenisation.store.sharded.virtual-nodes must be at least 1");
+                }
+                this.virtualNodes = virtualNodes;
+            }
+        }
+
+        /**
+         * Off-heap hot tier over the JPA database, new mappings written behind in batches.
+         * The write-ahead log lives in the file store's directory and uses its commit interval.
+         */
+        public static class Tiered {
+
+            /**
+             * When saveAll returns: once in memory, once in the fsynced write-ahead log, or once committed
+             * to the database.
+             */
+            public enum Durability { MEMORY, WAL, DATABASE }
+
+            private Durability durability = Durability.WAL;
+
+            /**
+             * Most mappings written to the database in one transaction.
+             */
+            private int flushBatch = 10_000;
+
+            /**
+             * Wait after the first pending write so more can join its transaction, zero flushes what is queued.
+             */
+            private Duration flushInterval = Duration.ZERO;
+
+            /**
+             * Mappings per hot tier generation. The hot tier keeps two generations and drops the older one,
+             * once written behind, when the newer one fills up.
+             */
+            private long hotCapacity = 1_000_000;
+
+            /**
+             * Written behind records the write-ahead log may carry before its unflushed tail is copied to a
+             * fresh file. Once the database has caught up with everything appended, the log is emptied anyway.
+             */
+            private DataSize walRewriteSize = DataSize.ofMegabytes(64);
+
+            public Durability getDurability() {
+                return durability;
+            }
+
+            public void setDurability(Durability durability) {
+                this.durability = durability;
+            }
+
+            public int getFlushBatch() {
+                return flushBatch;
+            }
+
+            public void setFlushBatch(int flushBatch) {
+                if (flushBatch < 1) {
+                    throw new IllegalArgumentException("tokenisation.store.tiered.flush-batch must be at least 1");
+                }
+                this.flushBatch = flushBatch;
+            }
+
+            public Duration getFlushInterval() {
+                return flushInterval;
+            }
+
+            public void setFlushInterval(Duration flushInterval) {
+                this.flushInterval = flushInterval;
+            }
+
+            public long getHotCapacity() {
+                return hotCapacity;
+            }
+
+            public void setHotCapacity(long hotCapacity) {
+                if (hotCapacity < 1) {
+                    throw new IllegalArgumentException("tokenisation.store.tiered.hot-capacity must be at least 1");
+                }
+                this.hotCapacity = hotCapacity;
+            }
+
+            public DataSize getWalRewriteSize() {
+                return walRewriteSize;
+            }
+
+            public void setWalRewriteSize(DataSize walRewriteSize) {
+                if (walRewriteSize.toBytes() < 1) {
+                    throw new IllegalArgumentException("tokenisation.store.tiered.wal-rewrite-size must be at least 1B");
+                }
+                this.walRewriteSize = walRewriteSize;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.anz.tokenisation.controller;
+
+import com.anz.tokenisation.store.TokenCodec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Length prefixed binary wire format ({@value #MEDIA_TYPE}), all integers big endian:
+ * <pre>
+ * account numbers: [u32 count] count x [u16 length][UTF-8 bytes], length 0xFFFF = null
+ * tokens:          [u32 count] count x [24 raw token bytes]
+ * </pre>
+ * Tokens travel as their 24 random bytes instead of 32 Base64 characters, so only vault tokens fit: accounts in
+ * format-preserving ranges are rejected by the binary endpoints and use JSON. Bodies are decoded from and encoded
+ * into one array through {@link TokenCodec}, no per element stream calls.
+ */
+public final class BinaryTokenCodec {
+
+    public static final String MEDIA_TYPE = "application/x-tokenisation-binary";
+
+    public static final int RAW_TOKEN_BYTES = TokenCodec.RAW_TOKEN_BYTES;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private BinaryTokenCodec() {
+    }
+
+    public static List<String> readAccountNumbers(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        int count = readCount(in, Short.BYTES);
+        List<String> accountNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.remaining() < Short.BYTES) {
+                throw new IllegalArgumentException("Truncated binary body");
+            }
+            int length = Short.toUnsignedInt(in.getShort());
+            if (length == NULL_LENGTH) {
+                accountNumbers.add(null);
+                continue;
+            }
+            if (length > in.remaining()) {
+                throw new IllegalArgumentException("Truncated binary body");
+            }
+            accountNumbers.add(new String(body, in.position(), length, StandardCharsets.UTF_8));
+            in.position(in.position() + length);
+        }
+        return accountNumbers;
+    }
+
+    /**
+     * Sized first, then encoded straight into the response array: no byte[] per account number.
+     */
+    public static byte[] writeAccountNumbers(List<String> accountNumbers) {
+        int size = Integer.BYTES;
+        for (String accountNumber : accountNumbers) {
+            int length = accountNumber == null ? 0 : utf8Length(accountNumber);
+            if (length >= NULL_LENGTH) {
+                throw new IllegalArgumentException("Account number exceeds " + (NULL_LENGTH - 1) + " bytes");
+            }
+            size += Short.BYTES + length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(accountNumbers.size());
+        for (String accountNumber : accountNumbers) {
+            if (accountNumber == null) {
+                out.putShort((short) NULL_LENGTH);
+            } else if (isAscii(accountNumber)) {
+                // ASCII, the usual case: one byte per char.
+                out.putShort((short) accountNumber.length());
+                for (int i = 0; i < accountNumber.length(); i++) {
+                    out.put((byte) accountNumber.charAt(i));
+                }
+            } else {
+                byte[] bytes = accountNumber.getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) bytes.length).put(bytes);
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * Raw tokens, Base64 encoded into the 32 character form the service uses.
+     */
+    public static List<String> readTokens(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        int count = readCount(in, RAW_TOKEN_BYTES);
+        List<String> tokens = new ArrayList<>(count);
+        byte[] encoded = new byte[TokenCodec.TOKEN_LENGTH];
+        for (int i = 0, offset = Integer.BYTES; i < count; i++, offset += RAW_TOKEN_BYTES) {
+            tokens.add(TokenCodec.encode(body, offset, encoded));
+        }
+        return tokens;
+    }
+
+    public static byte[] writeTokens(List<String> tokens) {
+        byte[] out = new byte[Integer.BYTES + tokens.size() * RAW_TOKEN_BYTES];
+        ByteBuffer.wrap(out).putInt(tokens.size());
+        int offset = Integer.BYTES;
+        for (String token : tokens) {
+            if (!TokenCodec.decode(token, out, offset)) {
+                throw new IllegalArgumentException("Token is not a 32 character Base64 URL token");
+            }
+            offset += RAW_TOKEN_BYTES;
+        }
+        return out;
+    }
+
+    /**
+     * Element count, checked against the bytes left (each element needs at least minElementBytes).
+     */
+    private static int readCount(ByteBuffer in, int minElementBytes) {
+        try {
+            int count = in.getInt();
+            if (count < 0 || (long) count * minElementBytes > in.remaining()) {
+                throw new IllegalArgumentException("Truncated binary body");
+            }
+            return count;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary body", e);
+        }
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bytes of the UTF-8 encoding, without encoding. Unpaired surrogates count as the '?' they're replaced with.
+     */
+    private static int utf8Length(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+}
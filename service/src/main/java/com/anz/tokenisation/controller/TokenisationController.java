@@ -0,0 +1,234 @@
+package com.anz.tokenisation.controller;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.FormatPreservingTokeniser;
+import com.anz.tokenisation.service.RequestCoalescer;
+import com.anz.tokenisation.service.TokenisationMetrics;
+import com.anz.tokenisation.service.TokenisationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Handle HTTP Requests and Responses.
+@RestController
+@RequestMapping
+public class TokenisationController {
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {
+    };
+
+    private final TokenisationService tokenisationService;
+    private final RequestCoalescer requestCoalescer;
+    private final FormatPreservingTokeniser formatPreserving;
+    private final ObjectMapper objectMapper;
+    // Bound once, so a request doesn't resolve the list type and its (de)serialiser again.
+    private final ObjectReader listReader;
+    private final ObjectWriter listWriter;
+    private final TokenisationMetrics metrics;
+    private final int streamBatchSize;
+
+    public TokenisationController(TokenisationService tokenisationService, RequestCoalescer requestCoalescer,
+                                  FormatPreservingTokeniser formatPreserving, ObjectMapper objectMapper,
+                                  TokenisationMetrics metrics, TokenisationProperties properties) {
+        this.tokenisationService = tokenisationService;
+        this.requestCoalescer = requestCoalescer;
+        this.formatPreserving = formatPreserving;
+        this.objectMapper = objectMapper;
+        this.listReader = objectMapper.readerFor(STRING_LIST);
+        this.listWriter = objectMapper.writerFor(STRING_LIST);
+        this.metrics = metrics;
+        this.streamBatchSize = properties.getStream().getBatchSize();
+    }
+
+    /**
+     * Tokenise endpoint - converts account numbers to tokens.
+     * Bodies are read and written here rather than by message converters, so parse and serialise are timed.
+     * Small requests may share a service call with concurrent ones (see {@link RequestCoalescer}).
+     */
+    @PostMapping(value = "/tokenise", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> tokenise(@RequestBody byte[] body) throws IOException {
+        List<String> accountNumbers = readJson(body);
+        if (accountNumbers == null || accountNumbers.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<String> tokens = requestCoalescer.tokenise(accountNumbers);
+        return ResponseEntity.ok(writeJson(tokens));
+    }
+
+    /**
+     * Detokenise endpoint - converts tokens back to account numbers.
+     */
+    @PostMapping(value = "/detokenise", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> detokenise(@RequestBody byte[] body) throws IOException {
+        List<String> tokens = readJson(body);
+        if (tokens == null || tokens.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<String> accountNumbers = requestCoalescer.detokenise(tokens);
+        return ResponseEntity.ok(writeJson(accountNumbers));
+    }
+
+    /**
+     * Tokenise endpoint, binary wire format (see {@link BinaryTokenCodec}) - returns raw 24 byte tokens.
+     * Accounts in format-preserving ranges have no raw token and are rejected; they tokenise over JSON.
+     */
+    @PostMapping(value = "/tokenise", consumes = BinaryTokenCodec.MEDIA_TYPE, produces = BinaryTokenCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> tokeniseBinary(@RequestBody byte[] body) {
+        long started = metrics.start();
+        List<String> accountNumbers;
+        try {
+            accountNumbers = BinaryTokenCodec.readAccountNumbers(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (accountNumbers.isEmpty() || accountNumbers.contains(null) || formatPreserving.anyInRange(accountNumbers)) {
+            return ResponseEntity.badRequest().build();
+        }
+        metrics.stage(TokenisationMetrics.Stage.PARSE, started);
+
+        List<String> tokens = requestCoalescer.tokenise(accountNumbers);
+        started = metrics.start();
+        byte[] response = BinaryTokenCodec.writeTokens(tokens);
+        metrics.stage(TokenisationMetrics.Stage.SERIALISE, started);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Detokenise endpoint, binary wire format (see {@link BinaryTokenCodec}) - takes raw 24 byte tokens.
+     */
+    @PostMapping(value = "/detokenise", consumes = BinaryTokenCodec.MEDIA_TYPE, produces = BinaryTokenCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> detokeniseBinary(@RequestBody byte[] body) {
+        long started = metrics.start();
+        List<String> tokens;
+        try {
+            tokens = BinaryTokenCodec.readTokens(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (tokens.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        metrics.stage(TokenisationMetrics.Stage.PARSE, started);
+
+        List<String> accountNumbers = requestCoalescer.detokenise(tokens);
+        started = metrics.start();
+        byte[] response = BinaryTokenCodec.writeAccountNumbers(accountNumbers);
+        metrics.stage(TokenisationMetrics.Stage.SERIALISE, started);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Streaming tokenise endpoint - one JSON account number per line in, one token per line out, same order.
+     */
+    @PostMapping(value = "/tokenise/stream",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public void tokeniseStream(InputStream body, HttpServletResponse response) throws IOException {
+        streamInBatches(body, response, tokenisationService::tokenise);
+    }
+
+    /**
+     * Streaming detokenise endpoint - one JSON token per line in, one account number (or null) per line out.
+     */
+    @PostMapping(value = "/detokenise/stream",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public void detokeniseStream(InputStream body, HttpServletResponse response) throws IOException {
+        streamInBatches(body, response, tokenisationService::detokenise);
+    }
+
+    /**
+     * Read values incrementally, run them through the service in micro-batches and write each batch's results
+     * before reading on. Only one batch is in memory at a time, and a slow client slows down reading (backpressure).
+     * Accepts NDJSON or a JSON array. Null values give null results. Once results are flowing an error can't
+     * change the status any more, so it ends the response early.
+     */
+    private void streamInBatches(InputStream body, HttpServletResponse response,
+                                 Function<List<String>, List<String>> operation) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (JsonParser in = objectMapper.getFactory().createParser(body);
+             JsonGenerator out = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            // Lines are terminated explicitly, no space between root values.
+            out.setRootValueSeparator(null);
+            List<String> batch = new ArrayList<>(streamBatchSize);
+            JsonToken token = in.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = in.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING) {
+                    batch.add(in.getText());
+                } else if (token == JsonToken.VALUE_NULL) {
+                    batch.add(null);
+                } else {
+                    throw new JsonParseException(in, "Expected a JSON string or null");
+                }
+                if (batch.size() == streamBatchSize) {
+                    writeBatch(out, batch, operation);
+                    batch.clear();
+                }
+                token = in.nextToken();
+            }
+            writeBatch(out, batch, operation);
+        }
+    }
+
+    /**
+     * A JSON array of strings, or null for a malformed body (answered with 400 like a converter failure).
+     */
+    private List<String> readJson(byte[] body) throws IOException {
+        long started = metrics.start();
+        try {
+            List<String> values = listReader.readValue(body);
+            metrics.stage(TokenisationMetrics.Stage.PARSE, started);
+            return values;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private byte[] writeJson(List<String> values) throws IOException {
+        long started = metrics.start();
+        byte[] json = listWriter.writeValueAsBytes(values);
+        metrics.stage(TokenisationMetrics.Stage.SERIALISE, started);
+        return json;
+    }
+
+    private static void writeBatch(JsonGenerator out, List<String> batch,
+                                   Function<List<String>, List<String>> operation) throws IOException {
+        List<String> present = new ArrayList<>(batch.size());
+        for (String value : batch) {
+            if (value != null) {
+                present.add(value);
+            }
+        }
+        List<String> results = present.isEmpty() ? List.of() : operation.apply(present);
+
+        int next = 0;
+        for (String value : batch) {
+            if (value == null) {
+                out.writeNull();
+            } else {
+                out.writeString(results.get(next++));
+            }
+            out.writeRaw('\n');
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,33 @@
+package com.anz.tokenisation.controller;
+
+import com.anz.tokenisation.service.VaultSnapshots;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Actuator endpoint that exports the vault to the configured snapshot path: POST /actuator/vaultsnapshot.
+ * Not exposed over HTTP unless added to management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "vaultsnapshot")
+public class VaultSnapshotEndpoint {
+
+    private final VaultSnapshots vaultSnapshots;
+
+    public VaultSnapshotEndpoint(VaultSnapshots vaultSnapshots) {
+        this.vaultSnapshots = vaultSnapshots;
+    }
+
+    @WriteOperation
+    public Map<String, Object> export() throws IOException {
+        long started = System.currentTimeMillis();
+        long mappings = vaultSnapshots.exportSnapshot();
+        return Map.of("path", vaultSnapshots.getPath().toString(),
+                "mappings", mappings,
+                "millis", System.currentTimeMillis() - started);
+    }
+}
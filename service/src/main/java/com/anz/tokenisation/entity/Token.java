@@ -0,0 +1,75 @@
+package com.anz.tokenisation.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "tokens")
+public class Token {
+
+    public static final String ID_SEQUENCE = "token_id_seq";
+    // Ids per sequence call, matches hibernate.jdbc.batch_size so a batch costs one sequence round trip.
+    public static final int ID_ALLOCATION_SIZE = 500;
+
+    // Pooled sequence instead of IDENTITY: ids are known before the INSERT, so inserts can be JDBC batched.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "token_id")
+    @SequenceGenerator(name = "token_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(unique = true, nullable = false, length = 32)
+    private String token;
+
+    @Column(nullable = false, length = 255)
+    private String accountNumber;
+
+    // Keyed 16 byte hash of the account number. Unique index: one token per account, and lookups by account
+    // compare fixed width binary keys instead of scanning account numbers.
+    @Column(unique = true, nullable = false, length = 16)
+    private byte[] accountHash;
+
+    public Token() {
+    }
+
+    public Token(String token, String accountNumber) {
+        this.token = token;
+        this.accountNumber = accountNumber;
+    }
+
+    public Token(String token, String accountNumber, byte[] accountHash) {
+        this.token = token;
+        this.accountNumber = accountNumber;
+        this.accountHash = accountHash;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public byte[] getAccountHash() {
+        return accountHash;
+    }
+
+    public void setAccountHash(byte[] accountHash) {
+        this.accountHash = accountHash;
+    }
+}
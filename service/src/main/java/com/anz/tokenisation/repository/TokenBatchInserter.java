@@ -0,0 +1,79 @@
+package com.anz.tokenisation.repository;
+
+import com.anz.tokenisation.entity.Token;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bulk insert path for new tokens: plain JDBC batches, no persistence context, no per-row id round trip.
+ * Ids come from the entity's pooled sequence, one sequence call per {@value Token#ID_ALLOCATION_SIZE} ids,
+ * using the same block layout as Hibernate's pooled optimizer. Each call is its own transaction (REQUIRES_NEW),
+ * so a unique index violation rolls back the whole batch without touching a caller's transaction.
+ */
+@Repository
+public class TokenBatchInserter {
+
+    private static final String INSERT =
+            "insert into tokens (id, token, account_number, account_hash) values (?, ?, ?, ?)";
+    private static final int JDBC_BATCH_SIZE = Token.ID_ALLOCATION_SIZE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String nextIdBlock;
+
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long lastId = -1;
+
+    public TokenBatchInserter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nextIdBlock = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(Token.ID_SEQUENCE);
+    }
+
+    /**
+     * Insert all tokens in one transaction, as JDBC batches. Assigns their ids.
+     * Throws DataIntegrityViolationException (nothing inserted) if a token or account hash already exists.
+     */
+    public void insertAll(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        assignIds(tokens);
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT, tokens, JDBC_BATCH_SIZE, (statement, token) -> {
+                    statement.setLong(1, token.getId());
+                    statement.setString(2, token.getToken());
+                    statement.setString(3, token.getAccountNumber());
+                    statement.setBytes(4, token.getAccountHash());
+                }));
+    }
+
+    private void assignIds(List<Token> tokens) {
+        idLock.lock();
+        try {
+            for (Token token : tokens) {
+                if (nextId > lastId) {
+                    // Sequence value v owns the ids (v - allocation size, v].
+                    long hi = jdbcTemplate.queryForObject(nextIdBlock, Long.class);
+                    nextId = Math.max(1, hi - Token.ID_ALLOCATION_SIZE + 1);
+                    lastId = hi;
+                }
+                token.setId(nextId++);
+            }
+        } finally {
+            idLock.unlock();
+        }
+    }
+}
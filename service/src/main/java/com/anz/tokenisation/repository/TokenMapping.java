@@ -0,0 +1,8 @@
+package com.anz.tokenisation.repository;
+
+/**
+ * The two columns a lookup needs, read with a constructor expression instead of loading Token entities:
+ * no persistence context entry, no dirty checking snapshot, no proxy.
+ */
+public record TokenMapping(String accountNumber, String token) {
+}
@@ -0,0 +1,46 @@
+package com.anz.tokenisation.repository;
+
+import com.anz.tokenisation.entity.Token;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+// Database Access Layer.
+@Repository
+public interface TokenRepository extends JpaRepository<Token, Long> {
+
+    // Lookups on the request path read projections, see TokenMapping.
+    @Query("select new com.anz.tokenisation.repository.TokenMapping(t.accountNumber, t.token) "
+            + "from Token t where t.accountHash in :accountHashes")
+    List<TokenMapping> findMappingsByAccountHashIn(@Param("accountHashes") Collection<byte[]> accountHashes);
+
+    @Query("select new com.anz.tokenisation.repository.TokenMapping(t.accountNumber, t.token) "
+            + "from Token t where t.token in :tokens")
+    List<TokenMapping> findMappingsByTokenIn(@Param("tokens") Collection<String> tokens);
+
+    @Query("select t.token from Token t where t.token in :tokens")
+    List<String> findTokensByTokenIn(@Param("tokens") Collection<String> tokens);
+
+    @Query("select t.token from Token t where t.accountHash = :accountHash")
+    Optional<String> findTokenByAccountHash(@Param("accountHash") byte[] accountHash);
+
+    // Scalar projection, so streamed rows never enter the persistence context.
+    @Query("select t.accountNumber, t.token from Token t")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamAllMappings();
+
+    // Same in token order, read along the unique token index.
+    @Query("select t.accountNumber, t.token from Token t order by t.token")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamAllMappingsByToken();
+}
@@ -0,0 +1,65 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks keyed by account number hash.
+ * Requests creating tokens for overlapping accounts take the same stripes to reserve them one after the other,
+ * requests for unrelated accounts almost always take different stripes and run in parallel. Stripes are held
+ * for in-memory checks only, never across a store call.
+ */
+@Component
+public class AccountLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks(TokenisationProperties properties) {
+        int count = stripeCount(properties);
+        this.stripes = new ReentrantLock[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock the stripes of all given accounts. Stripes are always taken in ascending order, so two
+     * requests with overlapping accounts can't deadlock. Pass the result to {@link #unlock(BitSet)}.
+     */
+    public BitSet lock(Collection<String> accountNumbers) {
+        BitSet held = new BitSet(stripes.length);
+        for (String accountNumber : accountNumbers) {
+            held.set(stripe(accountNumber));
+        }
+        for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+            stripes[i].lock();
+        }
+        return held;
+    }
+
+    public void unlock(BitSet held) {
+        for (int i = held.previousSetBit(stripes.length - 1); i >= 0; i = held.previousSetBit(i - 1)) {
+            stripes[i].unlock();
+        }
+    }
+
+    private int stripe(String accountNumber) {
+        return stripe(accountNumber, mask);
+    }
+
+    static int stripeCount(TokenisationProperties properties) {
+        return Integer.highestOneBit(Math.max(1, properties.getLocks().getStripes()) * 2 - 1);
+    }
+
+    static int stripe(String accountNumber, int mask) {
+        int hash = accountNumber.hashCode();
+        // Spread the high bits, the same way HashMap does.
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
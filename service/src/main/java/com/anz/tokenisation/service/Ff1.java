@@ -0,0 +1,196 @@
+package com.anz.tokenisation.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * NIST SP 800-38G FF1 format-preserving encryption over decimal digits, with AES as the round function.
+ * Restricted to what tokenising account numbers needs: radix 10, a fixed tweak and 6 to 32 digits, so both
+ * halves fit a long and a round is long arithmetic plus one AES block. The part of the CBC-MAC that doesn't
+ * change between rounds (P, the tweak and its padding) is chained once per length at construction.
+ * Instances are immutable; the cipher state and scratch buffers live in a {@link Worker} per thread.
+ */
+final class Ff1 {
+
+    // radix^minlen >= 1,000,000 (SP 800-38G Rev. 1).
+    static final int MIN_DIGITS = 6;
+    // Halves of at most 16 digits keep (value * 256 + byte) within a long while reducing the round output.
+    static final int MAX_DIGITS = 32;
+
+    private static final int BLOCK = 16;
+    private static final int ROUNDS = 10;
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS / 2 + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final SecretKeySpec key;
+    // Per digit count: CBC-MAC state after P and every block of Q but the last, and the last block's template.
+    private final byte[][] chained = new byte[MAX_DIGITS + 1][];
+    private final byte[][] lastBlocks = new byte[MAX_DIGITS + 1][];
+
+    /**
+     * @param key   AES key, 16, 24 or 32 bytes
+     * @param tweak public tweak shared by every value, may be empty
+     */
+    Ff1(byte[] key, byte[] tweak) {
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("FF1 key must be 16, 24 or 32 bytes");
+        }
+        this.key = new SecretKeySpec(key, "AES");
+        Cipher cipher = newCipher();
+        for (int n = MIN_DIGITS; n <= MAX_DIGITS; n++) {
+            int u = n / 2;
+            int b = numBytes(n - u);
+            byte[] p = {1, 2, 1, 0, 0, 10, 10, (byte) u,
+                    (byte) (n >>> 24), (byte) (n >>> 16), (byte) (n >>> 8), (byte) n,
+                    (byte) (tweak.length >>> 24), (byte) (tweak.length >>> 16), (byte) (tweak.length >>> 8),
+                    (byte) tweak.length};
+            // Q = T || 0^((-t-b-1) mod 16) || [i] || NUM(B), a whole number of blocks.
+            byte[] q = new byte[tweak.length + Math.floorMod(-tweak.length - b - 1, BLOCK) + 1 + b];
+            System.arraycopy(tweak, 0, q, 0, tweak.length);
+
+            byte[] state = new byte[BLOCK];
+            aes(cipher, p, state);
+            for (int offset = 0; offset < q.length - BLOCK; offset += BLOCK) {
+                for (int i = 0; i < BLOCK; i++) {
+                    state[i] ^= q[offset + i];
+                }
+                aes(cipher, state, state);
+            }
+            chained[n] = state;
+            lastBlocks[n] = Arrays.copyOfRange(q, q.length - BLOCK, q.length);
+        }
+    }
+
+    Worker newWorker() {
+        return new Worker(newCipher());
+    }
+
+    private Cipher newCipher() {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES is not available", e);
+        }
+    }
+
+    /**
+     * Bytes that hold any v digit number: ceil(ceil(v * log2(10)) / 8).
+     */
+    static int numBytes(int digits) {
+        return ((int) Math.ceil(digits * LOG2_10) + 7) / 8;
+    }
+
+    private static void aes(Cipher cipher, byte[] in, byte[] out) {
+        try {
+            cipher.doFinal(in, 0, BLOCK, out, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES block encryption failed", e);
+        }
+    }
+
+    /**
+     * Cipher and scratch block for one thread at a time. Encrypts and decrypts digit runs in place.
+     */
+    final class Worker {
+
+        private final Cipher cipher;
+        private final byte[] block = new byte[BLOCK];
+
+        private Worker(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        /**
+         * Encrypt digits[offset, offset + length) in place, each element a value 0 to 9.
+         */
+        void encrypt(byte[] digits, int offset, int length) {
+            int u = checkLength(length) / 2;
+            int v = length - u;
+            long a = num(digits, offset, u);
+            long b = num(digits, offset + u, v);
+            for (int i = 0; i < ROUNDS; i++) {
+                int m = (i & 1) == 0 ? u : v;
+                long c = (a + round(length, i, b, m)) % POWERS_OF_TEN[m];
+                a = b;
+                b = c;
+            }
+            str(a, digits, offset, u);
+            str(b, digits, offset + u, v);
+        }
+
+        /**
+         * Reverse of {@link #encrypt}.
+         */
+        void decrypt(byte[] digits, int offset, int length) {
+            int u = checkLength(length) / 2;
+            int v = length - u;
+            long a = num(digits, offset, u);
+            long b = num(digits, offset + u, v);
+            for (int i = ROUNDS - 1; i >= 0; i--) {
+                int m = (i & 1) == 0 ? u : v;
+                long c = Math.floorMod(b - round(length, i, a, m), POWERS_OF_TEN[m]);
+                b = a;
+                a = c;
+            }
+            str(a, digits, offset, u);
+            str(b, digits, offset + u, v);
+        }
+
+        /**
+         * y mod 10^m for round i: the last CBC-MAC block carries [i] and NUM(half), y is the first d bytes.
+         */
+        private long round(int length, int i, long half, int m) {
+            int b = numBytes(length - length / 2);
+            int d = 4 * ((b + 3) / 4) + 4;
+            byte[] last = lastBlocks[length];
+            byte[] state = chained[length];
+            for (int j = 0; j < BLOCK - b - 1; j++) {
+                block[j] = (byte) (state[j] ^ last[j]);
+            }
+            block[BLOCK - b - 1] = (byte) (state[BLOCK - b - 1] ^ i);
+            for (int j = BLOCK - 1; j >= BLOCK - b; j--, half >>>= 8) {
+                block[j] = (byte) (state[j] ^ half);
+            }
+            aes(cipher, block, block);
+
+            long modulus = POWERS_OF_TEN[m];
+            long y = 0;
+            for (int j = 0; j < d; j++) {
+                y = (y * 256 + (block[j] & 0xFF)) % modulus;
+            }
+            return y;
+        }
+    }
+
+    private static int checkLength(int length) {
+        if (length < MIN_DIGITS || length > MAX_DIGITS) {
+            throw new IllegalArgumentException("FF1 needs " + MIN_DIGITS + " to " + MAX_DIGITS + " digits");
+        }
+        return length;
+    }
+
+    private static long num(byte[] digits, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = value * 10 + digits[i];
+        }
+        return value;
+    }
+
+    private static void str(long value, byte[] digits, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--, value /= 10) {
+            digits[i] = (byte) (value % 10);
+        }
+    }
+}
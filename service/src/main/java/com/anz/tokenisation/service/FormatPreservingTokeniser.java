@@ -0,0 +1,242 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stateless tokens for the configured account ranges: the digits between the preserved leading and trailing
+ * ones are FF1 encrypted, separators stay where they are, so a token has the length and character set of its
+ * account and detokenise is a decryption. No cache, filter or store is involved, and there is nothing to look
+ * up: any well formed value in a range detokenises to some account number.
+ * With Luhn on, encryption cycle walks (encrypts again) until the token's Luhn check matches the account's,
+ * decryption walks back the same way. Work is spread over striped FF1 workers like the token generator.
+ */
+@Component
+public class FormatPreservingTokeniser {
+
+    private static final Logger log = LoggerFactory.getLogger(FormatPreservingTokeniser.class);
+
+    // Only for local runs and tests, production configures tokenisation.format-preserving.secret.
+    private static final byte[] DEVELOPMENT_KEY = "anz-tokenisation-development-key".getBytes(StandardCharsets.US_ASCII);
+    // Longer values aren't account numbers, they go to the vault without a look at every character.
+    private static final int MAX_LENGTH = 64;
+
+    private final boolean enabled;
+    private final String[] prefixes;
+    private final int preserveLeading;
+    private final int preserveTrailing;
+    private final boolean luhn;
+    private final Stripe[] stripes;
+
+    public FormatPreservingTokeniser(TokenisationProperties properties) {
+        TokenisationProperties.FormatPreserving settings = properties.getFormatPreserving();
+        this.enabled = settings.isEnabled();
+        this.prefixes = settings.getPrefixes().toArray(String[]::new);
+        this.preserveLeading = settings.getPreserveLeading();
+        this.preserveTrailing = settings.getPreserveTrailing();
+        this.luhn = settings.isLuhn();
+        for (String prefix : prefixes) {
+            if (!prefix.chars().allMatch(c -> c >= '0' && c <= '9') || prefix.length() > preserveLeading) {
+                throw new IllegalArgumentException("tokenisation.format-preserving.prefixes must be digits, at most "
+                        + "preserve-leading (" + preserveLeading + ") long: " + prefix);
+            }
+        }
+
+        if (!enabled) {
+            this.stripes = new Stripe[0];
+            return;
+        }
+        Ff1 ff1 = new Ff1(key(settings.getSecret()), Base64.getDecoder().decode(settings.getTweak()));
+        this.stripes = new Stripe[2 * Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(ff1.newWorker());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True if any of the account numbers is in a format-preserving range, so its token is not a vault token.
+     */
+    public boolean anyInRange(List<String> accountNumbers) {
+        if (!enabled) {
+            return false;
+        }
+        byte[] digits = new byte[MAX_LENGTH];
+        for (String accountNumber : accountNumbers) {
+            if (parse(accountNumber, digits) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tokenise the account numbers in format-preserving ranges into tokensByAccount.
+     * Returns the account numbers left for the vault, in order (the given list when there are none here).
+     */
+    public List<String> tokenise(List<String> accountNumbers, Map<String, String> tokensByAccount) {
+        return apply(accountNumbers, tokensByAccount, true);
+    }
+
+    /**
+     * Detokenise the tokens in format-preserving ranges into accountsByToken.
+     * Returns the tokens left for the vault, in order (the given list when there are none here).
+     */
+    public List<String> detokenise(List<String> tokens, Map<String, String> accountsByToken) {
+        return apply(tokens, accountsByToken, false);
+    }
+
+    private List<String> apply(List<String> values, Map<String, String> results, boolean encrypt) {
+        if (!enabled) {
+            return values;
+        }
+        List<String> rest = new ArrayList<>();
+        Stripe stripe = acquire();
+        try {
+            for (String value : values) {
+                String result = stripe.transform(value, encrypt);
+                if (result == null) {
+                    rest.add(value);
+                } else {
+                    results.put(value, result);
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return rest.size() == values.size() ? values : rest;
+    }
+
+    /**
+     * Take the first free stripe, starting from one derived from the thread, and wait only if all are busy.
+     */
+    private Stripe acquire() {
+        int start = (int) (Thread.currentThread().threadId() % stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(start + i) % stripes.length];
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        Stripe stripe = stripes[start];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    private static byte[] key(String secret) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("No tokenisation.format-preserving.secret configured, format-preserving tokens use the development key");
+            return DEVELOPMENT_KEY;
+        }
+        return Base64.getDecoder().decode(secret);
+    }
+
+    /**
+     * The digits of a value in a format-preserving range into digits, returning their count; -1 for any other value.
+     */
+    private int parse(String value, byte[] digits) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return -1;
+        }
+        int count = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits[count++] = (byte) (c - '0');
+            } else if (c != '-' && c != ' ') {
+                return -1;
+            }
+        }
+        int length = count - preserveLeading - preserveTrailing;
+        return length < Ff1.MIN_DIGITS || length > Ff1.MAX_DIGITS || !inRange(digits, count) ? -1 : count;
+    }
+
+    private boolean inRange(byte[] digits, int count) {
+        if (prefixes.length == 0) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (prefix.length() <= count && startsWith(digits, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] digits, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (digits[i] != prefix.charAt(i) - '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Luhn (mod 10) check over all digits, the last one being the check digit.
+     */
+    static boolean luhnValid(byte[] digits, int count) {
+        int sum = 0;
+        for (int i = count - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits[i];
+            if ((position & 1) == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Ff1.Worker worker;
+        private final byte[] digits = new byte[MAX_LENGTH];
+        private final char[] chars = new char[MAX_LENGTH];
+
+        Stripe(Ff1.Worker worker) {
+            this.worker = worker;
+        }
+
+        /**
+         * The token of an account or the account of a token, null for a value outside the format-preserving ranges.
+         */
+        String transform(String value, boolean encrypt) {
+            int count = parse(value, digits);
+            if (count < 0) {
+                return null;
+            }
+            int length = count - preserveLeading - preserveTrailing;
+
+            boolean valid = luhn && luhnValid(digits, count);
+            do {
+                if (encrypt) {
+                    worker.encrypt(digits, preserveLeading, length);
+                } else {
+                    worker.decrypt(digits, preserveLeading, length);
+                }
+            } while (luhn && luhnValid(digits, count) != valid);
+
+            for (int i = 0, digit = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                chars[i] = c >= '0' && c <= '9' ? (char) ('0' + digits[digit++]) : c;
+            }
+            return new String(chars, 0, value.length());
+        }
+    }
+}
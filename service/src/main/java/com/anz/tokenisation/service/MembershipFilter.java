@@ -0,0 +1,171 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.TokenStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory membership filters over issued tokens and tokenised account numbers.
+ * A negative answer is definite and lets the service skip the store; a positive answer only means "maybe".
+ * Built at startup from the store, or loaded from a snapshot when it still matches the store's mapping count.
+ */
+@Component
+public class MembershipFilter implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MembershipFilter.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x544B4246; // "TKBF".
+
+    private final boolean enabled;
+    private final Path snapshotPath;
+    private final TokenStore tokenStore;
+    private ScalableBloomFilter tokens;
+    private ScalableBloomFilter accountNumbers;
+
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder maybe = new LongAdder();
+
+    public MembershipFilter(TokenStore tokenStore, TokenisationProperties properties) {
+        TokenisationProperties.Filter filter = properties.getFilter();
+        this.enabled = filter.isEnabled();
+        this.tokenStore = tokenStore;
+        this.snapshotPath = filter.getSnapshotPath();
+        if (!enabled) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long storeCount = tokenStore.count();
+        if (!loadSnapshot(storeCount)) {
+            long capacity = Math.max(filter.getExpectedInsertions(), storeCount * 2);
+            this.tokens = new ScalableBloomFilter(capacity, filter.getFalsePositiveRate());
+            this.accountNumbers = new ScalableBloomFilter(capacity, filter.getFalsePositiveRate());
+            tokenStore.forEach(this::add);
+        }
+        log.info("Membership filters ready for {} mappings ({} bytes) in {} ms", storeCount,
+                tokens.bytes() + accountNumbers.bytes(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * The filters only see what this node wrote. On a database other nodes write as well, tokens they issue
+     * are "definitely unknown" here and detokenise answers null for them, so warn unless the database is
+     * embedded (and so private to this process).
+     */
+    @Autowired(required = false)
+    void checkDatabaseNotShared(DataSource dataSource, TokenisationProperties properties) {
+        TokenisationProperties.Store.Type type = properties.getStore().getType();
+        boolean usesDatabase = type == TokenisationProperties.Store.Type.JPA
+                || type == TokenisationProperties.Store.Type.TIERED;
+        if (enabled && usesDatabase && !EmbeddedDatabaseConnection.isEmbedded(dataSource)) {
+            log.warn("Membership filter enabled on a shared database: with several nodes, detokenise answers null "
+                    + "for tokens other nodes issued. Set tokenisation.filter.enabled=false for a multi-node "
+                    + "deployment.");
+        }
+    }
+
+    /**
+     * False only if the token has definitely never been issued.
+     */
+    public boolean mightContainToken(String token) {
+        return record(!enabled || tokens.mightContain(token));
+    }
+
+    /**
+     * False only if the account number has definitely never been tokenised.
+     */
+    public boolean mightContainAccountNumber(String accountNumber) {
+        return record(!enabled || accountNumbers.mightContain(accountNumber));
+    }
+
+    public void add(String accountNumber, String token) {
+        if (enabled) {
+            accountNumbers.add(accountNumber);
+            tokens.add(token);
+        }
+    }
+
+    /**
+     * Write both filters to the snapshot path together with the store count they cover.
+     */
+    public void snapshot() throws IOException {
+        if (!enabled || snapshotPath == null) {
+            return;
+        }
+        Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        if (snapshotPath.getParent() != null) {
+            Files.createDirectories(snapshotPath.getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(tokenStore.count());
+            tokens.writeTo(out);
+            accountNumbers.writeTo(out);
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        snapshot();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tokenisation.filter.checks", skipped, LongAdder::sum)
+                .tag("result", "definitely-absent")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.filter.checks", maybe, LongAdder::sum)
+                .tag("result", "maybe-present")
+                .register(registry);
+    }
+
+    /**
+     * Mappings are never deleted, so a snapshot is complete exactly when it covers as many mappings as the store holds.
+     */
+    private boolean loadSnapshot(long storeCount) {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readLong() != storeCount) {
+                log.info("Membership filter snapshot is stale, rebuilding from the store");
+                return false;
+            }
+            this.tokens = ScalableBloomFilter.readFrom(in);
+            this.accountNumbers = ScalableBloomFilter.readFrom(in);
+            return true;
+        } catch (IOException e) {
+            log.warn("Membership filter snapshot could not be read, rebuilding from the store", e);
+            return false;
+        }
+    }
+
+    private boolean record(boolean mightContain) {
+        if (mightContain) {
+            maybe.increment();
+        } else {
+            skipped.increment();
+        }
+        return mightContain;
+    }
+}
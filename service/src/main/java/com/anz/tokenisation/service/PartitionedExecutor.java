@@ -0,0 +1,98 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs a batch pipeline over hash partitions of the batch on a bounded pool shared by all requests.
+ * Values are partitioned by their {@link AccountLocks} stripe, so repeats of an account land in the same partition
+ * and keep their batch order inside it, and no two partitions of a batch ever take the same lock stripe. Batches below the threshold run whole on the calling thread;
+ * above it, the calling thread takes the last partition itself instead of waiting idle.
+ */
+@Component
+public class PartitionedExecutor implements DisposableBean {
+
+    private final int threshold;
+    private final int partitions;
+    private final int stripeMask;
+    private final ExecutorService executor;
+
+    public PartitionedExecutor(TokenisationProperties properties) {
+        TokenisationProperties.Parallel parallel = properties.getParallel();
+        this.threshold = parallel.getThreshold();
+        this.partitions = parallel.getPartitions() > 0
+                ? parallel.getPartitions()
+                : Runtime.getRuntime().availableProcessors();
+        this.stripeMask = AccountLocks.stripeCount(properties) - 1;
+        // Threads start on first use, a service that never sees a large batch never creates one.
+        this.executor = Executors.newFixedThreadPool(partitions,
+                Thread.ofPlatform().name("tokenise-partition-", 0).daemon().factory());
+    }
+
+    /**
+     * Apply task to each partition of values and return the results, one per partition that has values.
+     * A batch that is too small to split gives a single result computed on the calling thread.
+     */
+    public <R> List<R> map(List<String> values, Function<List<String>, R> task) {
+        if (values.size() < threshold || partitions == 1) {
+            return List.of(task.apply(values));
+        }
+
+        List<List<String>> parts = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            parts.add(new ArrayList<>(values.size() / partitions + 1));
+        }
+        for (String value : values) {
+            parts.get(partition(value)).add(value);
+        }
+        parts.removeIf(List::isEmpty);
+
+        List<Future<R>> futures = new ArrayList<>(parts.size() - 1);
+        for (int i = 0; i < parts.size() - 1; i++) {
+            List<String> part = parts.get(i);
+            futures.add(executor.submit(() -> task.apply(part)));
+        }
+        List<R> results = new ArrayList<>(parts.size());
+        results.add(task.apply(parts.get(parts.size() - 1)));
+        for (Future<R> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private int partition(String value) {
+        // Whole stripes per partition: stripe i belongs to partition i % partitions.
+        return AccountLocks.stripe(Objects.requireNonNullElse(value, ""), stripeMask) % partitions;
+    }
+
+    private static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a batch partition", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Batch partition failed", e.getCause());
+        }
+    }
+}
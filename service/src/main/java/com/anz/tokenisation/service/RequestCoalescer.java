@@ -0,0 +1,345 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces small tokenise and detokenise requests from concurrent callers into combined service calls.
+ * Each operation has a bounded queue and a dispatcher thread: the first request opens a window, requests that
+ * arrive before it closes join it (as long as the window stays within max-batch values), the distinct values go
+ * to the service in one call and every caller gets its own slice back, in its own order. Closed windows run on a
+ * pool of concurrency threads; while all of them are busy the next window fills, so the batches grow with the load.
+ * Latency stays bounded: requests of max-batch values or more, requests finding the queue full and requests
+ * not picked up within max-wait run alone on the caller's thread. When a combined call fails, its requests are
+ * run one by one so an error reaches only the caller that caused it.
+ */
+@Component
+public class RequestCoalescer implements MeterBinder, DisposableBean {
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final boolean enabled;
+    private final Lane tokenise;
+    private final Lane detokenise;
+
+    public RequestCoalescer(TokenisationProperties properties, TokenisationService tokenisationService) {
+        TokenisationProperties.Coalesce coalesce = properties.getCoalesce();
+        this.enabled = coalesce.isEnabled();
+        this.tokenise = new Lane("tokenise", tokenisationService::tokenise, coalesce);
+        this.detokenise = new Lane("detokenise", tokenisationService::detokenise, coalesce);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Same contract as {@link TokenisationService#tokenise}, possibly answered by a call shared with other callers.
+     */
+    public List<String> tokenise(List<String> accountNumbers) {
+        return tokenise.submit(accountNumbers);
+    }
+
+    /**
+     * Same contract as {@link TokenisationService#detokenise}, possibly answered by a call shared with other callers.
+     */
+    public List<String> detokenise(List<String> tokens) {
+        return detokenise.submit(tokens);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        tokenise.bindTo(registry);
+        detokenise.bindTo(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        tokenise.stop();
+        detokenise.stop();
+    }
+
+    private final class Lane {
+
+        private final String operationName;
+        private final Function<List<String>, List<String>> operation;
+        private final long windowNanos;
+        private final int maxBatch;
+        private final long maxWaitNanos;
+        private final LinkedBlockingQueue<Request> queue;
+        private final Thread dispatcher;
+        private final ExecutorService windows;
+        // One per window thread, taken before a window opens so a closed window never waits for a thread.
+        private final Semaphore idle;
+        private volatile boolean running;
+
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder bypassed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+
+        Lane(String operationName, Function<List<String>, List<String>> operation,
+             TokenisationProperties.Coalesce coalesce) {
+            this.operationName = operationName;
+            this.operation = operation;
+            this.windowNanos = coalesce.getWindow().toNanos();
+            this.maxBatch = coalesce.getMaxBatch();
+            this.maxWaitNanos = coalesce.getMaxWait().toNanos();
+            this.queue = new LinkedBlockingQueue<>(coalesce.getQueueDepth());
+            int concurrency = coalesce.getConcurrency() > 0
+                    ? coalesce.getConcurrency()
+                    : Runtime.getRuntime().availableProcessors();
+            this.idle = new Semaphore(concurrency);
+            if (enabled) {
+                this.running = true;
+                this.windows = Executors.newFixedThreadPool(concurrency,
+                        Thread.ofPlatform().name(operationName + "-coalesced-", 0).daemon().factory());
+                this.dispatcher = Thread.ofPlatform().name(operationName + "-coalescer").daemon().start(this::dispatch);
+            } else {
+                this.windows = null;
+                this.dispatcher = null;
+            }
+        }
+
+        List<String> submit(List<String> values) {
+            if (!enabled) {
+                return operation.apply(values);
+            }
+            Request request = new Request(values);
+            if (values.size() >= maxBatch || !queue.offer(request)) {
+                bypassed.increment();
+                return operation.apply(values);
+            }
+            try {
+                return request.result.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (request.claim()) {
+                    // Still queued behind a backlog; the dispatcher skips it now that it's claimed here.
+                    timedOut.increment();
+                    return operation.apply(values);
+                }
+                // Already part of a combined call, its result is on the way.
+                return await(request.result);
+            } catch (InterruptedException | ExecutionException e) {
+                return rethrow(e);
+            }
+        }
+
+        private void dispatch() {
+            // A request that didn't fit the last window opens the next one.
+            Request carried = null;
+            while (running) {
+                try {
+                    if (!idle.tryAcquire(POLL_NANOS, TimeUnit.NANOSECONDS)) {
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                Request first = carried;
+                carried = null;
+                if (first == null) {
+                    try {
+                        first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        first = null;
+                    }
+                }
+                if (first == null || !first.claim()) {
+                    idle.release();
+                    continue;
+                }
+                List<Request> batch = new ArrayList<>();
+                batch.add(first);
+                int values = first.values.size();
+                // The window is measured from the first request's arrival, time spent queued counts against it.
+                long deadline = first.arrived + windowNanos;
+                while (values < maxBatch) {
+                    Request next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        try {
+                            next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                        if (next == null) {
+                            break;
+                        }
+                    }
+                    if (values + next.values.size() > maxBatch) {
+                        carried = next;
+                        break;
+                    }
+                    if (next.claim()) {
+                        batch.add(next);
+                        values += next.values.size();
+                    }
+                }
+                int windowValues = values;
+                windows.execute(() -> {
+                    try {
+                        run(batch, windowValues);
+                    } finally {
+                        idle.release();
+                    }
+                });
+            }
+
+            // Shutting down: answer whatever is still queued rather than leave callers to time out.
+            if (carried != null && carried.claim()) {
+                runAlone(carried);
+            }
+            Request request;
+            while ((request = queue.poll()) != null) {
+                if (request.claim()) {
+                    runAlone(request);
+                }
+            }
+        }
+
+        /**
+         * One service call over the distinct values of the batch, then each request's slice from the results.
+         */
+        private void run(List<Request> batch, int values) {
+            coalesced.add(batch.size());
+            batches.increment();
+            if (batch.size() == 1) {
+                runAlone(batch.get(0));
+                return;
+            }
+
+            LinkedHashSet<String> distinct = new LinkedHashSet<>(values * 2);
+            for (Request request : batch) {
+                distinct.addAll(request.values);
+            }
+            List<String> keys = new ArrayList<>(distinct);
+            duplicates.add(values - keys.size());
+            List<String> results;
+            try {
+                results = operation.apply(keys);
+            } catch (RuntimeException e) {
+                for (Request request : batch) {
+                    runAlone(request);
+                }
+                return;
+            }
+
+            Map<String, String> resultsByValue = HashMap.newHashMap(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                resultsByValue.put(keys.get(i), results.get(i));
+            }
+            for (Request request : batch) {
+                List<String> slice = new ArrayList<>(request.values.size());
+                for (String value : request.values) {
+                    slice.add(resultsByValue.get(value));
+                }
+                request.result.complete(slice);
+            }
+        }
+
+        private void runAlone(Request request) {
+            try {
+                request.result.complete(operation.apply(request.values));
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+
+        void bindTo(MeterRegistry registry) {
+            Gauge.builder("tokenisation.coalesce.queued", queue, LinkedBlockingQueue::size)
+                    .tag("operation", operationName)
+                    .register(registry);
+            requests(registry, coalesced, "coalesced", "Requests answered from a coalescing window");
+            requests(registry, bypassed, "bypassed", "Requests run alone because they were large or the queue was full");
+            requests(registry, timedOut, "timed-out", "Requests run alone after waiting max-wait to be picked up");
+            FunctionCounter.builder("tokenisation.coalesce.batches", batches, LongAdder::sum)
+                    .description("Service calls made for coalescing windows")
+                    .tag("operation", operationName)
+                    .register(registry);
+            FunctionCounter.builder("tokenisation.coalesce.duplicates", duplicates, LongAdder::sum)
+                    .description("Values dropped as repeats within a window")
+                    .tag("operation", operationName)
+                    .register(registry);
+        }
+
+        private void requests(MeterRegistry registry, LongAdder counter, String result, String description) {
+            FunctionCounter.builder("tokenisation.coalesce.requests", counter, LongAdder::sum)
+                    .description(description)
+                    .tag("operation", operationName)
+                    .tag("result", result)
+                    .register(registry);
+        }
+
+        void stop() throws InterruptedException {
+            if (dispatcher != null) {
+                running = false;
+                dispatcher.join(TimeUnit.MINUTES.toMillis(1));
+                windows.shutdown();
+                windows.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    private static final class Request {
+
+        private final List<String> values;
+        private final long arrived = System.nanoTime();
+        private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        // Taken by the dispatcher for a window, or by the caller after max-wait, never both.
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Request(List<String> values) {
+            this.values = values;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    private static List<String> await(CompletableFuture<List<String>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return rethrow(e);
+        }
+    }
+
+    private static List<String> rethrow(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a coalesced request", e);
+        }
+        if (e.getCause() instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        throw new IllegalStateException("Coalesced request failed", e.getCause());
+    }
+}
@@ -0,0 +1,188 @@
+package com.anz.tokenisation.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scalable Bloom filter over Strings (Almeida et al.).
+ * When the newest stage reaches its capacity a stage twice as large, with half the false positive rate,
+ * is added, so the overall false positive rate stays bounded however many values arrive.
+ * Adds and lookups are lock-free (CAS on the bit words); only adding a stage takes a lock.
+ */
+public class ScalableBloomFilter {
+
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final int GROWTH_FACTOR = 2;
+
+    private final double falsePositiveRate;
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile Stage[] stages;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = new Stage[] {new Stage(Math.max(64, initialCapacity), falsePositiveRate * (1 - TIGHTENING_RATIO))};
+    }
+
+    private ScalableBloomFilter(double falsePositiveRate, Stage[] stages) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = stages;
+    }
+
+    /**
+     * False means the value was definitely never added, true means it might have been.
+     */
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last.count.get() >= last.capacity) {
+            last = grow(current);
+        }
+        last.add(hash1, hash2);
+    }
+
+    /**
+     * Heap used by the bit arrays.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += (long) stage.bits.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        Stage[] current = stages;
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(current.length);
+        for (Stage stage : current) {
+            out.writeLong(stage.capacity);
+            out.writeLong(stage.count.get());
+            out.writeInt(stage.hashes);
+            out.writeInt(stage.bits.length());
+            for (int i = 0; i < stage.bits.length(); i++) {
+                out.writeLong(stage.bits.get(i));
+            }
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        double falsePositiveRate = in.readDouble();
+        Stage[] stages = new Stage[in.readInt()];
+        for (int s = 0; s < stages.length; s++) {
+            long capacity = in.readLong();
+            long count = in.readLong();
+            int hashes = in.readInt();
+            AtomicLongArray bits = new AtomicLongArray(in.readInt());
+            for (int i = 0; i < bits.length(); i++) {
+                bits.set(i, in.readLong());
+            }
+            stages[s] = new Stage(capacity, hashes, bits, count);
+        }
+        return new ScalableBloomFilter(falsePositiveRate, stages);
+    }
+
+    private Stage grow(Stage[] seen) {
+        growLock.lock();
+        try {
+            Stage[] current = stages;
+            Stage last = current[current.length - 1];
+            if (current == seen && last.count.get() >= last.capacity) {
+                double rate = falsePositiveRate * Math.pow(TIGHTENING_RATIO, current.length + 1);
+                Stage[] grown = new Stage[current.length + 1];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                grown[current.length] = new Stage(last.capacity * GROWTH_FACTOR, rate);
+                stages = grown;
+                return grown[current.length];
+            }
+            return last;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 finaliser.
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static final class Stage {
+
+        private final long capacity;
+        private final int hashes;
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final AtomicLong count;
+
+        Stage(long capacity, double falsePositiveRate) {
+            // Optimal sizing: m = -n ln(p) / (ln 2)^2 and k = (m / n) ln 2.
+            long bitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) / 64);
+            this.capacity = capacity;
+            this.hashes = Math.max(1, (int) Math.round((double) words * 64 / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.count = new AtomicLong();
+        }
+
+        Stage(long capacity, int hashes, AtomicLongArray bits, long count) {
+            this.capacity = capacity;
+            this.hashes = hashes;
+            this.bits = bits;
+            this.bitCount = (long) bits.length() * 64;
+            this.count = new AtomicLong(count);
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = bits.get(word);
+                while ((current & mask) == 0 && !bits.weakCompareAndSetVolatile(word, current, current | mask)) {
+                    current = bits.get(word);
+                }
+            }
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Two Way In-Process Cache (account -> token and token -> account).
+@Component
+public class TokenCache implements MeterBinder {
+
+    // Rough heap cost of a map entry plus two compact (Latin-1) Strings.
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Direction tokensByAccount;
+    private final Direction accountsByToken;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TokenCache(TokenisationProperties properties) {
+        TokenisationProperties.Cache cache = properties.getCache();
+        this.enabled = cache.isEnabled() && cache.getMaxSize().toBytes() > 0;
+        this.maxBytes = enabled ? cache.getMaxSize().toBytes() : 0;
+        // Split the budget evenly, each direction holds the same mappings.
+        long directionBytes = Math.max(1, maxBytes / 2);
+        if (cache.getEviction() == TokenisationProperties.Cache.Eviction.LRU) {
+            this.tokensByAccount = new LruDirection(directionBytes);
+            this.accountsByToken = new LruDirection(directionBytes);
+        } else {
+            this.tokensByAccount = new TinyLfuDirection(directionBytes);
+            this.accountsByToken = new TinyLfuDirection(directionBytes);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the cached token for an account number, or null on a miss.
+     */
+    public String getToken(String accountNumber) {
+        return record(enabled ? tokensByAccount.get(accountNumber) : null);
+    }
+
+    /**
+     * Return the cached account number for a token, or null on a miss.
+     */
+    public String getAccountNumber(String token) {
+        return record(enabled ? accountsByToken.get(token) : null);
+    }
+
+    /**
+     * Cache a mapping in both directions.
+     * Tokens never change once issued, so entries are never invalidated, only evicted.
+     */
+    public void put(String accountNumber, String token) {
+        if (!enabled) {
+            return;
+        }
+        tokensByAccount.put(accountNumber, token);
+        accountsByToken.put(token, accountNumber);
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(),
+                tokensByAccount.bytes() + accountsByToken.bytes(), maxBytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tokenisation.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.cache.evictions", evictions, LongAdder::sum)
+                .register(registry);
+        Gauge.builder("tokenisation.cache.size", this, cache -> cache.stats().estimatedBytes())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private String record(String value) {
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    static int weigh(String key, String value) {
+        return ENTRY_OVERHEAD_BYTES + 2 * STRING_OVERHEAD_BYTES + key.length() + value.length();
+    }
+
+    /**
+     * Hit, miss and eviction counters plus the estimated heap use of the cache.
+     */
+    public record CacheStats(long hits, long misses, long evictions, long estimatedBytes, long maxBytes) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private interface Direction {
+
+        String get(String key);
+
+        void put(String key, String value);
+
+        long bytes();
+    }
+
+    /**
+     * W-TinyLFU eviction backed by Caffeine with a byte weigher.
+     */
+    private final class TinyLfuDirection implements Direction {
+
+        private final Cache<String, String> cache;
+
+        TinyLfuDirection(long maxBytes) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(maxBytes)
+                    .weigher(TokenCache::weigh)
+                    .evictionListener((String key, String value, RemovalCause cause) -> evictions.increment())
+                    .build();
+        }
+
+        @Override
+        public String get(String key) {
+            return cache.getIfPresent(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public long bytes() {
+            return cache.policy().eviction()
+                    .map(eviction -> eviction.weightedSize().orElse(0L))
+                    .orElse(0L);
+        }
+    }
+
+    /**
+     * Least recently used eviction over an access ordered LinkedHashMap.
+     * Uses a ReentrantLock rather than synchronized so virtual threads don't pin.
+     */
+    private final class LruDirection implements Direction {
+
+        private final LinkedHashMap<String, String> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long maxBytes;
+        private long bytes;
+
+        LruDirection(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public String get(String key) {
+            lock.lock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void put(String key, String value) {
+            lock.lock();
+            try {
+                String previous = map.put(key, value);
+                if (previous != null) {
+                    bytes -= weigh(key, previous);
+                }
+                bytes += weigh(key, value);
+
+                Iterator<Map.Entry<String, String>> eldest = map.entrySet().iterator();
+                while (bytes > maxBytes && eldest.hasNext()) {
+                    Map.Entry<String, String> entry = eldest.next();
+                    bytes -= weigh(entry.getKey(), entry.getValue());
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public long bytes() {
+            lock.lock();
+            try {
+                return bytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
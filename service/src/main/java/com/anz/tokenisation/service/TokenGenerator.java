@@ -0,0 +1,152 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.TokenCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Generates random tokens without a shared SecureRandom.
+ * Work is spread over striped DRBG instances (a thread takes the first free stripe). Each stripe fills
+ * a buffer with randomness for thousands of tokens in one nextBytes call and encodes into a reusable
+ * scratch buffer, so generation allocates only the result Strings.
+ */
+@Component
+public class TokenGenerator {
+
+    public static final int TOKEN_LENGTH = TokenCodec.TOKEN_LENGTH;
+    public static final int RAW_TOKEN_BYTES = TokenCodec.RAW_TOKEN_BYTES;
+
+    // Tokens worth of randomness drawn per nextBytes call.
+    private static final int TOKENS_PER_FILL = 4096;
+
+    private static final Logger log = LoggerFactory.getLogger(TokenGenerator.class);
+    private static final AtomicBoolean RESEED_UNSUPPORTED_LOGGED = new AtomicBoolean();
+
+    private final Stripe[] stripes;
+    private final long reseedInterval;
+
+    @Autowired
+    public TokenGenerator(TokenisationProperties properties) {
+        this(properties, TokenGenerator::newDrbg);
+    }
+
+    TokenGenerator(TokenisationProperties properties, Supplier<SecureRandom> randoms) {
+        TokenisationProperties.Generator generator = properties.getGenerator();
+        int count = generator.getStripes() > 0
+                ? generator.getStripes()
+                : 2 * Runtime.getRuntime().availableProcessors();
+        this.reseedInterval = generator.getReseedInterval();
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(randoms.get());
+        }
+    }
+
+    /**
+     * Generate one random token.
+     */
+    public String generate() {
+        return generate(1).get(0);
+    }
+
+    /**
+     * Generate count random tokens (24 random bytes, 32 Base64 URL safe characters each).
+     */
+    public List<String> generate(int count) {
+        List<String> tokens = new ArrayList<>(count);
+        Stripe stripe = acquire();
+        try {
+            for (int i = 0; i < count; i++) {
+                tokens.add(stripe.next());
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return tokens;
+    }
+
+    /**
+     * Take the first free stripe, starting from one derived from the thread, and wait only if all are busy.
+     */
+    private Stripe acquire() {
+        int start = (int) (Thread.currentThread().threadId() % stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(start + i) % stripes.length];
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        Stripe stripe = stripes[start];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG",
+                    DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException e) {
+            // Fall back to the platform default, still a CSPRNG.
+            return new SecureRandom();
+        }
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random;
+        private final byte[] randomBytes = new byte[TOKENS_PER_FILL * RAW_TOKEN_BYTES];
+        private final byte[] encoded = new byte[TOKEN_LENGTH];
+        private int offset = randomBytes.length;
+        private long sinceReseed;
+        // Cleared if the instance can't reseed, e.g. the platform default taken when DRBG is unavailable.
+        private boolean reseedable = true;
+
+        Stripe(SecureRandom random) {
+            this.random = random;
+        }
+
+        String next() {
+            if (offset == randomBytes.length) {
+                refill();
+            }
+            // 24 bytes encode to exactly 32 characters, no padding.
+            String token = TokenCodec.encode(randomBytes, offset, encoded);
+            // Don't keep randomness of issued tokens around in the buffer.
+            Arrays.fill(randomBytes, offset, offset + RAW_TOKEN_BYTES, (byte) 0);
+            offset += RAW_TOKEN_BYTES;
+            return token;
+        }
+
+        private void refill() {
+            if (reseedable && reseedInterval > 0 && sinceReseed >= reseedInterval) {
+                try {
+                    random.reseed();
+                } catch (UnsupportedOperationException e) {
+                    reseedable = false;
+                    if (RESEED_UNSUPPORTED_LOGGED.compareAndSet(false, true)) {
+                        log.warn("{} SecureRandom can't reseed, tokens are generated without periodic reseeding",
+                                random.getAlgorithm());
+                    }
+                }
+                sinceReseed = 0;
+            }
+            random.nextBytes(randomBytes);
+            offset = 0;
+            sinceReseed += TOKENS_PER_FILL;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.TokenStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pool of tokens generated ahead of time, so new accounts don't wait for randomness or a collision check.
+ * A background producer generates tokens in batches, drops those the membership filter and store say are
+ * issued, and keeps the pool between the low water mark and its capacity. Requests take tokens from a bounded
+ * lock-free ring (one producer, any number of consumers, a sequence number per slot) and fall back to
+ * generating inline when the pool runs dry. Pooled tokens were unique when checked; the store's insert-or-fetch
+ * still settles the rare token issued elsewhere in between.
+ */
+@Component
+public class TokenPool implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenPool.class);
+
+    // Producer sleep while the pool is above the low water mark, consumers wake it earlier.
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FAILURE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final TokenGenerator tokenGenerator;
+    private final TokenStore tokenStore;
+    private final MembershipFilter membershipFilter;
+    private final int lowWaterMark;
+    private final int refillBatch;
+
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder starved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private final Thread producer;
+    private volatile boolean running;
+
+    public TokenPool(TokenisationProperties properties, TokenGenerator tokenGenerator, TokenStore tokenStore,
+                     MembershipFilter membershipFilter) {
+        TokenisationProperties.Pool pool = properties.getPool();
+        this.enabled = pool.isEnabled();
+        this.tokenGenerator = tokenGenerator;
+        this.tokenStore = tokenStore;
+        this.membershipFilter = membershipFilter;
+        int capacity = enabled ? Integer.highestOneBit(pool.getCapacity() * 2 - 1) : 1;
+        this.lowWaterMark = Math.min(pool.getLowWaterMark(), capacity - 1);
+        this.refillBatch = pool.getRefillBatch();
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+
+        if (enabled) {
+            this.running = true;
+            this.producer = Thread.ofPlatform().name("token-pool").daemon().start(this::produce);
+        } else {
+            this.producer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Take up to count pre-checked tokens. Fewer (possibly none) when the pool is short or disabled,
+     * the caller generates and checks the rest itself.
+     */
+    public List<String> take(int count) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>(Math.min(count, mask + 1));
+        while (tokens.size() < count) {
+            String token = poll();
+            if (token == null) {
+                starved.add(count - tokens.size());
+                break;
+            }
+            tokens.add(token);
+        }
+        taken.add(tokens.size());
+        if (size() <= lowWaterMark) {
+            LockSupport.unpark(producer);
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens currently pooled (a moment's view under concurrent takes).
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tokenisation.pool.size", this, TokenPool::size)
+                .register(registry);
+        FunctionCounter.builder("tokenisation.pool.tokens", taken, LongAdder::sum)
+                .tag("result", "taken")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.pool.tokens", starved, LongAdder::sum)
+                .description("Tokens requested from an empty pool and generated on the request path")
+                .tag("result", "starved")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.pool.rejected", rejected, LongAdder::sum)
+                .description("Generated tokens dropped by the producer as already issued")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (producer != null) {
+            running = false;
+            LockSupport.unpark(producer);
+            producer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void produce() {
+        while (running) {
+            if (size() > lowWaterMark) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                refill();
+            } catch (RuntimeException e) {
+                log.warn("Token pool refill failed, requests generate tokens inline until it recovers", e);
+                LockSupport.parkNanos(this, FAILURE_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Top the pool up to capacity in refillBatch steps, one collision check against the store per step.
+     */
+    private void refill() {
+        int free;
+        while (running && (free = mask + 1 - size()) > 0) {
+            List<String> candidates = tokenGenerator.generate(Math.min(refillBatch, free));
+            List<String> maybeIssued = new ArrayList<>();
+            for (String candidate : candidates) {
+                if (membershipFilter.mightContainToken(candidate)) {
+                    maybeIssued.add(candidate);
+                }
+            }
+            if (!maybeIssued.isEmpty()) {
+                int before = candidates.size();
+                candidates.removeAll(tokenStore.findExistingTokens(maybeIssued));
+                rejected.add(before - candidates.size());
+            }
+            for (String candidate : candidates) {
+                if (!offer(candidate)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Producer side: a slot is free when its sequence equals the tail position.
+     */
+    private boolean offer(String token) {
+        long position = tail.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position) {
+            return false;
+        }
+        slots.set(index, token);
+        sequences.set(index, position + 1);
+        tail.set(position + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: a slot is filled when its sequence is one past the head position, claimed by moving the head.
+     */
+    private String poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long ready = sequences.get(index) - (position + 1);
+            if (ready < 0) {
+                return null;
+            }
+            if (ready == 0 && head.compareAndSet(position, position + 1)) {
+                String token = slots.getAndSet(index, null);
+                // Free the slot for the producer's next lap.
+                sequences.set(index, position + mask + 1);
+                return token;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.anz.tokenisation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path instrumentation: latency per stage, batch sizes and store calls per request, collision retries.
+ * All meters are registered up front and indexed by enum ordinal, so recording is a lookup in a final array
+ * plus Micrometer's lock-free, allocation-free recording (LongAdder counters, HdrHistogram based percentiles).
+ * Timers publish p50/p99/p999 and a percentile histogram (Prometheus buckets) over 1us..10s.
+ */
+@Component
+public class TokenisationMetrics {
+
+    public enum Stage { PARSE, LOOKUP, GENERATE, PERSIST, SERIALISE }
+
+    public enum Operation { TOKENISE, DETOKENISE }
+
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final Timer[] requests = new Timer[Operation.values().length];
+    private final DistributionSummary[] batchSizes = new DistributionSummary[Operation.values().length];
+    private final DistributionSummary[] storeCalls = new DistributionSummary[Operation.values().length];
+    private final Counter collisions;
+
+    public TokenisationMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = latency("tokenisation.stage")
+                    .tag("stage", name(stage))
+                    .register(registry);
+        }
+        for (Operation operation : Operation.values()) {
+            String name = name(operation);
+            requests[operation.ordinal()] = latency("tokenisation.requests")
+                    .tag("operation", name)
+                    .register(registry);
+            batchSizes[operation.ordinal()] = DistributionSummary.builder("tokenisation.batch.size")
+                    .tag("operation", name)
+                    .baseUnit("values")
+                    .publishPercentiles(0.5, 0.99)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(100_000.0)
+                    .register(registry);
+            storeCalls[operation.ordinal()] = DistributionSummary.builder("tokenisation.store.calls")
+                    .description("Token store calls per request")
+                    .tag("operation", name)
+                    .baseUnit("calls")
+                    .publishPercentiles(0.5, 0.99)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(64.0)
+                    .register(registry);
+        }
+        this.collisions = Counter.builder("tokenisation.generator.collisions")
+                .description("Candidate tokens rejected as already issued and generated again")
+                .register(registry);
+    }
+
+    /**
+     * Start of a timed section.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a stage that started at the given time. Returns the current time, the start of a following stage.
+     */
+    public long stage(Stage stage, long started) {
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - started, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    /**
+     * Record a finished service call: total latency, values in the batch and token store calls it made.
+     */
+    public void request(Operation operation, long started, int batchSize, int storeCallCount) {
+        requests[operation.ordinal()].record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        batchSizes[operation.ordinal()].record(batchSize);
+        storeCalls[operation.ordinal()].record(storeCallCount);
+    }
+
+    public void collisions(int count) {
+        if (count > 0) {
+            collisions.increment(count);
+        }
+    }
+
+    private static Timer.Builder latency(String name) {
+        return Timer.builder(name)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10));
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
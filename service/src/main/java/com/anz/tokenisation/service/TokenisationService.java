@@ -0,0 +1,342 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.store.TokenStore;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Business Logic Layer.
+@Service
+public class TokenisationService {
+
+    private final TokenStore tokenStore;
+    private final TokenCache tokenCache;
+    private final TokenGenerator tokenGenerator;
+    private final MembershipFilter membershipFilter;
+    private final AccountLocks accountLocks;
+    private final TokenisationMetrics metrics;
+    private final TokenPool tokenPool;
+    private final FormatPreservingTokeniser formatPreserving;
+    private final PartitionedExecutor partitionedExecutor;
+    // Accounts whose tokens are being created, with the token to come.
+    private final ConcurrentHashMap<String, CompletableFuture<String>> creating = new ConcurrentHashMap<>();
+
+    public TokenisationService(TokenStore tokenStore, TokenCache tokenCache, TokenGenerator tokenGenerator,
+                               MembershipFilter membershipFilter, AccountLocks accountLocks,
+                               TokenisationMetrics metrics, TokenPool tokenPool,
+                               FormatPreservingTokeniser formatPreserving, PartitionedExecutor partitionedExecutor) {
+        this.tokenStore = tokenStore;
+        this.tokenCache = tokenCache;
+        this.tokenGenerator = tokenGenerator;
+        this.membershipFilter = membershipFilter;
+        this.accountLocks = accountLocks;
+        this.metrics = metrics;
+        this.tokenPool = tokenPool;
+        this.formatPreserving = formatPreserving;
+        this.partitionedExecutor = partitionedExecutor;
+    }
+
+    /**
+     * Tokenises a list of account numbers.
+     * If an account number already has a token, return existing token.
+     * Otherwise, generate new unique token.
+     * Runs as a set based pipeline: cache first, then one store lookup for existing tokens,
+     * one collision check for the new tokens and one batched insert, regardless of the batch size.
+     * Safe to call concurrently: an account never ends up with two tokens.
+     * Accounts in format-preserving ranges are encrypted instead and never reach the cache or the store.
+     * Large batches are split by account hash and the partitions run the pipeline in parallel,
+     * each with its own store calls (and so its own connection and transaction).
+     */
+    public List<String> tokenise(List<String> accountNumbers) {
+        long started = metrics.start();
+        Map<String, String> tokensByAccount = HashMap.newHashMap(accountNumbers.size());
+        List<String> vaultAccountNumbers = formatPreserving.tokenise(accountNumbers, tokensByAccount);
+        int storeCallCount = 0;
+        for (Partition partition : partitionedExecutor.map(vaultAccountNumbers, this::tokeniseInVault)) {
+            tokensByAccount.putAll(partition.tokensByAccount());
+            storeCallCount += partition.storeCalls().count;
+        }
+
+        List<String> tokens = new ArrayList<>(accountNumbers.size());
+        for (String accountNumber : accountNumbers) {
+            tokens.add(tokensByAccount.get(accountNumber));
+        }
+
+        metrics.request(TokenisationMetrics.Operation.TOKENISE, started, accountNumbers.size(), storeCallCount);
+        return tokens;
+    }
+
+    /**
+     * The vault pipeline for a batch, or one partition of it: lookup, then creation of the missing tokens.
+     */
+    private Partition tokeniseInVault(List<String> accountNumbers) {
+        long started = metrics.start();
+        StoreCalls storeCalls = new StoreCalls();
+        Map<String, String> tokensByAccount = findExistingTokens(accountNumbers, storeCalls);
+        metrics.stage(TokenisationMetrics.Stage.LOOKUP, started);
+
+        // Distinct accounts without a token, so repeats in the batch share one new token.
+        Set<String> newAccountNumbers = new LinkedHashSet<>();
+        for (String accountNumber : accountNumbers) {
+            if (!tokensByAccount.containsKey(accountNumber)) {
+                newAccountNumbers.add(accountNumber);
+            }
+        }
+
+        if (!newAccountNumbers.isEmpty()) {
+            tokensByAccount.putAll(createTokens(newAccountNumbers, storeCalls));
+        }
+        return new Partition(tokensByAccount, storeCalls);
+    }
+
+    /**
+     * Detokenises a list of tokens back to their original account numbers.
+     * Tokens are resolved from the cache, then with one store lookup, and mapped back to the request order.
+     * Tokens the membership filter has never seen are unknown without asking the store.
+     * Format-preserving tokens are decrypted.
+     */
+    public List<String> detokenise(List<String> tokens) {
+        long started = metrics.start();
+        Map<String, String> accountsByToken = HashMap.newHashMap(tokens.size());
+        List<String> vaultTokens = formatPreserving.detokenise(tokens, accountsByToken);
+        List<String> uncached = new ArrayList<>();
+        for (String tokenValue : distinct(vaultTokens)) {
+            String accountNumber = tokenCache.getAccountNumber(tokenValue);
+            if (accountNumber != null) {
+                accountsByToken.put(tokenValue, accountNumber);
+            } else if (membershipFilter.mightContainToken(tokenValue)) {
+                uncached.add(tokenValue);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            Map<String, String> found = tokenStore.findAccountNumbersByTokens(uncached);
+            found.forEach((tokenValue, accountNumber) -> tokenCache.put(accountNumber, tokenValue));
+            accountsByToken.putAll(found);
+        }
+        metrics.stage(TokenisationMetrics.Stage.LOOKUP, started);
+
+        List<String> accountNumbers = new ArrayList<>(tokens.size());
+        for (String tokenValue : tokens) {
+            // Add null for tokens that don't exist.
+            // For production I'd throw an exception or handle it differently.
+            accountNumbers.add(accountsByToken.get(tokenValue));
+        }
+
+        metrics.request(TokenisationMetrics.Operation.DETOKENISE, started, tokens.size(), uncached.isEmpty() ? 0 : 1);
+        return accountNumbers;
+    }
+
+    /**
+     * Look up the existing tokens for a batch of account numbers.
+     * Cache misses are resolved with one store lookup and added to the cache,
+     * except accounts the membership filter has never seen, which are new without asking the store.
+     */
+    private Map<String, String> findExistingTokens(List<String> accountNumbers, StoreCalls storeCalls) {
+        Map<String, String> tokensByAccount = HashMap.newHashMap(accountNumbers.size());
+        List<String> uncached = new ArrayList<>();
+        for (String accountNumber : distinct(accountNumbers)) {
+            String token = tokenCache.getToken(accountNumber);
+            if (token != null) {
+                tokensByAccount.put(accountNumber, token);
+            } else if (membershipFilter.mightContainAccountNumber(accountNumber)) {
+                uncached.add(accountNumber);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            Map<String, String> found = tokenStore.findTokensByAccountNumbers(uncached);
+            storeCalls.count++;
+            found.forEach(tokenCache::put);
+            tokensByAccount.putAll(found);
+        }
+        return tokensByAccount;
+    }
+
+    /**
+     * Create tokens for account numbers that don't have one yet.
+     * The stripe locks of the accounts are held only to re-check the cache and reserve the accounts, so a
+     * concurrent request for the same new account waits for this one's token instead of creating its own,
+     * while requests for other accounts on the same stripes never wait for this one's store calls.
+     * The store's insert-or-fetch settles anything the reservations can't see (another node, or a cache
+     * eviction in between).
+     */
+    private Map<String, String> createTokens(Set<String> accountNumbers, StoreCalls storeCalls) {
+        Map<String, String> tokensByAccount = HashMap.newHashMap(accountNumbers.size());
+        Map<String, CompletableFuture<String>> reserved = LinkedHashMap.newLinkedHashMap(accountNumbers.size());
+        Map<String, CompletableFuture<String>> awaited = new HashMap<>();
+        BitSet held = accountLocks.lock(accountNumbers);
+        try {
+            for (String accountNumber : accountNumbers) {
+                // Created by another request while this one waited for the locks.
+                String token = tokenCache.getToken(accountNumber);
+                if (token != null) {
+                    tokensByAccount.put(accountNumber, token);
+                    continue;
+                }
+                CompletableFuture<String> reservation = new CompletableFuture<>();
+                CompletableFuture<String> creator = creating.putIfAbsent(accountNumber, reservation);
+                if (creator == null) {
+                    reserved.put(accountNumber, reservation);
+                } else {
+                    awaited.put(accountNumber, creator);
+                }
+            }
+        } finally {
+            accountLocks.unlock(held);
+        }
+
+        // Create this request's tokens before waiting on others, so two requests never wait on each other.
+        if (!reserved.isEmpty()) {
+            tokensByAccount.putAll(createReserved(reserved, storeCalls));
+        }
+        awaited.forEach((accountNumber, creator) -> tokensByAccount.put(accountNumber, await(creator)));
+        return tokensByAccount;
+    }
+
+    /**
+     * Create tokens for reserved accounts and hand them to any request waiting on the reservations.
+     * Candidates are generated in memory, checked for collisions (only candidates the membership filter
+     * might have seen go to the store, in one set lookup per round; only colliding candidates are regenerated)
+     * and written with one saveAll call per round.
+     */
+    private Map<String, String> createReserved(Map<String, CompletableFuture<String>> reserved, StoreCalls storeCalls) {
+        Map<String, String> tokensByAccount = HashMap.newHashMap(reserved.size());
+        Set<String> pending = new LinkedHashSet<>(reserved.keySet());
+        RuntimeException failure = null;
+        try {
+            while (!pending.isEmpty()) {
+                long started = metrics.start();
+                Map<String, String> candidates = generateCandidates(pending, storeCalls);
+                started = metrics.stage(TokenisationMetrics.Stage.GENERATE, started);
+                Map<String, String> saved = tokenStore.saveAll(candidates);
+                storeCalls.count++;
+                // Write through once the store has committed the new mappings.
+                saved.forEach(tokenCache::put);
+                saved.forEach(membershipFilter::add);
+                tokensByAccount.putAll(saved);
+                pending.removeAll(saved.keySet());
+                metrics.stage(TokenisationMetrics.Stage.PERSIST, started);
+                // Left pending: candidates another writer issued after the collision check, tried again.
+                metrics.collisions(pending.size());
+            }
+            return tokensByAccount;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            // Release under the locks, so a request re-checking finds either the cached token or the reservation.
+            BitSet held = accountLocks.lock(reserved.keySet());
+            try {
+                reserved.forEach(creating::remove);
+            } finally {
+                accountLocks.unlock(held);
+            }
+            for (Map.Entry<String, CompletableFuture<String>> entry : reserved.entrySet()) {
+                String token = tokensByAccount.get(entry.getKey());
+                if (token != null) {
+                    entry.getValue().complete(token);
+                } else {
+                    entry.getValue().completeExceptionally(failure != null
+                            ? failure : new IllegalStateException("Token creation did not finish"));
+                }
+            }
+        }
+    }
+
+    /**
+     * One unissued candidate token per account (account number -> token), in the order of the accounts.
+     * Tokens come from the pool first, they were checked when pooled; only tokens generated here are checked.
+     */
+    private Map<String, String> generateCandidates(Set<String> accountNumbers, StoreCalls storeCalls) {
+        Map<String, String> candidates = HashMap.newHashMap(accountNumbers.size());
+        Set<String> pending = new HashSet<>(accountNumbers);
+        Set<String> issued = HashSet.newHashSet(accountNumbers.size());
+
+        while (!pending.isEmpty()) {
+            Map<String, String> round = HashMap.newHashMap(pending.size());
+            List<String> pooled = tokenPool.take(pending.size());
+            Iterator<String> fromPool = pooled.iterator();
+            Iterator<String> generated = pooled.size() < pending.size()
+                    ? tokenGenerator.generate(pending.size() - pooled.size()).iterator()
+                    : Collections.emptyIterator();
+            List<String> maybeIssued = new ArrayList<>();
+            int collisions = 0;
+            for (String accountNumber : pending) {
+                boolean checked = fromPool.hasNext();
+                String candidate = checked ? fromPool.next() : generated.next();
+                // Guard against duplicates within the batch as well as in the store.
+                if (!issued.add(candidate)) {
+                    collisions++;
+                    continue;
+                }
+                round.put(candidate, accountNumber);
+                if (!checked && membershipFilter.mightContainToken(candidate)) {
+                    maybeIssued.add(candidate);
+                }
+            }
+
+            if (!maybeIssued.isEmpty()) {
+                Set<String> existing = tokenStore.findExistingTokens(maybeIssued);
+                storeCalls.count++;
+                collisions += existing.size();
+                round.keySet().removeAll(existing);
+            }
+            metrics.collisions(collisions);
+
+            for (Map.Entry<String, String> entry : round.entrySet()) {
+                candidates.put(entry.getValue(), entry.getKey());
+                pending.remove(entry.getValue());
+            }
+        }
+
+        // Insert in request order.
+        Map<String, String> tokensByAccount = LinkedHashMap.newLinkedHashMap(accountNumbers.size());
+        for (String accountNumber : accountNumbers) {
+            tokensByAccount.put(accountNumber, candidates.get(accountNumber));
+        }
+        return tokensByAccount;
+    }
+
+    private static String await(CompletableFuture<String> creator) {
+        try {
+            return creator.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Values without repeats, in order. A single value, the most common request, needs no set.
+     */
+    private static Collection<String> distinct(List<String> values) {
+        return values.size() < 2 ? values : new LinkedHashSet<>(values);
+    }
+
+    /**
+     * Token store calls made by one request (or one partition of it).
+     */
+    private static final class StoreCalls {
+        int count;
+    }
+
+    private record Partition(Map<String, String> tokensByAccount, StoreCalls storeCalls) {
+    }
+}
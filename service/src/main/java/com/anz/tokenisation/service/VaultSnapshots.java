@@ -0,0 +1,152 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.TokenStore;
+import com.anz.tokenisation.store.VaultSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports the vault to a {@link VaultSnapshot} and loads one back. With warm start on, an empty store is loaded
+ * from the snapshot once every bean exists and before the web server starts, so no request sees a half loaded
+ * vault. Blocks are decoded and bulk loaded in parallel, straight into the store, the membership filters and
+ * the cache (until it is full). Export reads the store in token order where it can, one block at a time.
+ * A warm start leaves a marker file next to the snapshot until the import has finished. A durable store that
+ * a failed import left part loaded is not empty on the next start, so the marker makes that start refuse
+ * instead of running with part of the vault; an empty store with the marker is simply imported again.
+ */
+@Component
+public class VaultSnapshots implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VaultSnapshots.class);
+
+    private final TokenStore tokenStore;
+    private final MembershipFilter membershipFilter;
+    private final TokenCache tokenCache;
+    private final Path path;
+    private final Path importMarker;
+    private final boolean warmStart;
+    private final boolean exportOnShutdown;
+    private final int parallelism;
+
+    public VaultSnapshots(TokenStore tokenStore, MembershipFilter membershipFilter, TokenCache tokenCache,
+                          TokenisationProperties properties) {
+        TokenisationProperties.Snapshot snapshot = properties.getSnapshot();
+        this.tokenStore = tokenStore;
+        this.membershipFilter = membershipFilter;
+        this.tokenCache = tokenCache;
+        this.path = snapshot.getPath();
+        this.importMarker = path.resolveSibling(path.getFileName() + ".importing");
+        this.warmStart = snapshot.isWarmStart();
+        this.exportOnShutdown = snapshot.isExportOnShutdown();
+        this.parallelism = snapshot.getParallelism() > 0
+                ? snapshot.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!warmStart) {
+            return;
+        }
+        if (!Files.exists(path)) {
+            log.info("No vault snapshot at {}, starting with the store as it is", path);
+            return;
+        }
+        long held = tokenStore.count();
+        if (held > 0 && Files.exists(importMarker)) {
+            throw new IllegalStateException("An earlier warm start from vault snapshot " + path + " did not finish and "
+                    + "left " + held + " mappings in the token store; empty the store (or delete " + importMarker
+                    + " to keep it as it is) and restart");
+        }
+        if (held > 0) {
+            log.info("Token store already holds {} mappings, vault snapshot {} not loaded", held, path);
+            return;
+        }
+        try {
+            if (!Files.exists(importMarker)) {
+                Files.createFile(importMarker);
+            }
+            importSnapshot(path);
+            Files.delete(importMarker);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Warm start from vault snapshot " + path + " failed", e);
+        }
+    }
+
+    /**
+     * Load every mapping of a snapshot. The store must not hold any of them already.
+     */
+    public long importSnapshot(Path snapshotPath) throws IOException {
+        long started = System.nanoTime();
+        AtomicBoolean caching = new AtomicBoolean(tokenCache.isEnabled());
+        long loaded = VaultSnapshot.read(snapshotPath, parallelism, tokensByAccount -> {
+            tokenStore.load(tokensByAccount);
+            tokensByAccount.forEach(membershipFilter::add);
+            if (caching.get()) {
+                tokensByAccount.forEach(tokenCache::put);
+                // Past capacity every put only evicts an earlier one.
+                TokenCache.CacheStats stats = tokenCache.stats();
+                if (stats.estimatedBytes() >= stats.maxBytes()) {
+                    caching.set(false);
+                }
+            }
+        });
+        log.info("Loaded {} mappings from vault snapshot {} in {} ms", loaded, snapshotPath,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return loaded;
+    }
+
+    /**
+     * Write every mapping to the configured snapshot path.
+     */
+    public long exportSnapshot() throws IOException {
+        return exportSnapshot(path);
+    }
+
+    /**
+     * Write every mapping to a snapshot, replacing the file only once the snapshot is complete.
+     */
+    public long exportSnapshot(Path snapshotPath) throws IOException {
+        long started = System.nanoTime();
+        try (VaultSnapshot.Writer writer = new VaultSnapshot.Writer(snapshotPath, parallelism)) {
+            tokenStore.forEachInTokenOrder((accountNumber, token) -> {
+                try {
+                    writer.add(accountNumber, token);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+            log.info("Wrote {} mappings to vault snapshot {} in {} ms", writer.mappings(), snapshotPath,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return writer.mappings();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (exportOnShutdown && Files.exists(importMarker)) {
+            // The store holds part of the snapshot at most, exporting it would replace the snapshot with less.
+            log.warn("Warm start from vault snapshot {} did not finish, not exporting on shutdown", path);
+        } else if (exportOnShutdown) {
+            exportSnapshot(path);
+        }
+    }
+}
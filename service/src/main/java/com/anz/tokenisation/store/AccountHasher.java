@@ -0,0 +1,80 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Derives the fixed width account key: HMAC-SHA256 of the account number under the service key, truncated to 16 bytes.
+ * Keyed, so the column can't be reversed by hashing every possible account number without the key.
+ */
+public class AccountHasher {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountHasher.class);
+
+    public static final int HASH_BYTES = 16;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    // Only for local runs and tests, production configures tokenisation.account-hash.secret.
+    private static final byte[] DEVELOPMENT_KEY = "anz-tokenisation-development-key".getBytes(StandardCharsets.US_ASCII);
+
+    private final Mac prototype;
+
+    public AccountHasher(TokenisationProperties properties) {
+        String secret = properties.getAccountHash().getSecret();
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            log.warn("No tokenisation.account-hash.secret configured, account hashes use the development key");
+            key = DEVELOPMENT_KEY;
+        } else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    public byte[] hash(String accountNumber) {
+        return hash(newMac(), accountNumber);
+    }
+
+    /**
+     * Hash a batch with one Mac, in iteration order.
+     */
+    public List<byte[]> hashAll(Collection<String> accountNumbers) {
+        Mac mac = newMac();
+        List<byte[]> hashes = new ArrayList<>(accountNumbers.size());
+        for (String accountNumber : accountNumbers) {
+            hashes.add(hash(mac, accountNumber));
+        }
+        return hashes;
+    }
+
+    private static byte[] hash(Mac mac, String accountNumber) {
+        return Arrays.copyOf(mac.doFinal(accountNumber.getBytes(StandardCharsets.UTF_8)), HASH_BYTES);
+    }
+
+    /**
+     * Macs aren't thread safe; cloning the keyed prototype skips the key setup of a fresh instance.
+     */
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 provider does not support cloning", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.anz.tokenisation.store;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring over shard indexes: every shard owns virtualNodes points on a 64 bit ring and a key
+ * belongs to the first point at or after its hash. Adding a shard only takes over the keys between its new
+ * points and their predecessors, about 1/(N+1) of them. Points are kept as sorted primitive arrays, a lookup
+ * is one hash and one binary search without allocation.
+ */
+final class ConsistentHashRing {
+
+    private final long[] points;
+    private final int[] owners;
+
+    ConsistentHashRing(int shards, int virtualNodes) {
+        long[][] entries = new long[shards * virtualNodes][];
+        for (int shard = 0, i = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++, i++) {
+                entries[i] = new long[]{mix(((long) shard << 32) | node), shard};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[entries.length];
+        this.owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    /**
+     * Shard owning the key.
+     */
+    int shardFor(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * 64 bit FNV-1a over the characters, finished with a MurmurHash3 mix so similar keys land far apart.
+     */
+    static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
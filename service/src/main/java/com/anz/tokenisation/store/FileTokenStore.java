@@ -0,0 +1,193 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Durable token store: an append-only log on disk with an off-heap index in memory.
+ * Writes go to the log (group committed fsync) and the index; periodic snapshots of the index
+ * record the log position they cover, so a restart maps the latest snapshot and replays only the log tail.
+ */
+@Component
+@ConditionalOnProperty(name = "tokenisation.store.type", havingValue = "file")
+public class FileTokenStore implements TokenStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTokenStore.class);
+
+    private static final long SNAPSHOT_MAGIC = 0x31504E534B4F5454L; // "TTOKSNP1".
+    private static final int SNAPSHOT_HEADER_BYTES = 64;
+    private static final String LOG_FILE = "tokens.log";
+    private static final String SNAPSHOT_FILE = "tokens.snapshot";
+
+    private final Path snapshotPath;
+    private final TokenLog tokenLog;
+    private final OffHeapTokenStore index;
+    // Orders log appends with index updates and gives snapshots a consistent cut.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService snapshotScheduler;
+    private final boolean snapshotOnShutdown;
+
+    public FileTokenStore(TokenisationProperties properties) throws IOException {
+        TokenisationProperties.Store.File file = properties.getStore().getFile();
+        Path directory = file.getDirectory();
+        Files.createDirectories(directory);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.snapshotOnShutdown = file.isSnapshotOnShutdown();
+
+        long started = System.nanoTime();
+        long replayFrom = 0;
+        OffHeapTokenStore restored = null;
+        if (Files.exists(snapshotPath)) {
+            // Copy-on-write (private) mappings need a channel opened for writing, the file itself is never modified.
+            try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getLong() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a token snapshot: " + snapshotPath);
+                }
+                replayFrom = header.getLong();
+                // Mappings stay valid after the channel is closed.
+                restored = OffHeapTokenStore.mapSnapshot(channel, SNAPSHOT_HEADER_BYTES);
+            }
+        }
+        this.index = restored != null ? restored : new OffHeapTokenStore(properties);
+
+        this.tokenLog = new TokenLog(directory.resolve(LOG_FILE), file.getCommitInterval());
+        long replayed = tokenLog.replay(replayFrom, index::saveAll);
+        tokenLog.start();
+        log.info("Token vault opened with {} mappings ({} replayed from log) in {} ms",
+                index.size(), replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        Duration interval = file.getSnapshotInterval();
+        if (interval.isZero() || interval.isNegative()) {
+            this.snapshotScheduler = null;
+        } else {
+            this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("token-snapshot").daemon().factory());
+            snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot,
+                    interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Map<String, String> findTokensByAccountNumbers(Collection<String> accountNumbers) {
+        return index.findTokensByAccountNumbers(accountNumbers);
+    }
+
+    @Override
+    public Map<String, String> findAccountNumbersByTokens(Collection<String> tokens) {
+        return index.findAccountNumbersByTokens(tokens);
+    }
+
+    @Override
+    public Set<String> findExistingTokens(Collection<String> tokens) {
+        return index.findExistingTokens(tokens);
+    }
+
+    /**
+     * Append to the log and index, then wait (outside the write lock) for the group commit.
+     * Mappings the index rejects stay in the log; replay applies the same first-wins rule and rejects them again.
+     */
+    @Override
+    public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+        long end;
+        Map<String, String> saved;
+        writeLock.lock();
+        try {
+            end = tokenLog.append(tokensByAccount);
+            saved = index.saveAll(tokensByAccount);
+        } finally {
+            writeLock.unlock();
+        }
+        tokenLog.awaitDurable(end);
+        return saved;
+    }
+
+    @Override
+    public long count() {
+        return index.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        index.forEach(action);
+    }
+
+    /**
+     * Write a snapshot of the index covering the log up to the current position.
+     * Written to a temporary file and atomically renamed, so a crash never leaves a partial snapshot.
+     */
+    public void snapshot() throws IOException {
+        Path temporary = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        long started = System.nanoTime();
+        writeLock.lock();
+        try {
+            long logPosition = tokenLog.position();
+            // Never let a snapshot cover log records that could still be lost.
+            tokenLog.awaitDurable(logPosition);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(SNAPSHOT_MAGIC).putLong(logPosition).rewind();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                index.writeSnapshot(channel);
+                channel.force(true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Token vault snapshot of {} mappings written in {} ms",
+                index.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (snapshotOnShutdown) {
+            snapshot();
+        }
+        tokenLog.close();
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Token vault snapshot failed, will retry at the next interval", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.entity.Token;
+import com.anz.tokenisation.repository.TokenBatchInserter;
+import com.anz.tokenisation.repository.TokenMapping;
+import com.anz.tokenisation.repository.TokenRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// Token Store Backed by the JPA TokenRepository (default engine). Lookups read projections, not entities.
+@Component
+@ConditionalOnProperty(name = "tokenisation.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaTokenStore implements TokenStore {
+
+    private final TokenRepository tokenRepository;
+    private final TokenBatchInserter batchInserter;
+    private final AccountHasher accountHasher;
+    private final int lookupChunkSize;
+
+    public JpaTokenStore(TokenRepository tokenRepository, TokenisationProperties properties,
+                         TokenBatchInserter batchInserter) {
+        this.tokenRepository = tokenRepository;
+        this.batchInserter = batchInserter;
+        this.accountHasher = new AccountHasher(properties);
+        this.lookupChunkSize = properties.getLookup().getChunkSize();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, String> findTokensByAccountNumbers(Collection<String> accountNumbers) {
+        Map<String, String> tokensByAccount = HashMap.newHashMap(accountNumbers.size());
+        for (List<String> chunk : chunks(accountNumbers)) {
+            for (TokenMapping mapping : tokenRepository.findMappingsByAccountHashIn(accountHasher.hashAll(chunk))) {
+                tokensByAccount.put(mapping.accountNumber(), mapping.token());
+            }
+        }
+        return tokensByAccount;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, String> findAccountNumbersByTokens(Collection<String> tokens) {
+        Map<String, String> accountsByToken = HashMap.newHashMap(tokens.size());
+        for (List<String> chunk : chunks(tokens)) {
+            for (TokenMapping mapping : tokenRepository.findMappingsByTokenIn(chunk)) {
+                accountsByToken.put(mapping.token(), mapping.accountNumber());
+            }
+        }
+        return accountsByToken;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findExistingTokens(Collection<String> tokens) {
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : chunks(tokens)) {
+            existing.addAll(tokenRepository.findTokensByTokenIn(chunk));
+        }
+        return existing;
+    }
+
+    /**
+     * Insert the whole batch in one transaction. If the unique account (or token) index rejects it,
+     * another writer got there first: the batch has rolled back, so insert row by row, each in its own
+     * transaction, and fetch the winning token for every account that conflicts.
+     * Not transactional itself, a conflict must not mark a caller's transaction rollback only.
+     */
+    @Override
+    public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+        List<byte[]> hashes = accountHasher.hashAll(tokensByAccount.keySet());
+        try {
+            insert(entities(tokensByAccount, hashes));
+            return tokensByAccount;
+        } catch (DataIntegrityViolationException e) {
+            return saveEach(tokensByAccount, hashes);
+        }
+    }
+
+    /**
+     * Plain batch insert, no conflict handling: the mappings are known to be new.
+     */
+    @Override
+    public void load(Map<String, String> tokensByAccount) {
+        insert(entities(tokensByAccount, accountHasher.hashAll(tokensByAccount.keySet())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long count() {
+        return tokenRepository.count();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(BiConsumer<String, String> action) {
+        try (Stream<Object[]> rows = tokenRepository.streamAllMappings()) {
+            rows.forEach(row -> action.accept((String) row[0], (String) row[1]));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachInTokenOrder(BiConsumer<String, String> action) {
+        try (Stream<Object[]> rows = tokenRepository.streamAllMappingsByToken()) {
+            rows.forEach(row -> action.accept((String) row[0], (String) row[1]));
+        }
+    }
+
+    private Map<String, String> saveEach(Map<String, String> tokensByAccount, List<byte[]> hashes) {
+        Map<String, String> saved = HashMap.newHashMap(tokensByAccount.size());
+        int i = 0;
+        for (Map.Entry<String, String> entry : tokensByAccount.entrySet()) {
+            String accountNumber = entry.getKey();
+            byte[] hash = hashes.get(i++);
+            try {
+                insertOne(new Token(entry.getValue(), accountNumber, hash));
+                saved.put(accountNumber, entry.getValue());
+            } catch (DataIntegrityViolationException e) {
+                // No existing row for the account means the token collided, leave it out so the caller retries.
+                tokenRepository.findTokenByAccountHash(hash)
+                        .ifPresent(existing -> saved.put(accountNumber, existing));
+            }
+        }
+        return saved;
+    }
+
+    private static List<Token> entities(Map<String, String> tokensByAccount, List<byte[]> hashes) {
+        List<Token> entities = new ArrayList<>(tokensByAccount.size());
+        int i = 0;
+        for (Map.Entry<String, String> entry : tokensByAccount.entrySet()) {
+            entities.add(new Token(entry.getValue(), entry.getKey(), hashes.get(i++)));
+        }
+        return entities;
+    }
+
+    private void insert(List<Token> entities) {
+        batchInserter.insertAll(entities);
+    }
+
+    private void insertOne(Token entity) {
+        batchInserter.insertAll(List.of(entity));
+    }
+
+    /**
+     * Split values into slices of at most lookupChunkSize for IN queries.
+     */
+    private List<List<String>> chunks(Collection<String> values) {
+        List<String> list = values instanceof List<String> l ? l : new ArrayList<>(values);
+        List<List<String>> chunks = new ArrayList<>((list.size() + lookupChunkSize - 1) / lookupChunkSize);
+        for (int from = 0; from < list.size(); from += lookupChunkSize) {
+            chunks.add(list.subList(from, Math.min(from + lookupChunkSize, list.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,59 @@
+package com.anz.tokenisation.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Zeroed long[] Stored in Direct Buffers, Paged to Get Past the 2GB ByteBuffer Limit.
+final class OffHeapLongArray {
+
+    private static final int PAGE_SHIFT = 24; // 16M longs (128MB) per page.
+    private static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+
+    private final ByteBuffer[] pages;
+    private final long length;
+
+    OffHeapLongArray(long length) {
+        this.length = length;
+        this.pages = new ByteBuffer[pageCount(length)];
+        for (int page = 0; page < pages.length; page++) {
+            pages[page] = ByteBuffer.allocateDirect(pageBytes(length, page)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Wrap existing pages (e.g. memory mapped from a snapshot), laid out as pageBytes describes.
+     */
+    OffHeapLongArray(long length, ByteBuffer[] pages) {
+        this.length = length;
+        this.pages = pages;
+    }
+
+    static int pageCount(long length) {
+        return (int) ((length + PAGE_MASK) >>> PAGE_SHIFT);
+    }
+
+    static int pageBytes(long length, int page) {
+        long longs = Math.min(length - ((long) page << PAGE_SHIFT), 1L << PAGE_SHIFT);
+        return (int) (longs * Long.BYTES);
+    }
+
+    long get(long index) {
+        return pages[(int) (index >>> PAGE_SHIFT)].getLong((int) (index & PAGE_MASK) << 3);
+    }
+
+    void set(long index, long value) {
+        pages[(int) (index >>> PAGE_SHIFT)].putLong((int) (index & PAGE_MASK) << 3, value);
+    }
+
+    long length() {
+        return length;
+    }
+
+    long bytes() {
+        return length * Long.BYTES;
+    }
+
+    ByteBuffer[] pages() {
+        return pages;
+    }
+}
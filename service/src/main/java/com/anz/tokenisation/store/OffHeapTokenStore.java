@@ -0,0 +1,572 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Token store that keeps every mapping outside the Java heap.
+ * Records are appended to direct buffer arenas as [24 raw token bytes][u16 length][account bytes]
+ * and indexed both ways by open addressing (linear probing) hash tables, also off-heap.
+ * Token strings are only Base64 encoded/decoded at this SPI boundary, through per-thread {@link TokenScratch}
+ * buffers.
+ */
+@Component
+@ConditionalOnProperty(name = "tokenisation.store.type", havingValue = "off-heap")
+public class OffHeapTokenStore implements TokenStore {
+
+    static final int RAW_TOKEN_BYTES = TokenCodec.RAW_TOKEN_BYTES;
+    private static final int RECORD_HEADER_BYTES = RAW_TOKEN_BYTES + Short.BYTES;
+    private static final int MAX_ACCOUNT_BYTES = 0xFFFF;
+    private static final int MIN_CHUNK_BYTES = 1 << 17;
+
+    // Slot layout: [20 bit hash fingerprint][44 bit record address + 1], 0 marks an empty slot.
+    private static final int ADDRESS_BITS = 44;
+    private static final long ADDRESS_MASK = (1L << ADDRESS_BITS) - 1;
+    private static final int OFFSET_BITS = 26;
+    private static final int MAX_CHUNK_BYTES = 1 << OFFSET_BITS;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+    private static final int SNAPSHOT_HEADER_BYTES = 64;
+
+    private static final VarHandle NATIVE_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final int chunkSize;
+    private final Index tokenIndex;
+    private final Index accountIndex;
+    private ByteBuffer current;
+    private long size;
+
+    @Autowired
+    public OffHeapTokenStore(TokenisationProperties properties) {
+        TokenisationProperties.Store.OffHeap offHeap = properties.getStore().getOffHeap();
+        long chunkBytes = offHeap.getChunkSize().toBytes();
+        if (chunkBytes < MIN_CHUNK_BYTES || chunkBytes > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("tokenisation.store.off-heap.chunk-size must be between 128KB and 64MB");
+        }
+        this.chunkSize = (int) chunkBytes;
+        long capacity = Long.highestOneBit(Math.max(16, (long) (offHeap.getInitialCapacity() / MAX_LOAD_FACTOR)) * 2 - 1);
+        this.tokenIndex = new TokenIndex(new OffHeapLongArray(capacity), 0);
+        this.accountIndex = new AccountIndex(new OffHeapLongArray(capacity), 0);
+    }
+
+    private OffHeapTokenStore(int chunkSize, List<ByteBuffer> chunks, int lastChunkPosition, long size,
+                              OffHeapLongArray tokenSlots, long tokensUsed,
+                              OffHeapLongArray accountSlots, long accountsUsed) {
+        this.chunkSize = chunkSize;
+        this.chunks.addAll(chunks);
+        this.current = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1).position(lastChunkPosition);
+        this.size = size;
+        this.tokenIndex = new TokenIndex(tokenSlots, tokensUsed);
+        this.accountIndex = new AccountIndex(accountSlots, accountsUsed);
+    }
+
+    @Override
+    public Map<String, String> findTokensByAccountNumbers(Collection<String> accountNumbers) {
+        Map<String, String> tokensByAccount = HashMap.newHashMap(accountNumbers.size());
+        TokenScratch scratch = TokenScratch.get();
+        lock.readLock().lock();
+        try {
+            for (String accountNumber : accountNumbers) {
+                int length = scratch.encodeUtf8(accountNumber);
+                long address = findAccount(scratch.bytes(), length);
+                if (address >= 0) {
+                    tokensByAccount.put(accountNumber, readToken(address, scratch));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return tokensByAccount;
+    }
+
+    @Override
+    public Map<String, String> findAccountNumbersByTokens(Collection<String> tokens) {
+        Map<String, String> accountsByToken = HashMap.newHashMap(tokens.size());
+        TokenScratch scratch = TokenScratch.get();
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                long address = scratch.decode(token) ? findToken(scratch.raw) : -1;
+                if (address >= 0) {
+                    accountsByToken.put(token, readAccountNumber(address, scratch));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return accountsByToken;
+    }
+
+    @Override
+    public Set<String> findExistingTokens(Collection<String> tokens) {
+        Set<String> existing = new HashSet<>();
+        TokenScratch scratch = TokenScratch.get();
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                if (scratch.decode(token) && findToken(scratch.raw) >= 0) {
+                    existing.add(token);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return existing;
+    }
+
+    @Override
+    public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+        Map<String, String> saved = HashMap.newHashMap(tokensByAccount.size());
+        TokenScratch scratch = TokenScratch.get();
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, String> entry : tokensByAccount.entrySet()) {
+                int accountLength = scratch.encodeUtf8(entry.getKey());
+                byte[] account = scratch.bytes();
+                if (!scratch.decode(entry.getValue())) {
+                    throw new IllegalArgumentException("Token is not a 32 character Base64 URL token");
+                }
+                if (accountLength > MAX_ACCOUNT_BYTES) {
+                    throw new IllegalArgumentException("Account number exceeds " + MAX_ACCOUNT_BYTES + " bytes");
+                }
+                // First mapping for an account wins, same as the unique account index of the JPA engine.
+                long existing = findAccount(account, accountLength);
+                if (existing >= 0) {
+                    saved.put(entry.getKey(), readToken(existing, scratch));
+                    continue;
+                }
+                if (findToken(scratch.raw) >= 0) {
+                    continue;
+                }
+                long address = append(scratch.raw, account, accountLength);
+                tokenIndex.insert(address, tokenHash(scratch.raw));
+                accountIndex.insert(address, accountHash(account, accountLength));
+                size++;
+                saved.put(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return saved;
+    }
+
+    /**
+     * Map an account to a token regardless of what this store holds, dropping the account's current mapping
+     * and any other holder of the token. For a tier in front of a store that settled on another token.
+     * The dropped records stay in the arena, only the indexes forget them.
+     */
+    void replace(String accountNumber, String token) {
+        TokenScratch scratch = TokenScratch.get();
+        lock.writeLock().lock();
+        try {
+            int accountLength = scratch.encodeUtf8(accountNumber);
+            byte[] account = scratch.bytes();
+            if (!scratch.decode(token)) {
+                throw new IllegalArgumentException("Token is not a 32 character Base64 URL token");
+            }
+            if (accountLength > MAX_ACCOUNT_BYTES) {
+                throw new IllegalArgumentException("Account number exceeds " + MAX_ACCOUNT_BYTES + " bytes");
+            }
+            long existing = findAccount(account, accountLength);
+            if (existing >= 0) {
+                remove(existing);
+            }
+            long holder = findToken(scratch.raw);
+            if (holder >= 0) {
+                remove(holder);
+            }
+            long address = append(scratch.raw, account, accountLength);
+            tokenIndex.insert(address, tokenHash(scratch.raw));
+            accountIndex.insert(address, accountHash(account, accountLength));
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        return size();
+    }
+
+    /**
+     * Walks the token index rather than the arenas, so it works the same on a store mapped from a snapshot.
+     */
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        TokenScratch scratch = TokenScratch.get();
+        lock.readLock().lock();
+        try {
+            for (long slot = 0; slot < tokenIndex.slots.length(); slot++) {
+                long value = tokenIndex.slots.get(slot);
+                if (value != 0) {
+                    long address = (value & ADDRESS_MASK) - 1;
+                    action.accept(readAccountNumber(address, scratch), readToken(address, scratch));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of mappings held.
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Direct memory reserved by the arenas and both indexes.
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) chunks.size() * chunkSize + tokenIndex.slots.bytes() + accountIndex.slots.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write a point in time image of the arenas and both indexes to the channel as raw pages.
+     * Callers that need the image to line up with a log position must stop writers first.
+     */
+    void writeSnapshot(FileChannel channel) throws IOException {
+        lock.readLock().lock();
+        try {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(chunkSize)
+                    .putInt(chunks.size())
+                    .putInt(current == null ? 0 : current.position())
+                    .putInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1)
+                    .putLong(size)
+                    .putLong(tokenIndex.slots.length())
+                    .putLong(tokenIndex.used)
+                    .putLong(accountIndex.slots.length())
+                    .putLong(accountIndex.used)
+                    .rewind();
+            writeFully(channel, header);
+            for (ByteBuffer chunk : chunks) {
+                writeFully(channel, chunk.duplicate().clear());
+            }
+            for (ByteBuffer page : tokenIndex.slots.pages()) {
+                writeFully(channel, page.duplicate().clear());
+            }
+            for (ByteBuffer page : accountIndex.slots.pages()) {
+                writeFully(channel, page.duplicate().clear());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restore a store from a snapshot written by writeSnapshot, starting at position.
+     * Pages are memory mapped copy-on-write, so startup cost is independent of the number of mappings
+     * and pages are only faulted in (and copied on first write) as they are used.
+     */
+    static OffHeapTokenStore mapSnapshot(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, position);
+        header.flip();
+        int chunkSize = header.getInt();
+        int chunkCount = header.getInt();
+        int lastChunkPosition = header.getInt();
+        boolean bigEndian = header.getInt() == 1;
+        if (bigEndian != (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN)) {
+            throw new IOException("Snapshot was written on a platform with a different byte order");
+        }
+        long size = header.getLong();
+        long tokenCapacity = header.getLong();
+        long tokensUsed = header.getLong();
+        long accountCapacity = header.getLong();
+        long accountsUsed = header.getLong();
+
+        long offset = position + SNAPSHOT_HEADER_BYTES;
+        List<ByteBuffer> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(map(channel, offset, chunkSize));
+            offset += chunkSize;
+        }
+        ByteBuffer[] tokenPages = new ByteBuffer[OffHeapLongArray.pageCount(tokenCapacity)];
+        for (int page = 0; page < tokenPages.length; page++) {
+            int bytes = OffHeapLongArray.pageBytes(tokenCapacity, page);
+            tokenPages[page] = map(channel, offset, bytes);
+            offset += bytes;
+        }
+        ByteBuffer[] accountPages = new ByteBuffer[OffHeapLongArray.pageCount(accountCapacity)];
+        for (int page = 0; page < accountPages.length; page++) {
+            int bytes = OffHeapLongArray.pageBytes(accountCapacity, page);
+            accountPages[page] = map(channel, offset, bytes);
+            offset += bytes;
+        }
+
+        return new OffHeapTokenStore(chunkSize, chunks, lastChunkPosition, size,
+                new OffHeapLongArray(tokenCapacity, tokenPages), tokensUsed,
+                new OffHeapLongArray(accountCapacity, accountPages), accountsUsed);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, int bytes) throws IOException {
+        return channel.map(FileChannel.MapMode.PRIVATE, position, bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private long findToken(byte[] raw) {
+        long hash = tokenHash(raw);
+        long mask = tokenIndex.mask;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long value = tokenIndex.slots.get(slot);
+            if (value == 0) {
+                return -1;
+            }
+            long address = (value & ADDRESS_MASK) - 1;
+            if (fingerprint(value) == fingerprint(hash) && equalsAt(chunk(address), offset(address), raw)) {
+                return address;
+            }
+        }
+    }
+
+    private long findAccount(byte[] account, int length) {
+        long hash = accountHash(account, length);
+        long mask = accountIndex.mask;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long value = accountIndex.slots.get(slot);
+            if (value == 0) {
+                return -1;
+            }
+            long address = (value & ADDRESS_MASK) - 1;
+            if (fingerprint(value) == fingerprint(hash)) {
+                ByteBuffer chunk = chunk(address);
+                int offset = offset(address);
+                if (accountLength(chunk, offset) == length
+                        && equalsAt(chunk, offset + RECORD_HEADER_BYTES, account, length)) {
+                    return address;
+                }
+            }
+        }
+    }
+
+    private void remove(long address) {
+        tokenIndex.remove(address);
+        accountIndex.remove(address);
+        size--;
+    }
+
+    private long append(byte[] raw, byte[] account, int length) {
+        int recordSize = RECORD_HEADER_BYTES + length;
+        if (current == null || current.remaining() < recordSize) {
+            current = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.nativeOrder());
+            chunks.add(current);
+        }
+        int offset = current.position();
+        current.put(raw).putShort((short) length).put(account, 0, length);
+        return ((long) (chunks.size() - 1) << OFFSET_BITS) | offset;
+    }
+
+    private String readToken(long address, TokenScratch scratch) {
+        return scratch.encode(chunk(address), offset(address));
+    }
+
+    private String readAccountNumber(long address, TokenScratch scratch) {
+        ByteBuffer chunk = chunk(address);
+        int offset = offset(address);
+        int length = accountLength(chunk, offset);
+        byte[] account = scratch.bytes(length);
+        chunk.get(offset + RECORD_HEADER_BYTES, account, 0, length);
+        return new String(account, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks.get((int) (address >>> OFFSET_BITS));
+    }
+
+    private static int offset(long address) {
+        return (int) (address & (MAX_CHUNK_BYTES - 1));
+    }
+
+    private static int accountLength(ByteBuffer chunk, int offset) {
+        return chunk.getShort(offset + RAW_TOKEN_BYTES) & 0xFFFF;
+    }
+
+    private static boolean equalsAt(ByteBuffer chunk, int offset, byte[] bytes) {
+        return equalsAt(chunk, offset, bytes, bytes.length);
+    }
+
+    private static boolean equalsAt(ByteBuffer chunk, int offset, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Tokens are uniformly random, so a mix of the first 8 bytes is enough.
+    private static long tokenHash(ByteBuffer buffer, int offset) {
+        return mix(buffer.getLong(offset));
+    }
+
+    // Same as above for a raw token on the heap, read in the arenas' native order.
+    private static long tokenHash(byte[] raw) {
+        return mix((long) NATIVE_LONG.get(raw, 0));
+    }
+
+    private static long accountHash(byte[] account, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (account[i] & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long accountHash(ByteBuffer chunk, int offset, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (chunk.get(offset + i) & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 finaliser.
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long fingerprint(long value) {
+        return value >>> ADDRESS_BITS;
+    }
+
+    /**
+     * Open addressing table of record addresses. Grows by doubling and rehashing from the arena.
+     */
+    private abstract static class Index {
+
+        private OffHeapLongArray slots;
+        private long mask;
+        private long used;
+
+        Index(OffHeapLongArray slots, long used) {
+            this.slots = slots;
+            this.mask = slots.length() - 1;
+            this.used = used;
+        }
+
+        abstract long hashOf(long address);
+
+        void insert(long address, long hash) {
+            if (used + 1 > slots.length() * MAX_LOAD_FACTOR) {
+                grow();
+            }
+            place(slots, mask, address, hash);
+            used++;
+        }
+
+        /**
+         * Remove a record's slot, shifting later slots of the probe run back so lookups still reach them.
+         */
+        void remove(long address) {
+            long slot = hashOf(address) & mask;
+            while ((slots.get(slot) & ADDRESS_MASK) != address + 1) {
+                slot = (slot + 1) & mask;
+            }
+            for (long next = (slot + 1) & mask; ; next = (next + 1) & mask) {
+                long value = slots.get(next);
+                if (value == 0) {
+                    break;
+                }
+                long home = hashOf((value & ADDRESS_MASK) - 1) & mask;
+                // Move it into the hole unless its home lies cyclically after the hole, up to its slot.
+                boolean homeAfterHole = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+                if (!homeAfterHole) {
+                    slots.set(slot, value);
+                    slot = next;
+                }
+            }
+            slots.set(slot, 0);
+            used--;
+        }
+
+        private void grow() {
+            long capacity = slots.length() * 2;
+            OffHeapLongArray grown = new OffHeapLongArray(capacity);
+            for (long slot = 0; slot < slots.length(); slot++) {
+                long value = slots.get(slot);
+                if (value != 0) {
+                    long address = (value & ADDRESS_MASK) - 1;
+                    place(grown, capacity - 1, address, hashOf(address));
+                }
+            }
+            slots = grown;
+            mask = capacity - 1;
+        }
+
+        private static void place(OffHeapLongArray table, long mask, long address, long hash) {
+            long slot = hash & mask;
+            while (table.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.set(slot, (hash & ~ADDRESS_MASK) | (address + 1));
+        }
+    }
+
+    private final class TokenIndex extends Index {
+
+        TokenIndex(OffHeapLongArray slots, long used) {
+            super(slots, used);
+        }
+
+        @Override
+        long hashOf(long address) {
+            return tokenHash(chunk(address), offset(address));
+        }
+    }
+
+    private final class AccountIndex extends Index {
+
+        AccountIndex(OffHeapLongArray slots, long used) {
+            super(slots, used);
+        }
+
+        @Override
+        long hashOf(long address) {
+            ByteBuffer chunk = chunk(address);
+            int offset = offset(address);
+            return accountHash(chunk, offset + RECORD_HEADER_BYTES, accountLength(chunk, offset));
+        }
+    }
+}
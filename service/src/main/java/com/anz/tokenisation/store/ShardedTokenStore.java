@@ -0,0 +1,310 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Token store partitioned over several embedded shards (off-heap or file stores).
+ * Accounts are routed by a consistent hash ring, and the first character of every token issued here is the
+ * Base64 digit of its shard, so a token leads straight to the shard holding it with no broadcast. Batches are
+ * split per shard and the shards are called in parallel, one call per shard touched; results are keyed maps,
+ * the service puts them back into request order.
+ * All shards live in this process: sharding spreads work over the cores and disks of one node, not over nodes.
+ * File shards record their layout (shard count and ring points) next to the shard directories, and a store
+ * configured with another layout refuses to open, since its tokens and ring would route to the wrong shards.
+ */
+@Component
+@ConditionalOnProperty(name = "tokenisation.store.type", havingValue = "sharded")
+public class ShardedTokenStore implements TokenStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedTokenStore.class);
+
+    static final String LAYOUT_FILE = "layout.properties";
+
+    private final TokenStore[] shards;
+    private final ConsistentHashRing ring;
+    private final ExecutorService executor;
+
+    public ShardedTokenStore(TokenisationProperties properties) throws IOException {
+        TokenisationProperties.Store.Sharded sharded = properties.getStore().getSharded();
+        int count = sharded.getShards();
+        if (sharded.getEngine() == TokenisationProperties.Store.Sharded.Engine.FILE) {
+            checkLayout(properties.getStore().getFile().getDirectory(), count, sharded.getVirtualNodes());
+        }
+        this.shards = new TokenStore[count];
+        for (int shard = 0; shard < count; shard++) {
+            TokenisationProperties shardProperties = shardProperties(properties, shard, count);
+            shards[shard] = sharded.getEngine() == TokenisationProperties.Store.Sharded.Engine.FILE
+                    ? new FileTokenStore(shardProperties)
+                    : new OffHeapTokenStore(shardProperties);
+        }
+        this.ring = new ConsistentHashRing(count, sharded.getVirtualNodes());
+        this.executor = Executors.newFixedThreadPool(count,
+                Thread.ofPlatform().name("token-shard-", 0).daemon().factory());
+        log.info("Sharded token store opened with {} {} shards", count, sharded.getEngine());
+    }
+
+    /**
+     * Shard an account number belongs to.
+     */
+    public int shardOfAccount(String accountNumber) {
+        return ring.shardFor(accountNumber);
+    }
+
+    /**
+     * Shard recorded in a token, or -1 for a token this store can't have issued.
+     */
+    public int shardOfToken(String token) {
+        if (token.isEmpty()) {
+            return -1;
+        }
+        int shard = TokenCodec.value(token.charAt(0));
+        return shard < shards.length ? shard : -1;
+    }
+
+    @Override
+    public Map<String, String> findTokensByAccountNumbers(Collection<String> accountNumbers) {
+        List<List<String>> groups = newGroups();
+        for (String accountNumber : accountNumbers) {
+            group(groups, shardOfAccount(accountNumber)).add(accountNumber);
+        }
+        Map<String, String> tokensByAccount = new HashMap<>();
+        fanOut(groups, TokenStore::findTokensByAccountNumbers).forEach(tokensByAccount::putAll);
+        return tokensByAccount;
+    }
+
+    @Override
+    public Map<String, String> findAccountNumbersByTokens(Collection<String> tokens) {
+        Map<String, String> accountsByToken = new HashMap<>();
+        fanOut(groupTokens(tokens), TokenStore::findAccountNumbersByTokens).forEach(accountsByToken::putAll);
+        return accountsByToken;
+    }
+
+    @Override
+    public Set<String> findExistingTokens(Collection<String> tokens) {
+        Set<String> existing = new HashSet<>();
+        fanOut(groupTokens(tokens), TokenStore::findExistingTokens).forEach(existing::addAll);
+        return existing;
+    }
+
+    /**
+     * Each mapping goes to the shard of its account, with the token's first character set to that shard.
+     * The returned mapping carries the token as stored, which is what the caller hands out.
+     */
+    @Override
+    public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+        List<Map<String, String>> groups = new ArrayList<>(Collections.nCopies(shards.length, null));
+        tokensByAccount.forEach((accountNumber, token) -> {
+            int shard = shardOfAccount(accountNumber);
+            if (groups.get(shard) == null) {
+                groups.set(shard, new LinkedHashMap<>());
+            }
+            groups.get(shard).put(accountNumber, TokenCodec.digit(shard) + token.substring(1));
+        });
+        Map<String, String> saved = new HashMap<>();
+        fanOut(groups, TokenStore::saveAll).forEach(saved::putAll);
+        return saved;
+    }
+
+    /**
+     * Tokens already carry their shard. One whose shard isn't its account's comes from a store with another
+     * shard layout and can't be loaded without changing it.
+     */
+    @Override
+    public void load(Map<String, String> tokensByAccount) {
+        tokensByAccount.forEach((accountNumber, token) -> {
+            if (shardOfToken(token) != shardOfAccount(accountNumber)) {
+                throw new IllegalStateException("Token " + token + " belongs to another shard layout");
+            }
+        });
+        saveAll(tokensByAccount);
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (TokenStore shard : shards) {
+            count += shard.count();
+        }
+        return count;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (TokenStore shard : shards) {
+            shard.forEach(action);
+        }
+    }
+
+    /**
+     * Mappings held per shard, in shard order.
+     */
+    public long[] shardCounts() {
+        long[] counts = new long[shards.length];
+        for (int shard = 0; shard < shards.length; shard++) {
+            counts[shard] = shards[shard].count();
+        }
+        return counts;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        for (TokenStore shard : shards) {
+            if (shard instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+    }
+
+    /**
+     * One slot per shard, null until the shard gets a value.
+     */
+    private List<List<String>> newGroups() {
+        return new ArrayList<>(Collections.nCopies(shards.length, null));
+    }
+
+    private static List<String> group(List<List<String>> groups, int shard) {
+        List<String> group = groups.get(shard);
+        if (group == null) {
+            group = new ArrayList<>();
+            groups.set(shard, group);
+        }
+        return group;
+    }
+
+    /**
+     * Tokens per shard. Tokens that name no shard can't exist here and are dropped.
+     */
+    private List<List<String>> groupTokens(Collection<String> tokens) {
+        List<List<String>> groups = newGroups();
+        for (String token : tokens) {
+            int shard = shardOfToken(token);
+            if (shard >= 0) {
+                group(groups, shard).add(token);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Call every shard that has a group, in parallel when there is more than one.
+     * The calling thread takes the last shard itself instead of waiting idle.
+     */
+    private <G, R> List<R> fanOut(List<G> groups, BiFunction<TokenStore, G, R> call) {
+        List<Integer> touched = new ArrayList<>();
+        for (int shard = 0; shard < groups.size(); shard++) {
+            if (groups.get(shard) != null) {
+                touched.add(shard);
+            }
+        }
+        List<R> results = new ArrayList<>(touched.size());
+        if (touched.isEmpty()) {
+            return results;
+        }
+
+        List<Future<R>> futures = new ArrayList<>(touched.size() - 1);
+        for (int i = 0; i < touched.size() - 1; i++) {
+            int shard = touched.get(i);
+            futures.add(executor.submit(() -> call.apply(shards[shard], groups.get(shard))));
+        }
+        int last = touched.get(touched.size() - 1);
+        results.add(call.apply(shards[last], groups.get(last)));
+        for (Future<R> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a token store shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Token store shard failed", e.getCause());
+        }
+    }
+
+    /**
+     * Record the layout on first open, afterwards refuse any other. Data written before layouts were recorded
+     * adopts the configured one.
+     */
+    private static void checkLayout(Path directory, int shards, int virtualNodes) throws IOException {
+        Path file = directory.resolve(LAYOUT_FILE);
+        Properties layout = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+                layout.load(reader);
+            }
+            String recordedShards = layout.getProperty("shards");
+            String recordedVirtualNodes = layout.getProperty("virtual-nodes");
+            if (!String.valueOf(shards).equals(recordedShards) || !String.valueOf(virtualNodes).equals(recordedVirtualNodes)) {
+                throw new IllegalStateException("Sharded store in " + directory + " has " + recordedShards + " shards and "
+                        + recordedVirtualNodes + " virtual nodes, configured " + shards + " and " + virtualNodes
+                        + "; changing the layout needs a migration");
+            }
+            return;
+        }
+        Files.createDirectories(directory);
+        layout.setProperty("shards", String.valueOf(shards));
+        layout.setProperty("virtual-nodes", String.valueOf(virtualNodes));
+        Path temporary = directory.resolve(LAYOUT_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.ISO_8859_1)) {
+            layout.store(writer, "Sharded token store layout, fixed for the lifetime of the data");
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The settings one shard runs with: its share of the capacity and, for files, its own directory.
+     */
+    private static TokenisationProperties shardProperties(TokenisationProperties properties, int shard, int count) {
+        TokenisationProperties.Store.OffHeap offHeap = properties.getStore().getOffHeap();
+        TokenisationProperties.Store.File file = properties.getStore().getFile();
+        TokenisationProperties shardProperties = new TokenisationProperties();
+        TokenisationProperties.Store.OffHeap shardOffHeap = shardProperties.getStore().getOffHeap();
+        shardOffHeap.setChunkSize(offHeap.getChunkSize());
+        shardOffHeap.setInitialCapacity(Math.max(1024, offHeap.getInitialCapacity() / count));
+        TokenisationProperties.Store.File shardFile = shardProperties.getStore().getFile();
+        shardFile.setDirectory(file.getDirectory().resolve("shard-" + shard));
+        shardFile.setCommitInterval(file.getCommitInterval());
+        shardFile.setSnapshotInterval(file.getSnapshotInterval());
+        shardFile.setSnapshotOnShutdown(file.isSnapshotOnShutdown());
+        return shardProperties;
+    }
+}
@@ -0,0 +1,540 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.repository.TokenBatchInserter;
+import com.anz.tokenisation.repository.TokenRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Two tier token store: an off-heap hot tier in front of the JPA database.
+ * Reads go to the hot tier first and promote what they find in the database. New mappings go into the hot
+ * tier and a write-behind queue, which a single thread writes to the database in batched transactions.
+ * saveAll returns at the configured durability point: once in memory, once in the group committed write-ahead
+ * log (replayed into the database at the next start), or once the database transaction that carries them
+ * has committed. Unflushed mappings stay readable from the hot tier.
+ * The hot tier is bounded: it holds two generations of at most hot-capacity mappings, and when the newer one
+ * fills up the older one is dropped, after waiting for its last write-behind to commit, so only mappings the
+ * database holds are ever evicted. Hits in the older generation are promoted into the newer one.
+ * Assumes this node is the only writer of the database, like the membership filter. Should another writer
+ * have stored a different token for an account, the write-behind adopts the database's token in the hot tier
+ * and counts a conflict. A token the database holds for another account is replaced with a fresh one and
+ * retried, also counted as a conflict.
+ */
+@Component
+@ConditionalOnProperty(name = "tokenisation.store.type", havingValue = "tiered")
+public class TieredTokenStore implements TokenStore, MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredTokenStore.class);
+
+    private static final String LOG_FILE = "write-behind.log";
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAILURE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenisationProperties properties;
+    private final long hotCapacity;
+    // Replaced under the write lock only; readers take both references once per call.
+    private volatile Generation hot;
+    private volatile Generation older;
+    private final TokenStore cold;
+    // The JPA store built here isn't a proxied bean, its streaming forEach needs a transaction opened for it.
+    private final TransactionTemplate coldReads;
+    private final TokenisationProperties.Store.Tiered.Durability durability;
+    private final TokenLog writeAheadLog;
+    private final int flushBatch;
+    private final long flushIntervalNanos;
+
+    // Orders hot tier inserts with log appends and queueing, so the log and the queue agree with the hot tier.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong unflushed = new AtomicLong();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    // Fresh tokens for accounts whose token collided in the database, drawn by the flusher only.
+    private final SecureRandom random = new SecureRandom();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    @Autowired
+    public TieredTokenStore(TokenisationProperties properties, TokenRepository tokenRepository,
+                            TokenBatchInserter batchInserter, PlatformTransactionManager transactionManager)
+            throws IOException {
+        this(properties, new JpaTokenStore(tokenRepository, properties, batchInserter), readOnly(transactionManager));
+    }
+
+    /**
+     * Over any cold tier, for tests.
+     */
+    TieredTokenStore(TokenisationProperties properties, TokenStore cold) throws IOException {
+        this(properties, cold, null);
+    }
+
+    private TieredTokenStore(TokenisationProperties properties, TokenStore cold, TransactionTemplate coldReads)
+            throws IOException {
+        TokenisationProperties.Store.Tiered tiered = properties.getStore().getTiered();
+        this.properties = properties;
+        this.hotCapacity = tiered.getHotCapacity();
+        this.hot = new Generation(new OffHeapTokenStore(properties));
+        this.cold = cold;
+        this.coldReads = coldReads;
+        this.durability = tiered.getDurability();
+        this.flushBatch = tiered.getFlushBatch();
+        this.flushIntervalNanos = tiered.getFlushInterval().toNanos();
+
+        if (durability == TokenisationProperties.Store.Tiered.Durability.WAL) {
+            TokenisationProperties.Store.File file = properties.getStore().getFile();
+            Files.createDirectories(file.getDirectory());
+            Path path = file.getDirectory().resolve(LOG_FILE);
+            long replayed;
+            try (TokenLog previous = new TokenLog(path, file.getCommitInterval())) {
+                // Insert-or-fetch makes the replay idempotent for mappings the previous run already flushed.
+                replayed = previous.replay(0, cold::saveAll);
+            }
+            // Everything in the old log is committed now, start the next one empty. From here on the log
+            // forgets what the write-behind commits, so it only ever holds mappings the database may lack.
+            Files.delete(path);
+            this.writeAheadLog = new TokenLog(path, file.getCommitInterval(), tiered.getWalRewriteSize().toBytes());
+            writeAheadLog.start();
+            log.info("Tiered token store replayed {} write-ahead log records into the database", replayed);
+        } else {
+            this.writeAheadLog = null;
+        }
+        this.flusher = Thread.ofPlatform().name("token-write-behind").daemon().start(this::flushLoop);
+    }
+
+    @Override
+    public Map<String, String> findTokensByAccountNumbers(Collection<String> accountNumbers) {
+        Generation newer = hot;
+        Generation previous = older;
+        Map<String, String> tokensByAccount = newer.store.findTokensByAccountNumbers(accountNumbers);
+        if (tokensByAccount.size() < accountNumbers.size()) {
+            List<String> misses = misses(accountNumbers, tokensByAccount.keySet());
+            if (previous != null) {
+                Map<String, String> found = previous.store.findTokensByAccountNumbers(misses);
+                promote(newer, found);
+                tokensByAccount.putAll(found);
+                misses.removeAll(found.keySet());
+            }
+            Map<String, String> found = misses.isEmpty() ? Map.of() : cold.findTokensByAccountNumbers(misses);
+            promote(newer, found);
+            tokensByAccount.putAll(found);
+        }
+        return tokensByAccount;
+    }
+
+    @Override
+    public Map<String, String> findAccountNumbersByTokens(Collection<String> tokens) {
+        Generation newer = hot;
+        Generation previous = older;
+        Map<String, String> accountsByToken = newer.store.findAccountNumbersByTokens(tokens);
+        if (accountsByToken.size() < tokens.size()) {
+            List<String> misses = misses(tokens, accountsByToken.keySet());
+            if (previous != null) {
+                Map<String, String> found = previous.store.findAccountNumbersByTokens(misses);
+                promote(newer, inverse(found));
+                accountsByToken.putAll(found);
+                misses.removeAll(found.keySet());
+            }
+            Map<String, String> found = misses.isEmpty() ? Map.of() : cold.findAccountNumbersByTokens(misses);
+            promote(newer, inverse(found));
+            accountsByToken.putAll(found);
+        }
+        return accountsByToken;
+    }
+
+    @Override
+    public Set<String> findExistingTokens(Collection<String> tokens) {
+        Generation previous = older;
+        Set<String> existing = new HashSet<>(hot.store.findExistingTokens(tokens));
+        if (existing.size() < tokens.size() && previous != null) {
+            existing.addAll(previous.store.findExistingTokens(misses(tokens, existing)));
+        }
+        if (existing.size() < tokens.size()) {
+            List<String> misses = misses(tokens, existing);
+            if (!misses.isEmpty()) {
+                existing.addAll(cold.findExistingTokens(misses));
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Insert into the hot tier and queue the new mappings for the database, then wait for the durability point.
+     * Waiting happens outside the write lock, so concurrent callers share one fsync or one transaction.
+     */
+    @Override
+    public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+        Map<String, String> saved;
+        PendingWrite pending = null;
+        long logEnd = -1;
+        writeLock.lock();
+        try {
+            Generation newer = hot;
+            // An account the older generation holds keeps its token, and moves to the newer generation.
+            Map<String, String> held = older == null ? Map.of() : older.store.findTokensByAccountNumbers(tokensByAccount.keySet());
+            if (held.isEmpty()) {
+                saved = newer.store.saveAll(tokensByAccount);
+            } else {
+                Map<String, String> fresh = new LinkedHashMap<>(tokensByAccount);
+                fresh.keySet().removeAll(held.keySet());
+                newer.store.saveAll(held);
+                saved = newer.store.saveAll(fresh);
+                saved.putAll(held);
+            }
+            Map<String, String> created = new LinkedHashMap<>();
+            saved.forEach((accountNumber, token) -> {
+                if (token.equals(tokensByAccount.get(accountNumber))) {
+                    created.put(accountNumber, token);
+                }
+            });
+            if (!created.isEmpty()) {
+                if (writeAheadLog != null) {
+                    logEnd = writeAheadLog.append(created);
+                }
+                pending = new PendingWrite(created);
+                pending.logEnd = logEnd;
+                unflushed.addAndGet(created.size());
+                queue.add(pending);
+                newer.lastWrite = pending;
+            }
+            rotateIfFull();
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (pending != null) {
+            switch (durability) {
+                case WAL -> writeAheadLog.awaitDurable(logEnd);
+                case DATABASE -> pending.committed.join();
+                case MEMORY -> {
+                }
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Mappings in the database plus those still waiting to be written behind.
+     */
+    @Override
+    public long count() {
+        return cold.count() + unflushed.get();
+    }
+
+    /**
+     * Visits the database after writing everything queued so far.
+     */
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        flush();
+        if (coldReads != null) {
+            coldReads.executeWithoutResult(status -> cold.forEach(action));
+        } else {
+            cold.forEach(action);
+        }
+    }
+
+    /**
+     * The database in token order, after writing everything queued so far.
+     */
+    @Override
+    public void forEachInTokenOrder(BiConsumer<String, String> action) {
+        flush();
+        if (coldReads != null) {
+            coldReads.executeWithoutResult(status -> cold.forEachInTokenOrder(action));
+        } else {
+            cold.forEachInTokenOrder(action);
+        }
+    }
+
+    /**
+     * Block until every mapping queued before the call is committed to the database.
+     */
+    public void flush() {
+        PendingWrite marker = new PendingWrite(Map.of());
+        queue.add(marker);
+        marker.committed.join();
+    }
+
+    /**
+     * Mappings held by the hot tier, both generations.
+     */
+    public long hotSize() {
+        Generation previous = older;
+        return hot.store.size() + (previous == null ? 0 : previous.store.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tokenisation.store.tiered.hot.mappings", this, TieredTokenStore::hotSize)
+                .description("Mappings held by the hot tier")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.store.tiered.evictions", evicted, LongAdder::sum)
+                .description("Written behind mappings dropped from the hot tier with its older generation")
+                .register(registry);
+        FunctionCounter.builder("tokenisation.store.tiered.conflicts", conflicts, LongAdder::sum)
+                .description("Write-behind mappings whose account or token the database already held otherwise")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.MINUTES.toMillis(1));
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+
+    /**
+     * Copy mappings found below the newer generation into it, so the next lookup stops there.
+     */
+    private void promote(Generation newer, Map<String, String> tokensByAccount) {
+        if (tokensByAccount.isEmpty()) {
+            return;
+        }
+        newer.store.saveAll(tokensByAccount);
+        if (newer.store.size() >= hotCapacity) {
+            writeLock.lock();
+            try {
+                rotateIfFull();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Under the write lock: once the newer generation is full, drop the older one and start a new one.
+     * The older generation's mappings were queued a whole generation ago, so its last write has almost
+     * always committed; if not, waiting for it keeps unflushed mappings readable.
+     */
+    private void rotateIfFull() {
+        Generation full = hot;
+        if (full.store.size() < hotCapacity) {
+            return;
+        }
+        Generation retired = older;
+        if (retired != null) {
+            if (retired.lastWrite != null) {
+                retired.lastWrite.committed.join();
+            }
+            evicted.add(retired.store.size());
+        }
+        older = full;
+        hot = new Generation(new OffHeapTokenStore(properties));
+        log.debug("Hot tier generation of {} mappings retired", full.store.size());
+    }
+
+    private static List<String> misses(Collection<String> values, Set<String> found) {
+        List<String> misses = new ArrayList<>();
+        for (String value : values) {
+            if (!found.contains(value)) {
+                misses.add(value);
+            }
+        }
+        return misses;
+    }
+
+    private static Map<String, String> inverse(Map<String, String> map) {
+        Map<String, String> inverse = HashMap.newHashMap(map.size());
+        map.forEach((key, value) -> inverse.put(value, key));
+        return inverse;
+    }
+
+    private static TransactionTemplate readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            PendingWrite first;
+            try {
+                first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            if (flushIntervalNanos > 0 && running) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            batch.add(first);
+            int mappings = first.tokensByAccount.size();
+            PendingWrite next;
+            while (mappings < flushBatch && (next = queue.peek()) != null
+                    && mappings + next.tokensByAccount.size() <= flushBatch) {
+                batch.add(queue.poll());
+                mappings += next.tokensByAccount.size();
+            }
+            write(batch, mappings);
+            forget(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * One transaction for the batch, retried until the database takes it; nothing queued is dropped.
+     * Accounts the database leaves out, because their token collided with another account's row, are
+     * retried with fresh tokens; the batch only completes once every account has a row.
+     */
+    private void write(List<PendingWrite> batch, int mappings) {
+        Map<String, String> tokensByAccount = new LinkedHashMap<>(mappings * 2);
+        for (PendingWrite pending : batch) {
+            tokensByAccount.putAll(pending.tokensByAccount);
+        }
+        Map<String, String> remaining = tokensByAccount;
+        while (!remaining.isEmpty()) {
+            try {
+                Map<String, String> saved = cold.saveAll(remaining);
+                Map<String, String> winners = new HashMap<>();
+                Map<String, String> reissued = new LinkedHashMap<>();
+                for (Map.Entry<String, String> entry : remaining.entrySet()) {
+                    String stored = saved.get(entry.getKey());
+                    if (stored == null) {
+                        reissued.put(entry.getKey(), newToken());
+                    } else if (!stored.equals(entry.getValue())) {
+                        winners.put(entry.getKey(), stored);
+                    }
+                }
+                if (!winners.isEmpty()) {
+                    adopt(winners);
+                }
+                if (!reissued.isEmpty()) {
+                    reissue(reissued);
+                }
+                remaining = reissued;
+            } catch (RuntimeException e) {
+                log.error("Write-behind of {} mappings failed, retrying", remaining.size(), e);
+                LockSupport.parkNanos(this, FAILURE_BACKOFF_NANOS);
+            }
+        }
+        unflushed.addAndGet(-tokensByAccount.size());
+        for (PendingWrite pending : batch) {
+            pending.committed.complete(null);
+        }
+    }
+
+    /**
+     * Let the write-ahead log drop what the batch committed. The log is appended in queue order, so everything
+     * before the batch's last record is in the database too.
+     */
+    private void forget(List<PendingWrite> batch) {
+        long logEnd = -1;
+        for (PendingWrite pending : batch) {
+            logEnd = Math.max(logEnd, pending.logEnd);
+        }
+        if (logEnd < 0) {
+            return;
+        }
+        try {
+            writeAheadLog.compact(logEnd);
+        } catch (IOException e) {
+            // The records stay in the log, and replaying committed mappings is harmless.
+            log.warn("Failed to compact the write-ahead log", e);
+        }
+    }
+
+    /**
+     * Replace the hot tier's tokens for accounts the database holds with other tokens, so reads agree with it.
+     * Callers already handed the replaced tokens out; those tokens stay unknown to the database.
+     */
+    private void adopt(Map<String, String> winners) {
+        replaceHot(winners);
+        conflicts.add(winners.size());
+        log.warn("{} write-behind mappings conflict with rows written by another writer, adopted the database's tokens",
+                winners.size());
+    }
+
+    /**
+     * Give accounts whose tokens another account's row already holds the fresh tokens they will be retried
+     * with, in the hot tier and, so a crash before the retry commits replays them, in the write-ahead log.
+     * Callers already handed the colliding tokens out; those tokens never reach the database.
+     */
+    private void reissue(Map<String, String> reissued) {
+        replaceHot(reissued);
+        if (writeAheadLog != null) {
+            writeAheadLog.append(reissued);
+        }
+        conflicts.add(reissued.size());
+        log.error("{} write-behind tokens are held by other accounts in the database, retrying with fresh tokens",
+                reissued.size());
+    }
+
+    private void replaceHot(Map<String, String> tokensByAccount) {
+        // Not under the write lock: a rotation holds it while waiting for this thread's commits.
+        Generation newer = hot;
+        Generation previous = older;
+        tokensByAccount.forEach((accountNumber, token) -> {
+            newer.store.replace(accountNumber, token);
+            if (previous != null && !previous.store.findTokensByAccountNumbers(List.of(accountNumber)).isEmpty()) {
+                previous.store.replace(accountNumber, token);
+            }
+        });
+    }
+
+    private String newToken() {
+        byte[] raw = new byte[TokenCodec.RAW_TOKEN_BYTES];
+        random.nextBytes(raw);
+        return TokenCodec.encode(raw, 0, new byte[TokenCodec.TOKEN_LENGTH]);
+    }
+
+    private static final class Generation {
+
+        private final OffHeapTokenStore store;
+        // Last write-behind queued while this was the newer generation.
+        private volatile PendingWrite lastWrite;
+
+        Generation(OffHeapTokenStore store) {
+            this.store = store;
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final Map<String, String> tokensByAccount;
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+        // Write-ahead log position after these mappings, -1 without a log. Set before queueing.
+        private long logEnd = -1;
+
+        PendingWrite(Map<String, String> tokensByAccount) {
+            this.tokensByAccount = tokensByAccount;
+        }
+    }
+}
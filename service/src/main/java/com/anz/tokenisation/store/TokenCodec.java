@@ -0,0 +1,79 @@
+package com.anz.tokenisation.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Table driven Base64 URL codec (no padding) between a vault token's 24 raw bytes and its 32 characters.
+ * The generator, the binary wire format and the off-heap engines all encode through here, into buffers
+ * the caller owns, so none of them allocate more than the token Strings they return.
+ */
+public final class TokenCodec {
+
+    public static final int TOKEN_LENGTH = 32;
+    public static final int RAW_TOKEN_BYTES = 24;
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = i;
+        }
+    }
+
+    private TokenCodec() {
+    }
+
+    /**
+     * The 24 raw bytes at offset of raw, as a token.
+     *
+     * @param encoded scratch of at least 32 bytes
+     */
+    public static String encode(byte[] raw, int offset, byte[] encoded) {
+        for (int in3 = offset, out4 = 0; out4 < TOKEN_LENGTH; in3 += 3, out4 += 4) {
+            int bits = (raw[in3] & 0xFF) << 16 | (raw[in3 + 1] & 0xFF) << 8 | (raw[in3 + 2] & 0xFF);
+            encoded[out4] = ALPHABET[bits >>> 18];
+            encoded[out4 + 1] = ALPHABET[(bits >>> 12) & 0x3F];
+            encoded[out4 + 2] = ALPHABET[(bits >>> 6) & 0x3F];
+            encoded[out4 + 3] = ALPHABET[bits & 0x3F];
+        }
+        return new String(encoded, 0, TOKEN_LENGTH, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decode a token into 24 bytes at offset of raw; false, with raw partly written, if it isn't one.
+     */
+    public static boolean decode(String token, byte[] raw, int offset) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            return false;
+        }
+        for (int in4 = 0, out3 = offset; in4 < TOKEN_LENGTH; in4 += 4, out3 += 3) {
+            int bits = value(token.charAt(in4)) << 18 | value(token.charAt(in4 + 1)) << 12
+                    | value(token.charAt(in4 + 2)) << 6 | value(token.charAt(in4 + 3));
+            if (bits < 0) {
+                return false;
+            }
+            raw[out3] = (byte) (bits >>> 16);
+            raw[out3 + 1] = (byte) (bits >>> 8);
+            raw[out3 + 2] = (byte) bits;
+        }
+        return true;
+    }
+
+    /**
+     * The character of a 6 bit value, 0 to 63.
+     */
+    public static char digit(int value) {
+        return (char) ALPHABET[value];
+    }
+
+    /**
+     * The 6 bit value of a character, negative outside the alphabet (which makes combined bits negative).
+     */
+    public static int value(char c) {
+        return c < VALUES.length ? VALUES[c] : -1;
+    }
+}
@@ -0,0 +1,339 @@
+package com.anz.tokenisation.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of token records written through a FileChannel.
+ * Record layout: [u16 account length][24 raw token bytes][account bytes][u32 CRC32C of the preceding bytes].
+ * Durability uses group commit: a single flusher thread fsyncs everything appended so far,
+ * so concurrent writers share one force() instead of paying for one each.
+ * Positions are logical and keep counting when {@link #compact} drops records the caller has stored elsewhere.
+ */
+final class TokenLog implements Closeable {
+
+    private static final int RECORD_HEADER_BYTES = Short.BYTES + OffHeapTokenStore.RAW_TOKEN_BYTES;
+    private static final int RECORD_OVERHEAD_BYTES = RECORD_HEADER_BYTES + Integer.BYTES;
+    private static final int REPLAY_BUFFER_BYTES = 1 << 20;
+    private static final int REPLAY_BATCH = 10_000;
+
+    private final Path path;
+    private final long commitIntervalNanos;
+    private final long rewriteBytes;
+    // Held around force() and while compact swaps or truncates the file, taken before lock.
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private FileChannel channel;
+    // Logical position of the file's first byte.
+    private long base;
+    private long writePosition;
+    private long durablePosition;
+    private IOException failure;
+    private Thread flusher;
+    private volatile boolean closed;
+
+    TokenLog(Path path, Duration commitInterval) throws IOException {
+        this(path, commitInterval, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param rewriteBytes forgotten bytes after which {@link #compact} copies the remaining records to a fresh file
+     */
+    TokenLog(Path path, Duration commitInterval, long rewriteBytes) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.rewriteBytes = rewriteBytes;
+    }
+
+    /**
+     * Replay records from a position, handing them over in batches (account number -> token).
+     * Stops at the first torn or corrupt record, truncates the log there and returns the record count.
+     */
+    long replay(long from, Consumer<Map<String, String>> handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(REPLAY_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        TokenScratch scratch = TokenScratch.get();
+        Map<String, String> batch = new LinkedHashMap<>();
+        long position = Math.min(from, channel.size());
+        long records = 0;
+
+        buffer.limit(0);
+        while (true) {
+            if (buffer.remaining() < RECORD_OVERHEAD_BYTES + 0xFFFF) {
+                buffer.compact();
+                int read = channel.read(buffer, position + buffer.position());
+                buffer.flip();
+                if (read <= 0 && buffer.remaining() < RECORD_OVERHEAD_BYTES) {
+                    break;
+                }
+            }
+            if (buffer.remaining() < RECORD_OVERHEAD_BYTES) {
+                break;
+            }
+            int start = buffer.position();
+            int accountLength = buffer.getShort(start) & 0xFFFF;
+            int recordBytes = RECORD_OVERHEAD_BYTES + accountLength;
+            if (buffer.remaining() < recordBytes) {
+                break; // Torn write at the tail.
+            }
+            crc.reset();
+            crc.update(buffer.duplicate().position(start).limit(start + recordBytes - Integer.BYTES));
+            if ((int) crc.getValue() != buffer.getInt(start + recordBytes - Integer.BYTES)) {
+                break; // Corrupt record, nothing after it can be trusted.
+            }
+            byte[] account = scratch.bytes(accountLength);
+            buffer.get(start + RECORD_HEADER_BYTES, account, 0, accountLength);
+            batch.put(new String(account, 0, accountLength, StandardCharsets.UTF_8),
+                    scratch.encode(buffer, start + Short.BYTES));
+            buffer.position(start + recordBytes);
+            position += recordBytes;
+            records++;
+
+            if (batch.size() == REPLAY_BATCH) {
+                handler.accept(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            handler.accept(batch);
+        }
+
+        if (channel.size() > position) {
+            channel.truncate(position);
+        }
+        writePosition = channel.size();
+        durablePosition = writePosition;
+        return records;
+    }
+
+    /**
+     * Start the group commit flusher. Call once replay is complete.
+     */
+    void start() {
+        flusher = Thread.ofPlatform().name("token-log-flusher").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Append records (account number -> token) and return the log position after them.
+     * The records are not durable until awaitDurable returns for that position.
+     */
+    long append(Map<String, String> tokensByAccount) {
+        ByteBuffer buffer = encode(tokensByAccount);
+        lock.lock();
+        try {
+            long position = writePosition;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position - base);
+            }
+            writePosition = position;
+            appended.signal();
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to token log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Block until everything up to position has been forced to disk.
+     */
+    void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durablePosition < position) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Token log fsync failed", failure);
+                }
+                if (closed) {
+                    throw new IllegalStateException("Token log is closed");
+                }
+                appended.signal();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget the records before position, which the caller has stored elsewhere, so a replay starts after them.
+     * With nothing appended after position the file is emptied; otherwise, once rewriteBytes are forgotten, the
+     * records after position are copied to a fresh file that replaces this one. Either way the log shrinks to
+     * what the caller still needs.
+     */
+    void compact(long position) throws IOException {
+        forceLock.lock();
+        lock.lock();
+        try {
+            long forgotten = position - base;
+            if (forgotten <= 0 || position > writePosition) {
+                return;
+            }
+            if (position == writePosition) {
+                channel.truncate(0);
+            } else if (forgotten >= rewriteBytes) {
+                rewrite(forgotten);
+            } else {
+                return;
+            }
+            base = position;
+            // The records left are forced (rewritten) or gone (emptied), those dropped are stored elsewhere.
+            durablePosition = writePosition;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+            forceLock.unlock();
+        }
+    }
+
+    long position() {
+        lock.lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.force(false);
+        channel.close();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (writePosition == durablePosition && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (closed) {
+                    flushed.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Give concurrent writers a moment to join this commit.
+            if (commitIntervalNanos > 0) {
+                LockSupport.parkNanos(commitIntervalNanos);
+            }
+
+            long target;
+            IOException error = null;
+            forceLock.lock();
+            try {
+                target = position();
+                channel.force(false);
+            } catch (IOException e) {
+                target = 0;
+                error = e;
+            } finally {
+                forceLock.unlock();
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durablePosition = Math.max(durablePosition, target);
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Under both locks: copy everything after the first skip bytes to a temporary file, force it and move it
+     * over the log.
+     */
+    private void rewrite(long skip) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long size = writePosition - base;
+        try (FileChannel copy = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (long from = skip; from < size; ) {
+                from += channel.transferTo(from, size - from, copy);
+            }
+            copy.force(false);
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static ByteBuffer encode(Map<String, String> tokensByAccount) {
+        int bytes = 0;
+        byte[][] accounts = new byte[tokensByAccount.size()][];
+        int i = 0;
+        for (String accountNumber : tokensByAccount.keySet()) {
+            accounts[i] = accountNumber.getBytes(StandardCharsets.UTF_8);
+            if (accounts[i].length > 0xFFFF) {
+                throw new IllegalArgumentException("Account number exceeds 65535 bytes");
+            }
+            bytes += RECORD_OVERHEAD_BYTES + accounts[i].length;
+            i++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        i = 0;
+        TokenScratch scratch = TokenScratch.get();
+        for (String token : tokensByAccount.values()) {
+            if (!scratch.decode(token)) {
+                throw new IllegalArgumentException("Token is not a 32 character Base64 URL token");
+            }
+            int start = buffer.position();
+            buffer.putShort((short) accounts[i].length).put(scratch.raw).put(accounts[i]);
+            crc.reset();
+            crc.update(buffer.array(), start, buffer.position() - start);
+            buffer.putInt((int) crc.getValue());
+            i++;
+        }
+        return buffer.flip();
+    }
+}
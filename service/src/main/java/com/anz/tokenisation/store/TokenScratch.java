@@ -0,0 +1,81 @@
+package com.anz.tokenisation.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-thread scratch buffers for the off-heap engines, encoding raw tokens through {@link TokenCodec}.
+ * Tokens and account numbers cross the SPI boundary through these buffers, so a lookup allocates only the
+ * Strings it returns: no byte[] per value and no Base64 encoder or decoder output arrays.
+ * A buffer's contents are valid until the same thread's next call.
+ * The reuse holds on platform threads, which serve many calls. A virtual thread usually serves one request,
+ * so it fills its own small set of buffers once and drops them with the thread.
+ */
+final class TokenScratch {
+
+    private static final ThreadLocal<TokenScratch> CURRENT = ThreadLocal.withInitial(TokenScratch::new);
+
+    /**
+     * Raw bytes of the last token decoded.
+     */
+    final byte[] raw = new byte[TokenCodec.RAW_TOKEN_BYTES];
+    // Encoding's own raw copy, so encoding doesn't clobber a decoded token.
+    private final byte[] encodeRaw = new byte[TokenCodec.RAW_TOKEN_BYTES];
+    private final byte[] encoded = new byte[TokenCodec.TOKEN_LENGTH];
+    private byte[] bytes = new byte[64];
+
+    private TokenScratch() {
+    }
+
+    static TokenScratch get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Decode a 32 character token into {@link #raw}; false if it isn't one.
+     */
+    boolean decode(String token) {
+        return TokenCodec.decode(token, raw, 0);
+    }
+
+    /**
+     * The token for the raw bytes at an absolute offset of buffer.
+     */
+    String encode(ByteBuffer buffer, int offset) {
+        buffer.get(offset, encodeRaw);
+        return TokenCodec.encode(encodeRaw, 0, encoded);
+    }
+
+    /**
+     * UTF-8 encode value into {@link #bytes()} and return the length. ASCII, the usual account number,
+     * is copied char by char; anything else takes the allocating JDK encoder.
+     */
+    int encodeUtf8(String value) {
+        int length = value.length();
+        byte[] buffer = bytes(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(encoded, 0, bytes(encoded.length), 0, encoded.length);
+                return encoded.length;
+            }
+            buffer[i] = (byte) c;
+        }
+        return length;
+    }
+
+    /**
+     * The byte buffer, grown to hold at least length bytes.
+     */
+    byte[] bytes(int length) {
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, 2 * bytes.length)];
+        }
+        return bytes;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,62 @@
+package com.anz.tokenisation.store;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage SPI for token to account number mappings.
+ * All methods are set based so engines can resolve a whole batch per call.
+ */
+public interface TokenStore {
+
+    /**
+     * Existing tokens keyed by account number. Accounts without a token are absent from the result.
+     */
+    Map<String, String> findTokensByAccountNumbers(Collection<String> accountNumbers);
+
+    /**
+     * Account numbers keyed by token. Unknown tokens are absent from the result.
+     */
+    Map<String, String> findAccountNumbersByTokens(Collection<String> tokens);
+
+    /**
+     * The subset of the given tokens that are already issued.
+     */
+    Set<String> findExistingTokens(Collection<String> tokens);
+
+    /**
+     * Persist new mappings (account number -> token) with insert-or-fetch semantics.
+     * Returns the mapping in effect for each account after the call: the new token, or the existing one
+     * where another writer tokenised the account first. Accounts whose new token is already issued
+     * to another account are absent from the result, so the caller can retry them with a fresh token.
+     */
+    Map<String, String> saveAll(Map<String, String> tokensByAccount);
+
+    /**
+     * Bulk load mappings that don't conflict with any held, e.g. a snapshot restored into an empty store.
+     * Engines may skip the insert-or-fetch checks of saveAll; a conflict is an error.
+     */
+    default void load(Map<String, String> tokensByAccount) {
+        saveAll(tokensByAccount);
+    }
+
+    /**
+     * Number of mappings held.
+     */
+    long count();
+
+    /**
+     * Visit every mapping (account number, token) without loading them all into memory. Order is unspecified.
+     */
+    void forEach(BiConsumer<String, String> action);
+
+    /**
+     * Like forEach, in token order where the engine keeps its mappings ordered by token.
+     * Engines without such an index visit in their own order.
+     */
+    default void forEachInTokenOrder(BiConsumer<String, String> action) {
+        forEach(action);
+    }
+}
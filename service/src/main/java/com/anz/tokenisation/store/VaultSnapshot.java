@@ -0,0 +1,317 @@
+package com.anz.tokenisation.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary snapshot of every token to account mapping, written and read block by block so neither side holds
+ * more than a few blocks in memory.
+ * <pre>
+ * file:   [magic "TKVS"][version] block* [0][long mappings]
+ * block:  [records][raw length][compressed length][CRC32C of raw][deflated raw]
+ * raw:    records x [u8 token prefix shared with the previous record][u8 suffix length][suffix]
+ *                   [u16 account length][account], UTF-8, sorted by token within the block
+ * </pre>
+ * Blocks decode on their own, so both directions compress or decompress on several threads, and the file is
+ * in token order throughout when the store was read in token order. A snapshot is written to a temporary file
+ * and moved into place, and a read checks every block's checksum and the mapping count at the end.
+ */
+public final class VaultSnapshot {
+
+    private static final int MAGIC = 0x544B5653; // "TKVS".
+    private static final int VERSION = 1;
+    // Raw bytes per block: large enough for deflate to find redundancy, small enough to keep many in flight.
+    static final int BLOCK_BYTES = 1 << 20;
+    private static final int MAX_TOKEN_BYTES = 255;
+    private static final int MAX_ACCOUNT_BYTES = 65_535;
+
+    private VaultSnapshot() {
+    }
+
+    /**
+     * Streams mappings into a snapshot file. Not thread safe: one producer calls {@link #add}, blocks are
+     * compressed in the background and written in order. The file appears at its path on {@link #finish};
+     * closing an unfinished writer discards what was written.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path path;
+        private final Path temporary;
+        private final DataOutputStream out;
+        private final ExecutorService executor;
+        private final int maxPending;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+        private List<byte[]> tokens = new ArrayList<>();
+        private List<byte[]> accounts = new ArrayList<>();
+        private int blockBytes;
+        private long mappings;
+        private boolean finished;
+
+        public Writer(Path path, int parallelism) throws IOException {
+            this.path = path;
+            this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+            this.executor = Executors.newFixedThreadPool(parallelism,
+                    Thread.ofPlatform().name("vault-snapshot-", 0).daemon().factory());
+            this.maxPending = 2 * parallelism;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void add(String accountNumber, String token) throws IOException {
+            byte[] tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+            byte[] accountBytes = accountNumber.getBytes(StandardCharsets.UTF_8);
+            if (tokenBytes.length > MAX_TOKEN_BYTES || accountBytes.length > MAX_ACCOUNT_BYTES) {
+                throw new IllegalArgumentException("Mapping too long for a vault snapshot: token " + token);
+            }
+            tokens.add(tokenBytes);
+            accounts.add(accountBytes);
+            blockBytes += 4 + tokenBytes.length + accountBytes.length;
+            mappings++;
+            if (blockBytes >= BLOCK_BYTES) {
+                submitBlock();
+            }
+        }
+
+        public long mappings() {
+            return mappings;
+        }
+
+        /**
+         * Write the remaining blocks and the trailer, then move the file into place.
+         */
+        public void finish() throws IOException {
+            if (!tokens.isEmpty()) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                out.write(await(pending.removeFirst()));
+            }
+            out.writeInt(0);
+            out.writeLong(mappings);
+            out.close();
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            executor.shutdownNow();
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void submitBlock() throws IOException {
+            List<byte[]> blockTokens = tokens;
+            List<byte[]> blockAccounts = accounts;
+            int rawBytes = blockBytes;
+            tokens = new ArrayList<>(blockTokens.size());
+            accounts = new ArrayList<>(blockAccounts.size());
+            blockBytes = 0;
+            if (pending.size() >= maxPending) {
+                out.write(await(pending.removeFirst()));
+            }
+            pending.addLast(executor.submit(() -> encode(blockTokens, blockAccounts, rawBytes)));
+        }
+    }
+
+    /**
+     * Read a snapshot, decoding blocks on parallelism threads and handing each block's mappings
+     * (account number -> token) to loader on the decoding thread, so loader must be thread safe.
+     * Returns the number of mappings; throws IOException for a damaged or truncated file.
+     */
+    public static long read(Path path, int parallelism, Consumer<Map<String, String>> loader) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("vault-snapshot-", 0).daemon().factory());
+        Deque<Future<Integer>> pending = new ArrayDeque<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path + " is not a version " + VERSION + " vault snapshot");
+            }
+            long loaded = 0;
+            for (int block = 0; ; block++) {
+                int records = in.readInt();
+                if (records == 0) {
+                    break;
+                }
+                int rawLength = in.readInt();
+                int compressedLength = in.readInt();
+                int checksum = in.readInt();
+                if (records < 0 || rawLength < 0 || rawLength > 2 * BLOCK_BYTES || compressedLength < 0
+                        || compressedLength > 2 * BLOCK_BYTES) {
+                    throw new IOException("Vault snapshot block " + block + " has a damaged header");
+                }
+                byte[] compressed = in.readNBytes(compressedLength);
+                if (compressed.length < compressedLength) {
+                    throw new EOFException("Vault snapshot ends inside block " + block);
+                }
+                if (pending.size() >= 2 * parallelism) {
+                    loaded += await(pending.removeFirst());
+                }
+                int number = block;
+                pending.addLast(executor.submit((Callable<Integer>) () -> {
+                    Map<String, String> mappings = decode(number, records, rawLength, checksum, compressed);
+                    loader.accept(mappings);
+                    return records;
+                }));
+            }
+            while (!pending.isEmpty()) {
+                loaded += await(pending.removeFirst());
+            }
+            long expected = in.readLong();
+            if (loaded != expected) {
+                throw new IOException("Vault snapshot holds " + loaded + " mappings, its trailer says " + expected);
+            }
+            return loaded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A block as written to the file: header and deflated raw records, in token order.
+     */
+    private static byte[] encode(List<byte[]> tokens, List<byte[]> accounts, int rawBytes) {
+        Integer[] order = new Integer[tokens.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(tokens::get, Arrays::compareUnsigned));
+
+        ByteBuffer raw = ByteBuffer.allocate(rawBytes);
+        byte[] previous = new byte[0];
+        for (int i : order) {
+            byte[] token = tokens.get(i);
+            byte[] account = accounts.get(i);
+            int mismatch = Arrays.mismatch(previous, token);
+            int shared = mismatch < 0 ? token.length : Math.min(mismatch, token.length);
+            raw.put((byte) shared).put((byte) (token.length - shared)).put(token, shared, token.length - shared);
+            raw.putShort((short) account.length).put(account);
+            previous = token;
+        }
+        int rawLength = raw.position();
+        CRC32C crc = new CRC32C();
+        crc.update(raw.array(), 0, rawLength);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(rawLength / 2 + 64);
+        try {
+            deflater.setInput(raw.array(), 0, rawLength);
+            deflater.finish();
+            byte[] buffer = new byte[1 << 16];
+            while (!deflater.finished()) {
+                block.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        byte[] compressed = block.toByteArray();
+        return ByteBuffer.allocate(16 + compressed.length)
+                .putInt(tokens.size())
+                .putInt(rawLength)
+                .putInt(compressed.length)
+                .putInt((int) crc.getValue())
+                .put(compressed)
+                .array();
+    }
+
+    private static Map<String, String> decode(int block, int records, int rawLength, int checksum, byte[] compressed)
+            throws IOException {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != rawLength) {
+                throw new IOException("Vault snapshot block " + block + " is damaged: short block");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Vault snapshot block " + block + " is damaged", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(raw, 0, rawLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Vault snapshot block " + block + " is damaged: checksum mismatch");
+        }
+
+        Map<String, String> tokensByAccount = LinkedHashMap.newLinkedHashMap(records);
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        byte[] token = new byte[MAX_TOKEN_BYTES];
+        try {
+            for (int i = 0; i < records; i++) {
+                int shared = in.get() & 0xFF;
+                int suffix = in.get() & 0xFF;
+                in.get(token, shared, suffix);
+                int tokenLength = shared + suffix;
+                int accountLength = in.getShort() & 0xFFFF;
+                String accountNumber = new String(raw, in.position(), accountLength, StandardCharsets.UTF_8);
+                in.position(in.position() + accountLength);
+                tokensByAccount.put(accountNumber, new String(token, 0, tokenLength, StandardCharsets.UTF_8));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Vault snapshot block " + block + " is damaged: bad record", e);
+        }
+        return tokensByAccount;
+    }
+
+    private static <R> R await(Future<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a vault snapshot block", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Vault snapshot block failed", e.getCause());
+        }
+    }
+}
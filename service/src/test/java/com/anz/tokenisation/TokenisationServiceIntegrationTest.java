@@ -1,5 +1,7 @@
 package com.anz.tokenisation;
 
+import com.anz.tokenisation.repository.TokenRepository;
+import com.anz.tokenisation.service.TokenisationService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -10,8 +12,17 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -28,6 +39,12 @@ class TokenisationServiceIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TokenisationService tokenisationService;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
     @Test
     void testFullTokenisationFlow() throws Exception {
         // Step 1: Tokenise account numbers.
@@ -131,4 +148,36 @@ class TokenisationServiceIntegrationTest {
         assertEquals(1, accountNumbers.size());
         assertNull(accountNumbers.get(0));
     }
+
+    @Test
+    void testTokenise_ConcurrentOverlappingRequests_OneTokenPerAccount() throws Exception {
+        // Every request tokenises the same new accounts, each in its own order.
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            accountNumbers.add(String.format("5100-0000-0000-%04d", i));
+        }
+        long before = tokenRepository.count();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Map<String, String>>> results = new ArrayList<>();
+        for (int request = 0; request < 8; request++) {
+            List<String> shuffled = new ArrayList<>(accountNumbers);
+            Collections.shuffle(shuffled, new Random(request));
+            results.add(executor.submit(() -> {
+                List<String> tokens = tokenisationService.tokenise(shuffled);
+                Map<String, String> tokensByAccount = new HashMap<>();
+                for (int i = 0; i < shuffled.size(); i++) {
+                    tokensByAccount.put(shuffled.get(i), tokens.get(i));
+                }
+                return tokensByAccount;
+            }));
+        }
+        executor.shutdown();
+
+        // All requests agree and the database holds one row per account.
+        Map<String, String> first = results.get(0).get(30, TimeUnit.SECONDS);
+        for (Future<Map<String, String>> result : results) {
+            assertEquals(first, result.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals(before + 200, tokenRepository.count());
+    }
 }
@@ -0,0 +1,165 @@
+package com.anz.tokenisation.batch;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.TestServices;
+import com.anz.tokenisation.service.TokenisationService;
+import com.anz.tokenisation.store.OffHeapTokenStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Bulk File Job Chunking, Ordering, Formats and Resume.
+class BulkFileJobTest {
+
+    @TempDir
+    Path directory;
+
+    private TokenisationProperties properties;
+
+    private TokenisationService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(8);
+        service = TestServices.newService(new OffHeapTokenStore(properties), properties);
+
+        TokenisationProperties.Batch batch = properties.getBatch();
+        batch.setInput(directory.resolve("in.csv"));
+        batch.setOutput(directory.resolve("out.csv"));
+        // Small chunks so the file splits into many, processed on several workers.
+        batch.setChunkSize(DataSize.ofBytes(256));
+        batch.setParallelism(4);
+    }
+
+    @Test
+    void testRun_Csv_ReplacesColumnAndKeepsRowOrder() throws Exception {
+        // Arrange
+        List<String> accounts = accounts(2_000);
+        StringBuilder csv = new StringBuilder("id,account,name\r\n");
+        for (int i = 0; i < accounts.size(); i++) {
+            csv.append(i).append(',').append(accounts.get(i)).append(",name-").append(i).append("\r\n");
+        }
+        Files.writeString(properties.getBatch().getInput(), csv);
+        properties.getBatch().setHeader(true);
+        properties.getBatch().setColumn(1);
+
+        // Act
+        BulkFileJob.Result result = new BulkFileJob(service, properties.getBatch()).run();
+
+        // Assert
+        List<String> lines = Files.readAllLines(properties.getBatch().getOutput());
+        assertEquals(2_001, lines.size());
+        assertEquals(2_001, result.rows());
+        assertTrue(result.chunks() > 1);
+        assertEquals("id,account,name", lines.get(0));
+        List<String> tokens = service.tokenise(accounts);
+        for (int i = 0; i < accounts.size(); i++) {
+            assertEquals(i + "," + tokens.get(i) + ",name-" + i, lines.get(i + 1));
+        }
+        assertFalse(Files.exists(directory.resolve("out.csv.checkpoint")));
+    }
+
+    @Test
+    void testRun_QuotedCsv_ReadsRfc4180FieldsAndKeepsQuoting() throws Exception {
+        // Arrange - quoted fields with delimiters and doubled quotes before and around the account column.
+        List<String> accounts = accounts(200);
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < accounts.size(); i++) {
+            csv.append("\"").append(i).append(", \"\"a\"\"\",");
+            csv.append(i % 2 == 0 ? "\"" + accounts.get(i) + "\"" : accounts.get(i)).append(",\"x,y\"\n");
+        }
+        csv.append("\"200\",\"\",empty\n");
+        Files.writeString(properties.getBatch().getInput(), csv);
+        properties.getBatch().setColumn(1);
+
+        // Act
+        new BulkFileJob(service, properties.getBatch()).run();
+
+        // Assert - the unquoted account is tokenised and written back quoted if it was read quoted.
+        List<String> lines = Files.readAllLines(properties.getBatch().getOutput());
+        List<String> tokens = service.tokenise(accounts);
+        for (int i = 0; i < accounts.size(); i++) {
+            String token = i % 2 == 0 ? "\"" + tokens.get(i) + "\"" : tokens.get(i);
+            assertEquals("\"" + i + ", \"\"a\"\"\"," + token + ",\"x,y\"", lines.get(i));
+        }
+        assertEquals("\"200\",\"\",empty", lines.get(200));
+    }
+
+    @Test
+    void testRun_QuotedLineBreak_RejectsFile() throws Exception {
+        // Arrange
+        Files.writeString(properties.getBatch().getInput(), "1,\"4111-2222\n-0000-0001\",name\n");
+        properties.getBatch().setColumn(1);
+
+        // Act
+        IOException e = assertThrows(IOException.class, () -> new BulkFileJob(service, properties.getBatch()).run());
+
+        // Assert
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("quoted line breaks"));
+    }
+
+    @Test
+    void testRun_FixedWidthDetokenise_PadsField() throws Exception {
+        // Arrange
+        List<String> accounts = accounts(100);
+        List<String> tokens = service.tokenise(accounts);
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            file.append(String.format("%05d", i)).append(tokens.get(i)).append("END\n");
+        }
+        Files.writeString(properties.getBatch().getInput(), file);
+        properties.getBatch().setMode(TokenisationProperties.Batch.Mode.DETOKENISE);
+        properties.getBatch().setFormat(TokenisationProperties.Batch.Format.FIXED_WIDTH);
+        properties.getBatch().setFieldStart(5);
+        properties.getBatch().setFieldLength(32);
+
+        // Act
+        new BulkFileJob(service, properties.getBatch()).run();
+
+        // Assert
+        List<String> lines = Files.readAllLines(properties.getBatch().getOutput());
+        for (int i = 0; i < accounts.size(); i++) {
+            assertEquals(String.format("%05d%-32sEND", i, accounts.get(i)), lines.get(i));
+        }
+    }
+
+    @Test
+    void testRun_FromCheckpoint_RewritesOnlyTheRest() throws Exception {
+        // Arrange - a run that stopped after the first line, leaving a torn write behind.
+        List<String> accounts = accounts(500);
+        Files.write(properties.getBatch().getInput(), accounts, StandardCharsets.UTF_8);
+        byte[] firstLine = (accounts.get(0) + "\n").getBytes(StandardCharsets.UTF_8);
+        String firstToken = service.tokenise(List.of(accounts.get(0))).get(0);
+        Files.writeString(properties.getBatch().getOutput(), firstToken + "\npartial-garbage");
+        new Checkpoint(firstLine.length, firstToken.length() + 1).write(directory.resolve("out.csv.checkpoint"));
+
+        // Act
+        BulkFileJob.Result result = new BulkFileJob(service, properties.getBatch()).run();
+
+        // Assert
+        assertEquals(firstLine.length, result.resumedFrom());
+        assertEquals(499, result.rows());
+        assertEquals(service.tokenise(accounts), Files.readAllLines(properties.getBatch().getOutput()));
+    }
+
+    private static List<String> accounts(int count) {
+        List<String> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            accounts.add(String.format("4111-2222-%04d-%04d", i / 10_000, i % 10_000));
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,270 @@
+package com.anz.tokenisation.controller;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.FormatPreservingTokeniser;
+import com.anz.tokenisation.service.RequestCoalescer;
+import com.anz.tokenisation.service.TokenisationMetrics;
+import com.anz.tokenisation.service.TokenisationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Test Controller Layer (HTTP API) Without Starting the Full Application.
+@WebMvcTest(TokenisationController.class)
+@EnableConfigurationProperties(TokenisationProperties.class)
+@Import({RequestCoalescer.class, FormatPreservingTokeniser.class})
+@TestPropertySource(properties = "tokenisation.stream.batch-size=2")
+class TokenisationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private TokenisationService tokenisationService;
+
+    @MockBean
+    private TokenisationMetrics metrics;
+
+    @Test
+    void testTokenize_ValidInput_ReturnsTokens() throws Exception {
+        // Arrange
+        List<String> accountNumbers = Arrays.asList(
+                "4111-1111-1111-1111",
+                "4444-3333-2222-1111"
+        );
+        List<String> tokens = Arrays.asList(
+                "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy",
+                "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2"
+        );
+
+        when(tokenisationService.tokenise(anyList())).thenReturn(tokens);
+
+        // Act & Assert
+        mockMvc.perform(post("/tokenise")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(accountNumbers)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0]").value(tokens.get(0)))
+                .andExpect(jsonPath("$[1]").value(tokens.get(1)));
+    }
+
+    @Test
+    void testTokenize_EmptyInput_ReturnsBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/tokenise")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testTokenise_MalformedJson_ReturnsBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/tokenise")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"4111-1111-1111-1111\""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testDetokenize_ValidInput_ReturnsAccountNumbers() throws Exception {
+        // Arrange
+        List<String> tokens = Arrays.asList(
+                "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy",
+                "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2"
+        );
+        List<String> accountNumbers = Arrays.asList(
+                "4111-1111-1111-1111",
+                "4444-3333-2222-1111"
+        );
+
+        when(tokenisationService.detokenise(anyList())).thenReturn(accountNumbers);
+
+        // Act & Assert
+        mockMvc.perform(post("/detokenise")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(tokens)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0]").value(accountNumbers.get(0)))
+                .andExpect(jsonPath("$[1]").value(accountNumbers.get(1)));
+    }
+
+    @Test
+    void testDetokenise_EmptyInput_ReturnsBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/detokenise")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testTokeniseStream_Ndjson_StreamsInMicroBatchesInOrder() throws Exception {
+        // Arrange
+        when(tokenisationService.tokenise(List.of("4111-1111-1111-1111", "4444-3333-2222-1111")))
+                .thenReturn(List.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2"));
+        when(tokenisationService.tokenise(List.of("4444-1111-2222-3333")))
+                .thenReturn(List.of("ZA5isc0kVUfvlxTE5m2dxIY8AG76KoP3"));
+
+        // Act & Assert - batch size 2, the null line passes through without reaching the service.
+        mockMvc.perform(post("/tokenise/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("\"4111-1111-1111-1111\"\n\"4444-3333-2222-1111\"\nnull\n\"4444-1111-2222-3333\"\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("\"fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy\"\n"
+                        + "\"L4hKuBJHxe67ENSKLVbdIH8NhFefPui2\"\n"
+                        + "null\n"
+                        + "\"ZA5isc0kVUfvlxTE5m2dxIY8AG76KoP3\"\n"));
+        verify(tokenisationService).tokenise(List.of("4444-1111-2222-3333"));
+    }
+
+    @Test
+    void testDetokeniseStream_JsonArray_ReturnsNdjson() throws Exception {
+        // Arrange
+        when(tokenisationService.detokenise(List.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "InvalidToken")))
+                .thenReturn(Arrays.asList("4111-1111-1111-1111", null));
+
+        // Act & Assert
+        mockMvc.perform(post("/detokenise/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy\", \"InvalidToken\"]"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("\"4111-1111-1111-1111\"\nnull\n"));
+    }
+
+    @Test
+    void testTokeniseBinary_ValidInput_ReturnsRawTokens() throws Exception {
+        // Arrange
+        List<String> accountNumbers = List.of("4111-1111-1111-1111", "4444-3333-2222-1111");
+        List<String> tokens = List.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2");
+        when(tokenisationService.tokenise(accountNumbers)).thenReturn(tokens);
+        byte[] request = BinaryTokenCodec.writeAccountNumbers(accountNumbers);
+
+        // Act
+        byte[] response = mockMvc.perform(post("/tokenise")
+                        .contentType(BinaryTokenCodec.MEDIA_TYPE)
+                        .content(request))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryTokenCodec.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert - count plus 24 bytes per token.
+        assertEquals(4 + 2 * BinaryTokenCodec.RAW_TOKEN_BYTES, response.length);
+        assertEquals(tokens, BinaryTokenCodec.readTokens(response));
+    }
+
+    @Test
+    void testDetokeniseBinary_UnknownToken_ReturnsNull() throws Exception {
+        // Arrange
+        List<String> tokens = List.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2");
+        when(tokenisationService.detokenise(tokens)).thenReturn(Arrays.asList("4111-1111-1111-1111", null));
+        byte[] request = BinaryTokenCodec.writeTokens(tokens);
+
+        // Act
+        byte[] response = mockMvc.perform(post("/detokenise")
+                        .contentType(BinaryTokenCodec.MEDIA_TYPE)
+                        .content(request))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        assertEquals(Arrays.asList("4111-1111-1111-1111", null),
+                BinaryTokenCodec.readAccountNumbers(response));
+    }
+
+    @Test
+    void testDetokeniseBinary_NonAsciiAccountNumbers_AreUtf8Encoded() throws Exception {
+        // Arrange - two, three and four byte characters, and an unpaired surrogate (sent as '?').
+        List<String> tokens = List.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2");
+        when(tokenisationService.detokenise(tokens)).thenReturn(List.of("DE-é-€-\uD83D\uDE00", "AU-\uD83D-1"));
+
+        // Act
+        byte[] response = mockMvc.perform(post("/detokenise")
+                        .contentType(BinaryTokenCodec.MEDIA_TYPE)
+                        .content(BinaryTokenCodec.writeTokens(tokens)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        assertEquals(4 + 2 + "DE-é-€-\uD83D\uDE00".getBytes(StandardCharsets.UTF_8).length + 2 + 6, response.length);
+        assertEquals(List.of("DE-é-€-\uD83D\uDE00", "AU-?-1"), BinaryTokenCodec.readAccountNumbers(response));
+    }
+
+    @Test
+    void testTokeniseBinary_TruncatedInput_ReturnsBadRequest() throws Exception {
+        // Act & Assert - announces two account numbers, carries none.
+        mockMvc.perform(post("/tokenise")
+                        .contentType(BinaryTokenCodec.MEDIA_TYPE)
+                        .content(new byte[] {0, 0, 0, 2}))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"tokenisation.format-preserving.enabled=true",
+            "tokenisation.format-preserving.prefixes=411111"})
+    class FormatPreservingEnabled {
+
+        // This context's beans, the enclosing fields belong to the context without format-preserving ranges.
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private TokenisationService tokenisationService;
+
+        @Test
+        void testTokeniseBinary_FormatPreservingAccount_ReturnsBadRequest() throws Exception {
+            // Arrange - the first account is in a format-preserving range, its token has no raw form.
+            byte[] request = BinaryTokenCodec.writeAccountNumbers(List.of("4111-1111-1111-1111", "4444-3333-2222-1111"));
+
+            // Act & Assert - rejected before anything reaches the vault.
+            mockMvc.perform(post("/tokenise")
+                            .contentType(BinaryTokenCodec.MEDIA_TYPE)
+                            .content(request))
+                    .andExpect(status().isBadRequest());
+            verify(tokenisationService, never()).tokenise(anyList());
+        }
+
+        @Test
+        void testTokeniseBinary_VaultAccountsOnly_ReturnsRawTokens() throws Exception {
+            // Arrange
+            List<String> tokens = List.of("L4hKuBJHxe67ENSKLVbdIH8NhFefPui2");
+            when(tokenisationService.tokenise(anyList())).thenReturn(tokens);
+
+            // Act
+            byte[] response = mockMvc.perform(post("/tokenise")
+                            .contentType(BinaryTokenCodec.MEDIA_TYPE)
+                            .content(BinaryTokenCodec.writeAccountNumbers(List.of("4444-3333-2222-1111"))))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            // Assert
+            assertEquals(tokens, BinaryTokenCodec.readTokens(response));
+        }
+    }
+}
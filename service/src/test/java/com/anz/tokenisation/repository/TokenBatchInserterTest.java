@@ -0,0 +1,73 @@
+package com.anz.tokenisation.repository;
+
+import com.anz.tokenisation.entity.Token;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test JDBC Batch Inserts Against H2: Pooled Ids, Readback and All-or-Nothing Batches.
+@SpringBootTest
+class TokenBatchInserterTest {
+
+    @Autowired
+    private TokenBatchInserter batchInserter;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Test
+    void testInsertAll_LargeBatch_AssignsDistinctIdsAndPersists() {
+        // Arrange - more rows than one id block and one JDBC batch.
+        List<Token> tokens = tokens(1_200);
+        long before = tokenRepository.count();
+
+        // Act
+        batchInserter.insertAll(tokens);
+
+        // Assert
+        Set<Long> ids = new HashSet<>();
+        tokens.forEach(token -> ids.add(token.getId()));
+        assertEquals(1_200, ids.size());
+        assertEquals(before + 1_200, tokenRepository.count());
+        Token expected = tokens.get(1_100);
+        assertEquals(List.of(new TokenMapping(expected.getAccountNumber(), expected.getToken())),
+                tokenRepository.findMappingsByTokenIn(List.of(expected.getToken())));
+        assertEquals(expected.getToken(), tokenRepository.findTokenByAccountHash(expected.getAccountHash()).orElseThrow());
+    }
+
+    @Test
+    void testInsertAll_DuplicateAccountHash_RollsBackWholeBatch() {
+        // Arrange
+        List<Token> existing = tokens(1);
+        batchInserter.insertAll(existing);
+        List<Token> batch = tokens(10);
+        batch.get(5).setAccountHash(existing.get(0).getAccountHash());
+        long before = tokenRepository.count();
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> batchInserter.insertAll(batch));
+        assertEquals(before, tokenRepository.count());
+    }
+
+    private static List<Token> tokens(int count) {
+        List<Token> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID uuid = UUID.randomUUID();
+            byte[] hash = ByteBuffer.allocate(16)
+                    .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+            String token = (uuid.toString().replace("-", "")).substring(0, 32);
+            tokens.add(new Token(token, "account-" + uuid, hash));
+        }
+        return tokens;
+    }
+}
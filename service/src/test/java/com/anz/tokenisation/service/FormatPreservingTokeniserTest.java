@@ -0,0 +1,120 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test FF1 Against the NIST Samples and Format-Preserving Tokenisation Round Trips.
+class FormatPreservingTokeniserTest {
+
+    private static final byte[] NIST_KEY_128 = HexFormat.of().parseHex("2B7E151628AED2A6ABF7158809CF4F3C");
+    private static final byte[] NIST_KEY_256 = HexFormat.of().parseHex(
+            "2B7E151628AED2A6ABF7158809CF4F3CEF4359D8D580AA4F7F036D6F04FC6A94");
+
+    @Test
+    void testFf1_NistSamples_MatchExpectedCiphertext() {
+        assertFf1(NIST_KEY_128, "", "0123456789", "2433477484");
+        assertFf1(NIST_KEY_128, "39383736353433323130", "0123456789", "6124200773");
+        assertFf1(NIST_KEY_256, "", "0123456789", "6657667009");
+    }
+
+    @Test
+    void testTokenise_InRange_KeepsFormatAndRoundTrips() {
+        // Arrange
+        FormatPreservingTokeniser tokeniser = new FormatPreservingTokeniser(properties(List.of("4111")));
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            accountNumbers.add(String.format("4111 11%02d %04d 1111", i % 100, i));
+        }
+        Map<String, String> tokensByAccount = new HashMap<>();
+        Map<String, String> accountsByToken = new HashMap<>();
+
+        // Act
+        List<String> rest = tokeniser.tokenise(accountNumbers, tokensByAccount);
+        List<String> tokens = accountNumbers.stream().map(tokensByAccount::get).toList();
+        tokeniser.detokenise(tokens, accountsByToken);
+
+        // Assert
+        assertTrue(rest.isEmpty());
+        Set<String> distinct = new HashSet<>(tokens);
+        assertEquals(accountNumbers.size(), distinct.size());
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            String accountNumber = accountNumbers.get(i);
+            String token = tokens.get(i);
+            assertEquals(accountNumber.length(), token.length());
+            assertEquals(accountNumber.substring(0, 7), token.substring(0, 7));
+            assertEquals(accountNumber.substring(14), token.substring(14));
+            assertEquals(' ', token.charAt(9));
+            assertEquals(luhn(accountNumber), luhn(token));
+            assertEquals(accountNumber, accountsByToken.get(token));
+        }
+    }
+
+    @Test
+    void testTokenise_OutOfRange_LeftForVault() {
+        // Arrange
+        FormatPreservingTokeniser tokeniser = new FormatPreservingTokeniser(properties(List.of("4111")));
+        List<String> values = List.of("5500-0000-0000-0004", "4111-1111", "4111-1111-1111-111a");
+        Map<String, String> results = new HashMap<>();
+
+        // Act
+        List<String> rest = tokeniser.tokenise(values, results);
+
+        // Assert - other range, too few digits for FF1, not digits.
+        assertSame(values, rest);
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void testConstructor_PrefixLongerThanPreserved_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FormatPreservingTokeniser(properties(List.of("4111111"))));
+    }
+
+    private static TokenisationProperties properties(List<String> prefixes) {
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getFormatPreserving().setEnabled(true);
+        properties.getFormatPreserving().setPrefixes(prefixes);
+        return properties;
+    }
+
+    private static void assertFf1(byte[] key, String tweak, String plaintext, String ciphertext) {
+        Ff1.Worker worker = new Ff1(key, HexFormat.of().parseHex(tweak)).newWorker();
+        byte[] digits = new byte[plaintext.length()];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = (byte) (plaintext.charAt(i) - '0');
+        }
+
+        worker.encrypt(digits, 0, digits.length);
+        StringBuilder encrypted = new StringBuilder();
+        for (byte digit : digits) {
+            encrypted.append(digit);
+        }
+        assertEquals(ciphertext, encrypted.toString());
+
+        worker.decrypt(digits, 0, digits.length);
+        StringBuilder decrypted = new StringBuilder();
+        for (byte digit : digits) {
+            decrypted.append(digit);
+        }
+        assertEquals(plaintext, decrypted.toString());
+    }
+
+    private static boolean luhn(String value) {
+        String digits = value.replaceAll("\\D", "");
+        byte[] values = new byte[digits.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (byte) (digits.charAt(i) - '0');
+        }
+        return FormatPreservingTokeniser.luhnValid(values, values.length);
+    }
+}
@@ -0,0 +1,154 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.OffHeapTokenStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Hash Partitioning of Large Batches and the Parallel Tokenise Pipeline.
+class PartitionedExecutorTest {
+
+    private TokenisationProperties properties;
+
+    private PartitionedExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        properties.getParallel().setThreshold(100);
+        properties.getParallel().setPartitions(4);
+        executor = new PartitionedExecutor(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.destroy();
+    }
+
+    @Test
+    void testMap_SmallBatch_RunsWholeOnCallerThread() {
+        // Arrange
+        List<String> values = accounts(99);
+        Thread caller = Thread.currentThread();
+
+        // Act
+        List<Boolean> results = executor.map(values, part -> part == values && Thread.currentThread() == caller);
+
+        // Assert
+        assertEquals(List.of(true), results);
+    }
+
+    @Test
+    void testMap_LargeBatch_SplitsByHashKeepingOrderAndRepeatsTogether() {
+        // Arrange
+        List<String> values = new ArrayList<>(accounts(1_000));
+        values.addAll(accounts(10));
+
+        // Act
+        List<List<String>> parts = executor.map(values, part -> part);
+
+        // Assert
+        assertEquals(4, parts.size());
+        assertEquals(values.size(), parts.stream().mapToInt(List::size).sum());
+        for (List<String> part : parts) {
+            assertTrue(part.size() > 100, "unbalanced: " + part.size());
+            List<String> inBatchOrder = values.stream().filter(part::contains).toList();
+            assertEquals(inBatchOrder, part);
+        }
+    }
+
+    @Test
+    void testTokenise_LargeBatch_MergesPartitionsInRequestOrder() {
+        // Arrange
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(1024);
+        OffHeapTokenStore store = new OffHeapTokenStore(properties);
+        TokenisationService service = TestServices.newService(store, properties, executor);
+        List<String> accountNumbers = new ArrayList<>(accounts(500));
+        accountNumbers.addAll(accounts(500));
+
+        // Act
+        List<String> tokens = service.tokenise(accountNumbers);
+
+        // Assert - repeats get the same token from whichever partition created it.
+        assertEquals(tokens.subList(0, 500), tokens.subList(500, 1_000));
+        Set<String> distinct = new HashSet<>(tokens);
+        assertEquals(500, distinct.size());
+        assertEquals(500, store.count());
+        assertEquals(accountNumbers, service.detokenise(tokens));
+    }
+
+    @Test
+    void testMap_LargeBatch_PartitionsTakeDisjointLockStripes() {
+        // Arrange
+        int stripes = AccountLocks.stripeCount(properties);
+        List<String> values = accounts(1_000);
+
+        // Act
+        List<Set<Integer>> stripesByPartition = executor.map(values, part -> {
+            Set<Integer> taken = new HashSet<>();
+            part.forEach(value -> taken.add(AccountLocks.stripe(value, stripes - 1)));
+            return taken;
+        });
+
+        // Assert
+        Set<Integer> seen = new HashSet<>();
+        for (Set<Integer> taken : stripesByPartition) {
+            for (Integer stripe : taken) {
+                assertTrue(seen.add(stripe), "stripe " + stripe + " in two partitions");
+            }
+        }
+    }
+
+    @Test
+    void testTokenise_LargeBatch_PartitionsWriteConcurrently() throws Exception {
+        // Arrange - two partitions; each saveAll waits until the other partition is saving too.
+        properties.getParallel().setPartitions(2);
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(1024);
+        executor.destroy();
+        executor = new PartitionedExecutor(properties);
+        CyclicBarrier bothSaving = new CyclicBarrier(2);
+        OffHeapTokenStore store = new OffHeapTokenStore(properties) {
+            @Override
+            public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+                try {
+                    bothSaving.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("saveAll calls did not overlap", e);
+                }
+                return super.saveAll(tokensByAccount);
+            }
+        };
+        TokenisationService service = TestServices.newService(store, properties, executor);
+        List<String> accountNumbers = accounts(500);
+
+        // Act
+        List<String> tokens = service.tokenise(accountNumbers);
+
+        // Assert
+        assertEquals(500, new HashSet<>(tokens).size());
+        assertEquals(500, store.count());
+        assertEquals(accountNumbers, service.detokenise(tokens));
+    }
+
+    private static List<String> accounts(int count) {
+        List<String> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            accounts.add(String.format("4111-0000-%04d-%04d", i / 10_000, i % 10_000));
+        }
+        return accounts;
+    }
+}
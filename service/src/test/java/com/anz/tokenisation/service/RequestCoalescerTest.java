@@ -0,0 +1,192 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Test Coalescing Concurrent Requests into Shared Service Calls.
+class RequestCoalescerTest {
+
+    private TokenisationProperties properties;
+
+    private TokenisationService service;
+
+    private List<List<String>> calls;
+
+    private final CountDownLatch slowStarted = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ExecutorService callers;
+
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        properties.getCoalesce().setEnabled(true);
+        properties.getCoalesce().setWindow(Duration.ofMillis(500));
+        properties.getCoalesce().setMaxWait(Duration.ofSeconds(10));
+        service = mock(TokenisationService.class);
+        calls = Collections.synchronizedList(new ArrayList<>());
+        when(service.tokenise(anyList())).thenAnswer(invocation -> {
+            List<String> values = invocation.getArgument(0);
+            calls.add(values);
+            if (values.contains("slow")) {
+                slowStarted.countDown();
+                release.await();
+            }
+            if (values.contains("bad")) {
+                throw new IllegalArgumentException("bad account number");
+            }
+            return values.stream().map(value -> "token-" + value).toList();
+        });
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        callers.shutdownNow();
+        if (coalescer != null) {
+            coalescer.destroy();
+        }
+    }
+
+    @Test
+    void testTokenise_ConcurrentRequests_ShareOneCallWithoutDuplicates() {
+        // Arrange
+        coalescer = new RequestCoalescer(properties, service);
+
+        // Act
+        CompletableFuture<List<String>> first = tokenise(List.of("1", "2"));
+        CompletableFuture<List<String>> second = tokenise(List.of("2", "3", "2"));
+        CompletableFuture<List<String>> third = tokenise(List.of("4"));
+
+        // Assert
+        assertEquals(List.of("token-1", "token-2"), first.join());
+        assertEquals(List.of("token-2", "token-3", "token-2"), second.join());
+        assertEquals(List.of("token-4"), third.join());
+        assertEquals(1, calls.size());
+        assertEquals(4, calls.get(0).size());
+        assertTrue(calls.get(0).containsAll(List.of("1", "2", "3", "4")));
+    }
+
+    @Test
+    void testTokenise_FailingValue_FailsOnlyItsOwnCaller() {
+        // Arrange
+        coalescer = new RequestCoalescer(properties, service);
+
+        // Act
+        CompletableFuture<List<String>> good = tokenise(List.of("1"));
+        CompletableFuture<List<String>> bad = tokenise(List.of("bad"));
+
+        // Assert
+        assertEquals(List.of("token-1"), good.join());
+        CompletionException thrown = assertThrows(CompletionException.class, bad::join);
+        assertInstanceOf(IllegalArgumentException.class, thrown.getCause());
+    }
+
+    @Test
+    void testTokenise_MaxBatchReached_ClosesWindowEarly() {
+        // Arrange
+        properties.getCoalesce().setWindow(Duration.ofMinutes(1));
+        properties.getCoalesce().setMaxBatch(4);
+        coalescer = new RequestCoalescer(properties, service);
+
+        // Act
+        CompletableFuture<List<String>> first = tokenise(List.of("1", "2"));
+        CompletableFuture<List<String>> second = tokenise(List.of("3", "4"));
+
+        // Assert
+        assertEquals(List.of("token-1", "token-2"), first.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(List.of("token-3", "token-4"), second.orTimeout(5, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    void testTokenise_NextRequestWouldExceedMaxBatch_OpensNextWindow() {
+        // Arrange
+        properties.getCoalesce().setMaxBatch(4);
+        coalescer = new RequestCoalescer(properties, service);
+
+        // Act
+        CompletableFuture<List<String>> first = tokenise(List.of("1", "2", "3"));
+        CompletableFuture<List<String>> second = tokenise(List.of("4", "5"));
+
+        // Assert - together they'd be 5 values, so they run as two calls.
+        assertEquals(3, first.orTimeout(5, TimeUnit.SECONDS).join().size());
+        assertEquals(2, second.orTimeout(5, TimeUnit.SECONDS).join().size());
+        assertEquals(2, calls.size());
+        assertTrue(calls.stream().allMatch(call -> call.size() <= 4), calls.toString());
+    }
+
+    @Test
+    void testTokenise_SlowWindow_NextWindowRunsAlongside() throws Exception {
+        // Arrange
+        properties.getCoalesce().setWindow(Duration.ZERO);
+        properties.getCoalesce().setConcurrency(2);
+        coalescer = new RequestCoalescer(properties, service);
+        CompletableFuture<List<String>> slow = tokenise(List.of("slow"));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        List<String> tokens = coalescer.tokenise(List.of("1"));
+
+        // Assert - answered by a combined call on the second window thread, not by the caller after max-wait.
+        assertEquals(List.of("token-1"), tokens);
+        assertFalse(slow.isDone());
+        assertEquals(0, timedOut(coalescer));
+        release.countDown();
+        assertEquals(List.of("token-slow"), slow.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testTokenise_NotPickedUpWithinMaxWait_RunsOnCallerThread() throws Exception {
+        // Arrange
+        properties.getCoalesce().setWindow(Duration.ZERO);
+        properties.getCoalesce().setMaxWait(Duration.ofMillis(50));
+        properties.getCoalesce().setConcurrency(1);
+        coalescer = new RequestCoalescer(properties, service);
+        // Keep the only window thread busy so the next request stays queued.
+        CompletableFuture<List<String>> slow = tokenise(List.of("slow"));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        List<String> tokens = coalescer.tokenise(List.of("1"));
+
+        // Assert
+        assertEquals(List.of("token-1"), tokens);
+        assertFalse(slow.isDone());
+        release.countDown();
+        assertEquals(List.of("token-slow"), slow.get(5, TimeUnit.SECONDS));
+    }
+
+    private static double timedOut(RequestCoalescer coalescer) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coalescer.bindTo(registry);
+        return registry.get("tokenisation.coalesce.requests").tag("operation", "tokenise").tag("result", "timed-out")
+                .functionCounter().count();
+    }
+
+    private CompletableFuture<List<String>> tokenise(List<String> values) {
+        return CompletableFuture.supplyAsync(() -> coalescer.tokenise(values), callers);
+    }
+}
@@ -0,0 +1,71 @@
+package com.anz.tokenisation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Scalable Bloom Filter Growth, False Positive Rate and Snapshots.
+class ScalableBloomFilterTest {
+
+    @Test
+    void testAdd_BeyondInitialCapacity_NoFalseNegatives() {
+        // Arrange
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        // Act - grows through several stages.
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("account-" + i);
+        }
+
+        // Assert
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(filter.mightContain("account-" + i));
+        }
+    }
+
+    @Test
+    void testMightContain_UnseenValues_StaysNearTargetRate() {
+        // Arrange
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("account-" + i);
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("unseen-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Assert - allow some slack over the 1% target.
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testWriteTo_ReadFrom_RoundTrips() throws Exception {
+        // Arrange
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 500; i++) {
+            filter.add("token-" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // Act
+        filter.writeTo(new DataOutputStream(bytes));
+        ScalableBloomFilter restored = ScalableBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Assert
+        for (int i = 0; i < 500; i++) {
+            assertTrue(restored.mightContain("token-" + i));
+        }
+        assertEquals(filter.bytes(), restored.bytes());
+    }
+}
@@ -0,0 +1,53 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.TokenStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Builds a TokenisationService over a given store the way the application context wires it, for tests.
+ * Collaborators a test doesn't pass are built from the same properties.
+ */
+public final class TestServices {
+
+    private TestServices() {
+    }
+
+    public static TokenisationService newService(TokenStore store, TokenisationProperties properties) {
+        return newService(store, properties, new TokenCache(properties), new SimpleMeterRegistry());
+    }
+
+    public static TokenisationService newService(TokenStore store, TokenisationProperties properties,
+                                                TokenCache cache, MeterRegistry registry) {
+        TokenGenerator generator = new TokenGenerator(properties);
+        MembershipFilter filter = new MembershipFilter(store, properties);
+        return newService(store, properties, cache, registry, generator, filter,
+                new TokenPool(properties, generator, store, filter), new PartitionedExecutor(properties));
+    }
+
+    public static TokenisationService newService(TokenStore store, TokenisationProperties properties,
+                                                PartitionedExecutor executor) {
+        TokenGenerator generator = new TokenGenerator(properties);
+        MembershipFilter filter = new MembershipFilter(store, properties);
+        return newService(store, properties, new TokenCache(properties), new SimpleMeterRegistry(), generator,
+                filter, new TokenPool(properties, generator, store, filter), executor);
+    }
+
+    /**
+     * Over a pool the test built, sharing its generator and filter.
+     */
+    public static TokenisationService newService(TokenStore store, TokenisationProperties properties,
+                                                TokenGenerator generator, MembershipFilter filter, TokenPool pool) {
+        return newService(store, properties, new TokenCache(properties), new SimpleMeterRegistry(), generator,
+                filter, pool, new PartitionedExecutor(properties));
+    }
+
+    private static TokenisationService newService(TokenStore store, TokenisationProperties properties,
+                                                 TokenCache cache, MeterRegistry registry, TokenGenerator generator,
+                                                 MembershipFilter filter, TokenPool pool,
+                                                 PartitionedExecutor executor) {
+        return new TokenisationService(store, cache, generator, filter, new AccountLocks(properties),
+                new TokenisationMetrics(registry), pool, new FormatPreservingTokeniser(properties), executor);
+    }
+}
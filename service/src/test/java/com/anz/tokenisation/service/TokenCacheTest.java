@@ -0,0 +1,68 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Two Way Token Cache Eviction and Counters.
+class TokenCacheTest {
+
+    @Test
+    void testPut_BothDirections_AreCached() {
+        // Arrange
+        TokenCache cache = new TokenCache(properties(TokenisationProperties.Cache.Eviction.W_TINYLFU, 1024 * 1024));
+
+        // Act
+        cache.put("4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy");
+
+        // Assert
+        assertEquals("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", cache.getToken("4111-1111-1111-1111"));
+        assertEquals("4111-1111-1111-1111", cache.getAccountNumber("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"));
+        assertNull(cache.getToken("4444-3333-2222-1111"));
+        assertEquals(2, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void testLru_OverByteBudget_EvictsLeastRecentlyUsed() {
+        // Arrange - room for two entries per direction.
+        int entryBytes = TokenCache.weigh("account-0", "token-0");
+        TokenCache cache = new TokenCache(properties(TokenisationProperties.Cache.Eviction.LRU, entryBytes * 4));
+        cache.put("account-0", "token-0");
+        cache.put("account-1", "token-1");
+        cache.getToken("account-0");
+
+        // Act
+        cache.put("account-2", "token-2");
+
+        // Assert
+        assertEquals("token-0", cache.getToken("account-0"));
+        assertNull(cache.getToken("account-1"));
+        assertEquals("token-2", cache.getToken("account-2"));
+        assertEquals(2, cache.stats().evictions());
+        assertTrue(cache.stats().estimatedBytes() <= cache.stats().maxBytes());
+    }
+
+    @Test
+    void testDisabled_NeverCaches() {
+        // Arrange
+        TokenisationProperties properties = properties(TokenisationProperties.Cache.Eviction.LRU, 1024);
+        properties.getCache().setEnabled(false);
+        TokenCache cache = new TokenCache(properties);
+
+        // Act
+        cache.put("4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy");
+
+        // Assert
+        assertNull(cache.getToken("4111-1111-1111-1111"));
+    }
+
+    private static TokenisationProperties properties(TokenisationProperties.Cache.Eviction eviction, long maxBytes) {
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getCache().setEviction(eviction);
+        properties.getCache().setMaxSize(DataSize.ofBytes(maxBytes));
+        return properties;
+    }
+}
@@ -0,0 +1,73 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Striped Token Generator Output and Batching.
+class TokenGeneratorTest {
+
+    @Test
+    void testGenerate_LargeBatch_ReturnsDistinctBase64Tokens() {
+        // Arrange
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getGenerator().setStripes(2);
+        properties.getGenerator().setReseedInterval(4096);
+        TokenGenerator generator = new TokenGenerator(properties);
+
+        // Act - crosses several buffer refills and a reseed.
+        List<String> tokens = generator.generate(10_000);
+
+        // Assert
+        assertEquals(10_000, tokens.size());
+        assertEquals(10_000, new HashSet<>(tokens).size());
+        for (String token : tokens) {
+            assertEquals(TokenGenerator.TOKEN_LENGTH, token.length());
+            assertEquals(TokenGenerator.RAW_TOKEN_BYTES, Base64.getUrlDecoder().decode(token).length);
+        }
+    }
+
+    @Test
+    void testGenerate_ConcurrentCallers_ShareStripesWithoutDuplicates() {
+        // Arrange
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getGenerator().setStripes(2);
+        TokenGenerator generator = new TokenGenerator(properties);
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+
+        // Act
+        IntStream.range(0, 8).parallel().forEach(i -> tokens.addAll(generator.generate(2_000)));
+
+        // Assert
+        assertEquals(16_000, tokens.size());
+    }
+
+    @Test
+    void testGenerate_RandomWithoutReseed_KeepsGenerating() {
+        // Arrange - a provider that rejects reseed(), as some non-DRBG fallbacks do.
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getGenerator().setStripes(1);
+        properties.getGenerator().setReseedInterval(4096);
+        TokenGenerator generator = new TokenGenerator(properties, () -> new SecureRandom() {
+            @Override
+            public void reseed() {
+                throw new UnsupportedOperationException("reseed");
+            }
+        });
+
+        // Act - crosses several refills that would reseed.
+        List<String> tokens = generator.generate(20_000);
+
+        // Assert
+        assertEquals(20_000, new HashSet<>(tokens).size());
+    }
+}
@@ -0,0 +1,135 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.OffHeapTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Token Pool Refill, Concurrent Takes and Starvation Fallback.
+class TokenPoolTest {
+
+    private TokenisationProperties properties;
+
+    private OffHeapTokenStore store;
+
+    private TokenGenerator generator;
+
+    private MembershipFilter filter;
+
+    private TokenPool pool;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(1024);
+        properties.getPool().setEnabled(true);
+        properties.getPool().setCapacity(1024);
+        properties.getPool().setLowWaterMark(256);
+        properties.getPool().setRefillBatch(100);
+        store = new OffHeapTokenStore(properties);
+        generator = new TokenGenerator(properties);
+        filter = new MembershipFilter(store, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (pool != null) {
+            pool.destroy();
+        }
+    }
+
+    @Test
+    void testTake_ConcurrentConsumers_GetDistinctTokensAndPoolRefills() throws Exception {
+        // Arrange
+        pool = new TokenPool(properties, generator, store, filter);
+        awaitSize(pool, 1024);
+
+        // Act - more tokens than the pool holds, so the producer refills while consumers take.
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<String>>> takes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            takes.add(executor.submit(() -> {
+                List<String> tokens = new ArrayList<>();
+                while (tokens.size() < 100) {
+                    tokens.addAll(pool.take(100 - tokens.size()));
+                }
+                return tokens;
+            }));
+        }
+        Set<String> tokens = new HashSet<>();
+        for (Future<List<String>> take : takes) {
+            tokens.addAll(take.get());
+        }
+        executor.shutdown();
+
+        // Assert - four times the capacity, so the producer refilled while consumers were taking.
+        assertEquals(4_000, tokens.size());
+        for (String token : tokens) {
+            assertEquals(TokenGenerator.TOKEN_LENGTH, token.length());
+        }
+    }
+
+    @Test
+    void testTake_EmptyPool_ReturnsShortAndCountsStarvation() throws Exception {
+        // Arrange
+        pool = new TokenPool(properties, generator, store, filter);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pool.bindTo(registry);
+        awaitSize(pool, 1024);
+
+        // Act
+        List<String> tokens = pool.take(1500);
+
+        // Assert
+        assertEquals(1024, tokens.size());
+        assertEquals(476.0, registry.get("tokenisation.pool.tokens").tag("result", "starved").functionCounter().count());
+    }
+
+    @Test
+    void testTake_Disabled_ReturnsNothing() {
+        // Arrange
+        properties.getPool().setEnabled(false);
+        pool = new TokenPool(properties, generator, store, filter);
+
+        // Act & Assert
+        assertTrue(pool.take(10).isEmpty());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void testService_WithPool_TokenisesFromPool() throws Exception {
+        // Arrange
+        pool = new TokenPool(properties, generator, store, filter);
+        awaitSize(pool, 1024);
+        TokenisationService service = TestServices.newService(store, properties, generator, filter, pool);
+        List<String> accountNumbers = List.of("4111-1111-1111-1111", "4444-3333-2222-1111");
+
+        // Act
+        List<String> tokens = service.tokenise(accountNumbers);
+
+        // Assert
+        assertEquals(1022, pool.size(), 1.0);
+        assertEquals(accountNumbers, service.detokenise(tokens));
+    }
+
+    private static void awaitSize(TokenPool pool, int size) throws InterruptedException {
+        for (int i = 0; i < 500 && pool.size() < size; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, pool.size());
+    }
+}
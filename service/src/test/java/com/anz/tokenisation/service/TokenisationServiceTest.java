@@ -0,0 +1,495 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.entity.Token;
+import com.anz.tokenisation.repository.TokenBatchInserter;
+import com.anz.tokenisation.repository.TokenMapping;
+import com.anz.tokenisation.repository.TokenRepository;
+import com.anz.tokenisation.store.JpaTokenStore;
+import com.anz.tokenisation.store.OffHeapTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+// Test Service Layer in Isolation Using Mock Object.
+@ExtendWith(MockitoExtension.class)
+class TokenisationServiceTest {
+
+    @Mock
+    private TokenRepository tokenRepository;
+
+    @Mock
+    private TokenBatchInserter batchInserter;
+
+    @Captor
+    private ArgumentCaptor<Collection<String>> tokensCaptor;
+
+    private TokenCache tokenCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TokenisationService tokenisationService;
+
+    @BeforeEach
+    void setUp() {
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getLookup().setChunkSize(2);
+        // Filter off so every lookup reaches the mocked repository, see the filter tests below.
+        properties.getFilter().setEnabled(false);
+        tokenCache = new TokenCache(properties);
+        meterRegistry = new SimpleMeterRegistry();
+        tokenisationService = newService(properties, tokenCache);
+    }
+
+    @Test
+    void testTokenise_NewAccountNumbers_CreatesNewTokens() {
+        // Arrange
+        List<String> accountNumbers = Arrays.asList(
+                "4111-1111-1111-1111",
+                "4444-3333-2222-1111"
+        );
+
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(accountNumbers);
+
+        // Assert
+        assertNotNull(tokens);
+        assertEquals(2, tokens.size());
+        assertEquals(32, tokens.get(0).length());
+        assertEquals(32, tokens.get(1).length());
+        assertNotEquals(tokens.get(0), tokens.get(1));
+        assertEquals(2, captureSavedTokens().size());
+        verify(tokenRepository, times(1)).findMappingsByAccountHashIn(anyCollection());
+        verify(tokenRepository, times(1)).findTokensByTokenIn(anyCollection());
+    }
+
+    @Test
+    void testTokenise_ExistingAccountNumber_ReturnsExistingToken() {
+        // Arrange
+        String accountNumber = "4111-1111-1111-1111";
+        String existingToken = "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy";
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of(new TokenMapping(accountNumber, existingToken)));
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(Arrays.asList(accountNumber));
+
+        // Assert
+        assertNotNull(tokens);
+        assertEquals(1, tokens.size());
+        assertEquals(existingToken, tokens.get(0));
+        verify(batchInserter, never()).insertAll(anyList());
+    }
+
+    @Test
+    void testTokenise_MixedNewAndExisting_HandlesCorrectly() {
+        // Arrange
+        String existingAccount = "4111-1111-1111-1111";
+        String newAccount = "4444-3333-2222-1111";
+        String existingToken = "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy";
+
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of(new TokenMapping(existingAccount, existingToken)));
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(
+                Arrays.asList(existingAccount, newAccount)
+        );
+
+        // Assert
+        assertNotNull(tokens);
+        assertEquals(2, tokens.size());
+        assertEquals(existingToken, tokens.get(0));
+        assertNotEquals(existingToken, tokens.get(1));
+
+        List<Token> saved = captureSavedTokens();
+        assertEquals(1, saved.size());
+        assertEquals(newAccount, saved.get(0).getAccountNumber());
+    }
+
+    @Test
+    void testTokenise_RepeatedAccountNumber_SharesOneNewToken() {
+        // Arrange
+        String account1 = "4111-1111-1111-1111";
+        String account2 = "4444-3333-2222-1111";
+
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(
+                Arrays.asList(account1, account2, account1)
+        );
+
+        // Assert
+        assertEquals(3, tokens.size());
+        assertEquals(tokens.get(0), tokens.get(2));
+        assertNotEquals(tokens.get(0), tokens.get(1));
+        assertEquals(2, captureSavedTokens().size());
+    }
+
+    @Test
+    void testTokenise_CollidingCandidate_IsRegenerated() {
+        // Arrange
+        String accountNumber = "4111-1111-1111-1111";
+
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        // First collision check reports every candidate as taken, second finds none.
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<String> candidates = invocation.getArgument(0);
+                    return List.copyOf(candidates);
+                })
+                .thenReturn(List.of());
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(Arrays.asList(accountNumber));
+
+        // Assert
+        assertEquals(1, tokens.size());
+        assertEquals(32, tokens.get(0).length());
+        verify(tokenRepository, times(2)).findTokensByTokenIn(anyCollection());
+
+        List<Token> saved = captureSavedTokens();
+        assertEquals(1, saved.size());
+        assertEquals(tokens.get(0), saved.get(0).getToken());
+    }
+
+    @Test
+    void testTokenise_AccountTokenisedConcurrently_ReturnsWinningToken() {
+        // Arrange
+        String account1 = "4111-1111-1111-1111";
+        String account2 = "4444-3333-2222-1111";
+        String winningToken = "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy";
+
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+        // Another writer inserted account1 after the lookup, so the unique index rejects the batch and that row.
+        doAnswer(invocation -> {
+            List<Token> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(token -> token.getAccountNumber().equals(account1))) {
+                throw new DataIntegrityViolationException("ux account_number");
+            }
+            return null;
+        }).when(batchInserter).insertAll(anyList());
+        when(tokenRepository.findTokenByAccountHash(any()))
+                .thenReturn(Optional.of(winningToken));
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(Arrays.asList(account1, account2));
+
+        // Assert
+        assertEquals(winningToken, tokens.get(0));
+        assertEquals(32, tokens.get(1).length());
+        assertNotEquals(winningToken, tokens.get(1));
+        // The batch, then each row on its own.
+        verify(batchInserter, times(3)).insertAll(anyList());
+    }
+
+    @Test
+    void testDetokenise_ExistingTokens_ReturnsAccountNumbers() {
+        // Arrange
+        String token1 = "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy";
+        String token2 = "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2";
+        String account1 = "4111-1111-1111-1111";
+        String account2 = "4444-3333-2222-1111";
+
+        when(tokenRepository.findMappingsByTokenIn(anyCollection()))
+                .thenReturn(List.of(new TokenMapping(account2, token2), new TokenMapping(account1, token1)));
+
+        // Act
+        List<String> accountNumbers = tokenisationService.detokenise(
+                Arrays.asList(token1, token2)
+        );
+
+        // Assert
+        assertNotNull(accountNumbers);
+        assertEquals(2, accountNumbers.size());
+        assertEquals(account1, accountNumbers.get(0));
+        assertEquals(account2, accountNumbers.get(1));
+        verify(tokenRepository, times(1)).findMappingsByTokenIn(anyCollection());
+    }
+
+    @Test
+    void testDetokenise_NonExistingToken_ReturnsNull() {
+        // Arrange
+        String invalidToken = "InvalidTokenXYZ123";
+
+        when(tokenRepository.findMappingsByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        List<String> accountNumbers = tokenisationService.detokenise(
+                Arrays.asList(invalidToken)
+        );
+
+        // Assert
+        assertNotNull(accountNumbers);
+        assertEquals(1, accountNumbers.size());
+        assertNull(accountNumbers.get(0));
+    }
+
+    @Test
+    void testDetokenise_LargeInput_QueriesInChunksAndKeepsOrder() {
+        // Arrange
+        List<String> tokens = Arrays.asList("t1", "t2", "t3", "t1", "t4", "t5");
+
+        when(tokenRepository.findMappingsByTokenIn(anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<String> chunk = invocation.getArgument(0);
+                    return chunk.stream()
+                            .filter(token -> !token.equals("t4"))
+                            .map(token -> new TokenMapping("account-" + token, token))
+                            .toList();
+                });
+
+        // Act
+        List<String> accountNumbers = tokenisationService.detokenise(tokens);
+
+        // Assert
+        assertEquals(Arrays.asList("account-t1", "account-t2", "account-t3", "account-t1", null, "account-t5"),
+                accountNumbers);
+        // Five distinct tokens with a chunk size of two.
+        verify(tokenRepository, times(3)).findMappingsByTokenIn(anyCollection());
+    }
+
+    @Test
+    void testDetokenise_RepeatedLookup_IsServedFromCache() {
+        // Arrange
+        String token = "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy";
+        String account = "4111-1111-1111-1111";
+
+        when(tokenRepository.findMappingsByTokenIn(anyCollection()))
+                .thenReturn(List.of(new TokenMapping(account, token)));
+
+        // Act
+        tokenisationService.detokenise(Arrays.asList(token));
+        List<String> accountNumbers = tokenisationService.detokenise(Arrays.asList(token));
+
+        // Assert
+        assertEquals(account, accountNumbers.get(0));
+        verify(tokenRepository, times(1)).findMappingsByTokenIn(anyCollection());
+        assertEquals(1, tokenCache.stats().hits());
+    }
+
+    @Test
+    void testTokenise_NewToken_IsWrittenThroughToCache() {
+        // Arrange
+        String account = "4111-1111-1111-1111";
+
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(Arrays.asList(account));
+        List<String> accountNumbers = tokenisationService.detokenise(tokens);
+        List<String> tokensAgain = tokenisationService.tokenise(Arrays.asList(account));
+
+        // Assert
+        assertEquals(account, accountNumbers.get(0));
+        assertEquals(tokens, tokensAgain);
+        verify(tokenRepository, times(1)).findMappingsByAccountHashIn(anyCollection());
+        verify(tokenRepository, times(1)).findTokensByTokenIn(anyCollection());
+    }
+
+    @Test
+    void testTokenise_FilterEnabled_NewAccountSkipsRepositoryLookups() {
+        // Arrange
+        TokenisationProperties properties = new TokenisationProperties();
+        when(tokenRepository.streamAllMappings()).thenReturn(Stream.empty());
+        TokenisationService service = newService(properties, new TokenCache(properties));
+
+        // Act
+        List<String> tokens = service.tokenise(Arrays.asList("4111-1111-1111-1111"));
+
+        // Assert
+        assertEquals(1, tokens.size());
+        verify(tokenRepository, never()).findMappingsByAccountHashIn(anyCollection());
+        verify(tokenRepository, never()).findTokensByTokenIn(anyCollection());
+        assertEquals(1, captureSavedTokens().size());
+    }
+
+    @Test
+    void testDetokenise_FilterEnabled_UnknownTokenSkipsRepository() {
+        // Arrange
+        TokenisationProperties properties = new TokenisationProperties();
+        when(tokenRepository.streamAllMappings()).thenReturn(Stream.<Object[]>of(
+                new Object[] {"4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"}));
+        when(tokenRepository.findMappingsByTokenIn(anyCollection()))
+                .thenReturn(List.of(new TokenMapping("4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy")));
+        TokenisationService service = newService(properties, new TokenCache(properties));
+
+        // Act
+        List<String> accountNumbers = service.detokenise(
+                Arrays.asList("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2"));
+
+        // Assert
+        assertEquals(Arrays.asList("4111-1111-1111-1111", null), accountNumbers);
+        verify(tokenRepository).findMappingsByTokenIn(tokensCaptor.capture());
+        assertEquals(List.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"), List.copyOf(tokensCaptor.getValue()));
+    }
+
+    @Test
+    void testTokenise_EmptyList_ReturnsEmptyList() {
+        // Act
+        List<String> tokens = tokenisationService.tokenise(Arrays.asList());
+
+        // Assert
+        assertNotNull(tokens);
+        assertTrue(tokens.isEmpty());
+        verify(batchInserter, never()).insertAll(anyList());
+    }
+
+    @Test
+    void testDetokenise_EmptyList_ReturnsEmptyList() {
+        // Act
+        List<String> accountNumbers = tokenisationService.detokenise(Arrays.asList());
+
+        // Assert
+        assertNotNull(accountNumbers);
+        assertTrue(accountNumbers.isEmpty());
+    }
+
+    @Test
+    void testTokenise_NewAccountNumbers_RecordsBatchSizeStoreCallsAndStages() {
+        // Arrange
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        tokenisationService.tokenise(Arrays.asList("4111-1111-1111-1111", "4444-3333-2222-1111"));
+
+        // Assert - account lookup, collision check and insert.
+        assertEquals(2.0, meterRegistry.get("tokenisation.batch.size").tag("operation", "tokenise")
+                .summary().totalAmount());
+        assertEquals(3.0, meterRegistry.get("tokenisation.store.calls").tag("operation", "tokenise")
+                .summary().totalAmount());
+        for (String stage : List.of("lookup", "generate", "persist")) {
+            assertEquals(1, meterRegistry.get("tokenisation.stage").tag("stage", stage).timer().count());
+        }
+        assertEquals(1, meterRegistry.get("tokenisation.requests").tag("operation", "tokenise").timer().count());
+    }
+
+    @Test
+    void testTokenise_FormatPreservingRange_EncryptsWithoutStore() {
+        // Arrange
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getFilter().setEnabled(false);
+        properties.getFormatPreserving().setEnabled(true);
+        properties.getFormatPreserving().setPrefixes(List.of("411111"));
+        TokenisationService service = newService(properties, new TokenCache(properties));
+        when(tokenRepository.findMappingsByAccountHashIn(anyCollection()))
+                .thenReturn(List.of());
+        when(tokenRepository.findTokensByTokenIn(anyCollection()))
+                .thenReturn(List.of());
+
+        // Act
+        List<String> tokens = service.tokenise(Arrays.asList("4111-1111-1111-1111", "4444-3333-2222-1111"));
+        List<String> accountNumbers = service.detokenise(List.of(tokens.get(0)));
+
+        // Assert - BIN, last four, separators and Luhn validity kept; only the other account is stored.
+        assertTrue(tokens.get(0).matches("4111-11\\d\\d-\\d{4}-1111"), tokens.get(0));
+        assertNotEquals("4111-1111-1111-1111", tokens.get(0));
+        assertTrue(FormatPreservingTokeniser.luhnValid(digits(tokens.get(0)), 16));
+        assertEquals(32, tokens.get(1).length());
+        assertEquals(1, captureSavedTokens().size());
+        assertEquals(List.of("4111-1111-1111-1111"), accountNumbers);
+    }
+
+    @Test
+    void testTokenise_SameStripeConcurrently_StoreWritesOverlap() throws Exception {
+        // Arrange - one lock stripe for all accounts; each saveAll waits until the other request is saving too.
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getLocks().setStripes(1);
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(1024);
+        CyclicBarrier bothSaving = new CyclicBarrier(2);
+        OffHeapTokenStore store = new OffHeapTokenStore(properties) {
+            @Override
+            public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+                try {
+                    bothSaving.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("saveAll calls did not overlap", e);
+                }
+                return super.saveAll(tokensByAccount);
+            }
+        };
+        TokenisationService service = TestServices.newService(store, properties, new TokenCache(properties), meterRegistry);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        Future<List<String>> first = executor.submit(() -> service.tokenise(List.of("4111-1111-1111-1111")));
+        Future<List<String>> second = executor.submit(() -> service.tokenise(List.of("4444-3333-2222-1111")));
+        executor.shutdown();
+
+        // Assert - neither request held the stripe through its store write.
+        assertEquals(32, first.get(30, TimeUnit.SECONDS).get(0).length());
+        assertEquals(32, second.get(30, TimeUnit.SECONDS).get(0).length());
+        assertEquals(2, store.count());
+    }
+
+    private TokenisationService newService(TokenisationProperties properties, TokenCache cache) {
+        JpaTokenStore store = new JpaTokenStore(tokenRepository, properties, batchInserter);
+        return TestServices.newService(store, properties, cache, meterRegistry);
+    }
+
+    private static byte[] digits(String value) {
+        byte[] digits = new byte[value.length()];
+        int count = 0;
+        for (char c : value.toCharArray()) {
+            if (Character.isDigit(c)) {
+                digits[count++] = (byte) (c - '0');
+            }
+        }
+        return digits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Token> captureSavedTokens() {
+        ArgumentCaptor<List<Token>> captor = ArgumentCaptor.forClass(List.class);
+        verify(batchInserter).insertAll(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,69 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.store.TokenStore;
+import com.anz.tokenisation.store.VaultSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test the App Warm Starts From a Vault Snapshot and Exports the Same Vault Back.
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:snapshotdb", "tokenisation.snapshot.warm-start=true"})
+class VaultSnapshotsContextTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private TokenisationService tokenisationService;
+
+    @Autowired
+    private VaultSnapshots vaultSnapshots;
+
+    @DynamicPropertySource
+    static void snapshot(DynamicPropertyRegistry registry) throws IOException {
+        Path path = directory.resolve("vault.snapshot");
+        try (VaultSnapshot.Writer writer = new VaultSnapshot.Writer(path, 2)) {
+            for (int i = 0; i < 2_000; i++) {
+                writer.add(account(i), "tok_warm_" + i);
+            }
+            writer.finish();
+        }
+        registry.add("tokenisation.snapshot.path", path::toString);
+    }
+
+    @Test
+    void testWarmStart_SnapshotPresent_LoadsVaultAndExportsItBack() throws Exception {
+        // Act
+        List<String> accountNumbers = tokenisationService.detokenise(List.of("tok_warm_0", "tok_warm_1999"));
+        List<String> tokens = tokenisationService.tokenise(List.of(account(7)));
+        Path exported = directory.resolve("exported.snapshot");
+        long written = vaultSnapshots.exportSnapshot(exported);
+        Map<String, String> read = new ConcurrentHashMap<>();
+        VaultSnapshot.read(exported, 2, read::putAll);
+
+        // Assert
+        assertEquals(2_000, tokenStore.count());
+        assertEquals(List.of(account(0), account(1_999)), accountNumbers);
+        assertEquals(List.of("tok_warm_7"), tokens);
+        assertEquals(2_000, written);
+        assertEquals("tok_warm_42", read.get(account(42)));
+    }
+
+    private static String account(int i) {
+        return String.format("4111-0000-%04d-%04d", i / 10_000, i % 10_000);
+    }
+}
@@ -0,0 +1,95 @@
+package com.anz.tokenisation.service;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.store.FileTokenStore;
+import com.anz.tokenisation.store.VaultSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test a Warm Start Interrupted by a Damaged Snapshot Block Is Not Mistaken for a Loaded Vault.
+class VaultSnapshotsTest {
+
+    private static final int MAPPINGS = 60_000;
+
+    @TempDir
+    Path directory;
+
+    private TokenisationProperties properties;
+
+    private Path snapshot;
+
+    private byte[] intact;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new TokenisationProperties();
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getFile().setSnapshotInterval(Duration.ZERO);
+        properties.getSnapshot().setWarmStart(true);
+        properties.getSnapshot().setExportOnShutdown(true);
+        properties.getSnapshot().setParallelism(1);
+        snapshot = directory.resolve("vault.snapshot");
+        properties.getSnapshot().setPath(snapshot);
+
+        // Random tokens don't compress, so the snapshot spans several blocks.
+        SecureRandom random = new SecureRandom();
+        byte[] raw = new byte[24];
+        try (VaultSnapshot.Writer writer = new VaultSnapshot.Writer(snapshot, 1)) {
+            for (int i = 0; i < MAPPINGS; i++) {
+                random.nextBytes(raw);
+                writer.add(String.format("4111%012d", i), Base64.getUrlEncoder().withoutPadding().encodeToString(raw));
+            }
+            writer.finish();
+        }
+        intact = Files.readAllBytes(snapshot);
+    }
+
+    @Test
+    void testWarmStart_DamagedLastBlock_RefusesPartLoadedStoreAndReimportsEmptyOne() throws Exception {
+        // Arrange - damage the last block, the blocks before it load.
+        byte[] damaged = intact.clone();
+        damaged[damaged.length - 64] ^= 0x5A;
+        Files.write(snapshot, damaged);
+        properties.getStore().getFile().setDirectory(directory.resolve("store"));
+
+        // Act & Assert - the import fails part way and shutdown doesn't export the partial vault.
+        FileTokenStore store = new FileTokenStore(properties);
+        VaultSnapshots snapshots = newSnapshots(store);
+        assertThrows(UncheckedIOException.class, snapshots::afterSingletonsInstantiated);
+        long partial = store.count();
+        assertTrue(partial > 0 && partial < MAPPINGS, "partial import: " + partial);
+        snapshots.destroy();
+        store.destroy();
+        assertArrayEquals(damaged, Files.readAllBytes(snapshot));
+
+        // Act & Assert - with the snapshot repaired, the part loaded durable store is refused, not kept.
+        Files.write(snapshot, intact);
+        store = new FileTokenStore(properties);
+        assertEquals(partial, store.count());
+        assertThrows(IllegalStateException.class, newSnapshots(store)::afterSingletonsInstantiated);
+        store.destroy();
+
+        // Act & Assert - an empty store is imported again and the marker cleared.
+        properties.getStore().getFile().setDirectory(directory.resolve("empty-store"));
+        store = new FileTokenStore(properties);
+        newSnapshots(store).afterSingletonsInstantiated();
+        assertEquals(MAPPINGS, store.count());
+        assertFalse(Files.exists(directory.resolve("vault.snapshot.importing")));
+        store.destroy();
+    }
+
+    private VaultSnapshots newSnapshots(FileTokenStore store) {
+        return new VaultSnapshots(store, new MembershipFilter(store, properties), new TokenCache(properties), properties);
+    }
+}
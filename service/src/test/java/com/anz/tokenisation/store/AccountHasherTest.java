@@ -0,0 +1,45 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Keyed Account Hashes.
+class AccountHasherTest {
+
+    @Test
+    void testHash_SameKey_IsStableAndFixedWidth() {
+        // Arrange
+        AccountHasher hasher = new AccountHasher(properties("c2VjcmV0LWtleS0x"));
+
+        // Act
+        byte[] hash = hasher.hash("4111-1111-1111-1111");
+        List<byte[]> batch = hasher.hashAll(List.of("4444-3333-2222-1111", "4111-1111-1111-1111"));
+
+        // Assert
+        assertEquals(AccountHasher.HASH_BYTES, hash.length);
+        assertArrayEquals(hash, batch.get(1));
+        assertFalse(Arrays.equals(hash, batch.get(0)));
+    }
+
+    @Test
+    void testHash_DifferentKey_DiffersForSameAccount() {
+        // Arrange
+        AccountHasher first = new AccountHasher(properties("c2VjcmV0LWtleS0x"));
+        AccountHasher second = new AccountHasher(properties(Base64.getEncoder().encodeToString("other".getBytes())));
+
+        // Assert
+        assertFalse(Arrays.equals(first.hash("4111-1111-1111-1111"), second.hash("4111-1111-1111-1111")));
+    }
+
+    private static TokenisationProperties properties(String secret) {
+        TokenisationProperties properties = new TokenisationProperties();
+        properties.getAccountHash().setSecret(secret);
+        return properties;
+    }
+}
@@ -0,0 +1,113 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Durable Token Store Recovery From Log, Snapshot and Torn Writes.
+class FileTokenStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private TokenisationProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(8);
+        properties.getStore().getFile().setDirectory(directory);
+        properties.getStore().getFile().setSnapshotInterval(Duration.ZERO);
+        properties.getStore().getFile().setSnapshotOnShutdown(false);
+    }
+
+    @Test
+    void testRestart_WithoutSnapshot_ReplaysLog() throws Exception {
+        // Arrange
+        Map<String, String> mappings = mappings(0, 5_000);
+        FileTokenStore store = new FileTokenStore(properties);
+        store.saveAll(mappings);
+        store.destroy();
+
+        // Act
+        FileTokenStore reopened = new FileTokenStore(properties);
+
+        // Assert
+        assertEquals(5_000, reopened.count());
+        assertEquals(mappings, reopened.findTokensByAccountNumbers(mappings.keySet()));
+        reopened.destroy();
+    }
+
+    @Test
+    void testRestart_WithSnapshot_MapsSnapshotAndReplaysTail() throws Exception {
+        // Arrange
+        Map<String, String> beforeSnapshot = mappings(0, 5_000);
+        Map<String, String> afterSnapshot = mappings(5_000, 100);
+        FileTokenStore store = new FileTokenStore(properties);
+        store.saveAll(beforeSnapshot);
+        store.snapshot();
+        store.saveAll(afterSnapshot);
+        store.destroy();
+
+        // Act
+        FileTokenStore reopened = new FileTokenStore(properties);
+
+        // Assert
+        assertEquals(5_100, reopened.count());
+        assertEquals(beforeSnapshot, reopened.findTokensByAccountNumbers(beforeSnapshot.keySet()));
+        Map<String, String> accountsByToken = reopened.findAccountNumbersByTokens(afterSnapshot.values());
+        afterSnapshot.forEach((account, token) -> assertEquals(account, accountsByToken.get(token)));
+
+        // The restored index keeps accepting writes.
+        reopened.saveAll(mappings(6_000, 10));
+        assertEquals(5_110, reopened.count());
+        reopened.destroy();
+    }
+
+    @Test
+    void testRestart_TornTail_IsTruncated() throws Exception {
+        // Arrange
+        Map<String, String> mappings = mappings(0, 10);
+        FileTokenStore store = new FileTokenStore(properties);
+        store.saveAll(mappings);
+        store.destroy();
+        Files.write(directory.resolve("tokens.log"), new byte[] {7, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // Act
+        FileTokenStore reopened = new FileTokenStore(properties);
+        reopened.saveAll(mappings(10, 1));
+        reopened.destroy();
+        FileTokenStore again = new FileTokenStore(properties);
+
+        // Assert
+        assertEquals(11, again.count());
+        assertEquals(1, again.findTokensByAccountNumbers(List.of("account-10")).size());
+        again.destroy();
+    }
+
+    private static Map<String, String> mappings(int from, int count) {
+        SecureRandom random = new SecureRandom();
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (int i = from; i < from + count; i++) {
+            byte[] raw = new byte[OffHeapTokenStore.RAW_TOKEN_BYTES];
+            random.nextBytes(raw);
+            mappings.put("account-" + i, Base64.getUrlEncoder().withoutPadding().encodeToString(raw));
+        }
+        return mappings;
+    }
+}
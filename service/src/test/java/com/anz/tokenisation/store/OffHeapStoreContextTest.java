@@ -0,0 +1,34 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.service.TokenisationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test the App Starts and Round Trips on the Off-Heap Store.
+@SpringBootTest(properties = "tokenisation.store.type=off-heap")
+class OffHeapStoreContextTest {
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private TokenisationService tokenisationService;
+
+    @Test
+    void testContext_OffHeapStoreSelected_RoundTrips() {
+        // Arrange
+        List<String> accountNumbers = List.of("4111-1111-1111-1111", "4444-3333-2222-1111");
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(accountNumbers);
+
+        // Assert
+        assertInstanceOf(OffHeapTokenStore.class, tokenStore);
+        assertEquals(accountNumbers, tokenisationService.detokenise(tokens));
+    }
+}
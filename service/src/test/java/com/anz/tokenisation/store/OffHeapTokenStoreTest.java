@@ -0,0 +1,138 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.TestServices;
+import com.anz.tokenisation.service.TokenisationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Off-Heap Token Store Indexes, Growth and Arena Rollover.
+class OffHeapTokenStoreTest {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private TokenisationProperties properties;
+
+    private OffHeapTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        // Small arenas and indexes so the tests cross chunk boundaries and resize.
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(8);
+        store = new OffHeapTokenStore(properties);
+    }
+
+    @Test
+    void testSaveAll_ManyMappings_ResolvesBothWays() {
+        // Arrange
+        Map<String, String> tokensByAccount = new LinkedHashMap<>();
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < 20_000; i++) {
+            byte[] raw = new byte[OffHeapTokenStore.RAW_TOKEN_BYTES];
+            random.nextBytes(raw);
+            tokensByAccount.put("4111-1111-" + i, Base64.getUrlEncoder().withoutPadding().encodeToString(raw));
+        }
+
+        // Act
+        store.saveAll(tokensByAccount);
+
+        // Assert
+        assertEquals(20_000, store.size());
+        assertEquals(tokensByAccount, store.findTokensByAccountNumbers(tokensByAccount.keySet()));
+
+        Map<String, String> accountsByToken = store.findAccountNumbersByTokens(tokensByAccount.values());
+        assertEquals(20_000, accountsByToken.size());
+        tokensByAccount.forEach((account, token) -> assertEquals(account, accountsByToken.get(token)));
+    }
+
+    @Test
+    void testSaveAll_ExistingAccount_KeepsFirstToken() {
+        // Arrange
+        store.saveAll(Map.of("4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"));
+
+        // Act
+        Map<String, String> saved = store.saveAll(Map.of("4111-1111-1111-1111", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2"));
+
+        // Assert
+        assertEquals(Map.of("4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"), saved);
+        assertEquals(1, store.size());
+        assertEquals("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy",
+                store.findTokensByAccountNumbers(List.of("4111-1111-1111-1111")).get("4111-1111-1111-1111"));
+        assertTrue(store.findExistingTokens(List.of("L4hKuBJHxe67ENSKLVbdIH8NhFefPui2")).isEmpty());
+    }
+
+    @Test
+    void testReplace_EveryThirdAccount_IndexesStayConsistent() {
+        // Arrange - enough mappings that removals shift long probe runs.
+        Map<String, String> tokensByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            tokensByAccount.put("4111-1111-" + i, randomToken());
+        }
+        store.saveAll(tokensByAccount);
+        Map<String, String> expected = new LinkedHashMap<>(tokensByAccount);
+        List<String> replacedTokens = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 5_000; i += 3) {
+            String account = "4111-1111-" + i;
+            replacedTokens.add(expected.get(account));
+            expected.put(account, randomToken());
+            store.replace(account, expected.get(account));
+        }
+
+        // Assert
+        assertEquals(5_000, store.size());
+        assertEquals(expected, store.findTokensByAccountNumbers(expected.keySet()));
+        assertEquals(5_000, store.findAccountNumbersByTokens(expected.values()).size());
+        assertTrue(store.findExistingTokens(replacedTokens).isEmpty());
+    }
+
+    @Test
+    void testFindExistingTokens_UnknownAndMalformedTokens_AreAbsent() {
+        // Arrange
+        store.saveAll(Map.of("4111-1111-1111-1111", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"));
+
+        // Act
+        Set<String> existing = store.findExistingTokens(Arrays.asList(
+                "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "L4hKuBJHxe67ENSKLVbdIH8NhFefPui2", "InvalidTokenXYZ123"));
+
+        // Assert
+        assertEquals(Set.of("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy"), existing);
+    }
+
+    @Test
+    void testService_OffHeapStore_RoundTrips() {
+        // Arrange
+        TokenisationService service = TestServices.newService(store, properties);
+        List<String> accountNumbers = Arrays.asList("4111-1111-1111-1111", "4444-3333-2222-1111");
+
+        // Act
+        List<String> tokens = service.tokenise(accountNumbers);
+        List<String> again = service.tokenise(new ArrayList<>(accountNumbers));
+
+        // Assert
+        assertEquals(tokens, again);
+        assertEquals(accountNumbers, service.detokenise(tokens));
+        assertEquals(2, store.size());
+    }
+
+    private static String randomToken() {
+        byte[] raw = new byte[OffHeapTokenStore.RAW_TOKEN_BYTES];
+        RANDOM.nextBytes(raw);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+}
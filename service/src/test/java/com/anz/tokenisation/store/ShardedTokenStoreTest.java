@@ -0,0 +1,160 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import com.anz.tokenisation.service.TestServices;
+import com.anz.tokenisation.service.TokenisationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Sharded Token Store Routing, Balance and Fan Out With Embedded Shards.
+class ShardedTokenStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private TokenisationProperties properties;
+
+    private ShardedTokenStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new TokenisationProperties();
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(1024);
+        properties.getStore().getSharded().setShards(4);
+        store = new ShardedTokenStore(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.destroy();
+    }
+
+    @Test
+    void testService_ShardedStore_RoundTripsInRequestOrder() {
+        // Arrange
+        TokenisationService service = TestServices.newService(store, properties);
+        List<String> accountNumbers = accounts(2_000);
+
+        // Act
+        List<String> tokens = service.tokenise(accountNumbers);
+
+        // Assert - every token names the shard of its account, and detokenise finds it there.
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            assertEquals(store.shardOfAccount(accountNumbers.get(i)), store.shardOfToken(tokens.get(i)));
+            assertEquals(32, tokens.get(i).length());
+        }
+        assertEquals(accountNumbers, service.detokenise(tokens));
+        assertEquals(tokens, service.tokenise(accountNumbers));
+        assertEquals(2_000, store.count());
+    }
+
+    @Test
+    void testSaveAll_ManyAccounts_SpreadsEvenlyOverShards() {
+        // Arrange
+        TokenisationService service = TestServices.newService(store, properties);
+
+        // Act
+        service.tokenise(accounts(20_000));
+
+        // Assert
+        for (long count : store.shardCounts()) {
+            assertTrue(count > 5_000 * 0.8 && count < 5_000 * 1.2, "Shard holds " + count + " of 20000");
+        }
+    }
+
+    @Test
+    void testFindAccountNumbersByTokens_TokenNamingNoShard_IsUnknown() {
+        // Arrange - shard digit 'z' is far beyond 4 shards.
+        String foreign = "z" + "A".repeat(31);
+
+        // Act & Assert
+        assertEquals(-1, store.shardOfToken(foreign));
+        assertTrue(store.findAccountNumbersByTokens(List.of(foreign)).isEmpty());
+        assertTrue(store.findExistingTokens(List.of(foreign)).isEmpty());
+    }
+
+    @Test
+    void testRing_AddingShard_MovesOnlyItsShareToTheNewShard() {
+        // Arrange
+        ConsistentHashRing four = new ConsistentHashRing(4, 128);
+        ConsistentHashRing five = new ConsistentHashRing(5, 128);
+
+        // Act
+        int moved = 0;
+        for (String account : accounts(20_000)) {
+            int before = four.shardFor(account);
+            int after = five.shardFor(account);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+
+        // Assert - about a fifth of the accounts.
+        assertTrue(moved > 20_000 * 0.12 && moved < 20_000 * 0.28, "Moved " + moved + " of 20000");
+    }
+
+    @Test
+    void testRestart_FileShards_KeepMappings() throws Exception {
+        // Arrange
+        store.destroy();
+        properties.getStore().getSharded().setEngine(TokenisationProperties.Store.Sharded.Engine.FILE);
+        properties.getStore().getFile().setDirectory(directory);
+        properties.getStore().getFile().setSnapshotInterval(Duration.ZERO);
+        store = new ShardedTokenStore(properties);
+        List<String> accountNumbers = accounts(500);
+        List<String> tokens = TestServices.newService(store, properties).tokenise(accountNumbers);
+        store.destroy();
+
+        // Act
+        store = new ShardedTokenStore(properties);
+
+        // Assert
+        assertTrue(Files.isDirectory(directory.resolve("shard-3")));
+        assertEquals(500, store.count());
+        assertEquals(accountNumbers, TestServices.newService(store, properties).detokenise(tokens));
+    }
+
+    @Test
+    void testReopen_FileShardsWithOtherLayout_RefusesToOpen() throws Exception {
+        // Arrange
+        store.destroy();
+        properties.getStore().getSharded().setEngine(TokenisationProperties.Store.Sharded.Engine.FILE);
+        properties.getStore().getFile().setDirectory(directory);
+        properties.getStore().getFile().setSnapshotInterval(Duration.ZERO);
+        store = new ShardedTokenStore(properties);
+        TestServices.newService(store, properties).tokenise(accounts(100));
+        store.destroy();
+
+        // Act & Assert - another shard count or another ring would route existing accounts to the wrong shard.
+        properties.getStore().getSharded().setShards(5);
+        assertThrows(IllegalStateException.class, () -> new ShardedTokenStore(properties));
+        properties.getStore().getSharded().setShards(4);
+        properties.getStore().getSharded().setVirtualNodes(64);
+        assertThrows(IllegalStateException.class, () -> new ShardedTokenStore(properties));
+        properties.getStore().getSharded().setVirtualNodes(128);
+        store = new ShardedTokenStore(properties);
+        assertEquals(100, store.count());
+        assertTrue(Files.exists(directory.resolve(ShardedTokenStore.LAYOUT_FILE)));
+    }
+
+    private static List<String> accounts(int count) {
+        List<String> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            accounts.add(String.format("4111-2222-%04d-%04d", i / 10_000, i % 10_000));
+        }
+        return accounts;
+    }
+}
@@ -0,0 +1,39 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.repository.TokenRepository;
+import com.anz.tokenisation.service.TokenisationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test the App Starts on the Tiered Store and Commits to the Database Before Returning.
+@SpringBootTest(properties = {"tokenisation.store.type=tiered", "tokenisation.store.tiered.durability=database"})
+class TieredStoreContextTest {
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private TokenisationService tokenisationService;
+
+    @Test
+    void testContext_TieredStoreSelected_RoundTripsAndPersists() {
+        // Arrange
+        List<String> accountNumbers = List.of("4111-1111-1111-1111", "4444-3333-2222-1111");
+
+        // Act
+        List<String> tokens = tokenisationService.tokenise(accountNumbers);
+
+        // Assert
+        assertInstanceOf(TieredTokenStore.class, tokenStore);
+        assertEquals(2, tokenRepository.count());
+        assertEquals(accountNumbers, tokenisationService.detokenise(tokens));
+    }
+}
@@ -0,0 +1,293 @@
+package com.anz.tokenisation.store;
+
+import com.anz.tokenisation.config.TokenisationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Tiered Token Store Write-Behind, Read Promotion and Write-Ahead Log Recovery.
+class TieredTokenStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private TokenisationProperties properties;
+
+    private OffHeapTokenStore cold;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenisationProperties();
+        properties.getStore().getOffHeap().setChunkSize(DataSize.ofKilobytes(128));
+        properties.getStore().getOffHeap().setInitialCapacity(8);
+        properties.getStore().getFile().setDirectory(directory);
+        cold = new OffHeapTokenStore(properties);
+    }
+
+    @Test
+    void testSaveAll_MemoryDurability_WritesBehindInBatches() throws Exception {
+        // Arrange
+        properties.getStore().getTiered().setDurability(TokenisationProperties.Store.Tiered.Durability.MEMORY);
+        properties.getStore().getTiered().setFlushBatch(100);
+        TieredTokenStore store = new TieredTokenStore(properties, cold);
+        Map<String, String> mappings = mappings(0, 1_000);
+
+        // Act
+        Map<String, String> saved = store.saveAll(mappings);
+        Map<String, String> found = store.findTokensByAccountNumbers(mappings.keySet());
+        store.flush();
+
+        // Assert - readable from the hot tier at once, in the cold tier after the flush.
+        assertEquals(mappings, saved);
+        assertEquals(mappings, found);
+        assertEquals(mappings, cold.findTokensByAccountNumbers(mappings.keySet()));
+        assertEquals(1_000, store.count());
+        store.destroy();
+    }
+
+    @Test
+    void testSaveAll_ExistingAccount_KeepsFirstTokenAndQueuesNothing() throws Exception {
+        // Arrange
+        properties.getStore().getTiered().setDurability(TokenisationProperties.Store.Tiered.Durability.DATABASE);
+        TieredTokenStore store = new TieredTokenStore(properties, cold);
+        Map<String, String> first = mappings(0, 1);
+        store.saveAll(first);
+
+        // Act
+        Map<String, String> second = store.saveAll(Map.of("account-0", mappings(1, 1).get("account-1")));
+
+        // Assert
+        assertEquals(first, second);
+        assertEquals(1, cold.count());
+        store.destroy();
+    }
+
+    @Test
+    void testFind_ColdOnlyMappings_PromotedAndResolved() throws Exception {
+        // Arrange
+        properties.getStore().getTiered().setDurability(TokenisationProperties.Store.Tiered.Durability.DATABASE);
+        Map<String, String> mappings = mappings(0, 10);
+        cold.saveAll(mappings);
+        TieredTokenStore store = new TieredTokenStore(properties, cold);
+        String token = mappings.get("account-3");
+
+        // Act & Assert
+        assertEquals(Map.of(token, "account-3"), store.findAccountNumbersByTokens(List.of(token)));
+        assertEquals(mappings, store.findTokensByAccountNumbers(mappings.keySet()));
+        assertEquals(mappings.size(), store.findExistingTokens(mappings.values()).size());
+        store.destroy();
+    }
+
+    @Test
+    void testRestart_WalDurability_ReplaysLogIntoDatabase() throws Exception {
+        // Arrange - mappings acknowledged from the log but never written behind.
+        Map<String, String> mappings = mappings(0, 500);
+        try (TokenLog log = new TokenLog(directory.resolve("write-behind.log"), Duration.ofMillis(1))) {
+            log.start();
+            log.awaitDurable(log.append(mappings));
+        }
+
+        // Act
+        TieredTokenStore store = new TieredTokenStore(properties, cold);
+
+        // Assert
+        assertEquals(mappings, cold.findTokensByAccountNumbers(mappings.keySet()));
+        assertEquals(0, Files.size(directory.resolve("write-behind.log")));
+        store.destroy();
+    }
+
+    @Test
+    void testRestart_AfterFlushedRun_LogEmptyAndNothingReplayed() throws Exception {
+        // Arrange - a run whose mappings were all written behind before it stopped.
+        TieredTokenStore store = new TieredTokenStore(properties, cold);
+        for (int i = 0; i < 1_000; i += 100) {
+            store.saveAll(mappings(i, 100));
+        }
+        store.flush();
+        store.destroy();
+        AtomicInteger replayed = new AtomicInteger();
+        OffHeapTokenStore countingCold = new OffHeapTokenStore(properties) {
+            @Override
+            public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+                replayed.addAndGet(tokensByAccount.size());
+                return super.saveAll(tokensByAccount);
+            }
+        };
+
+        // Act
+        TieredTokenStore restarted = new TieredTokenStore(properties, countingCold);
+
+        // Assert
+        assertEquals(0, Files.size(directory.resolve("write-behind.log")));
+        assertEquals(0, replayed.get());
+        restarted.destroy();
+    }
+
+    @Test
+    void testWriteBehind_LaterRecordsUnflushed_LogRewrittenToThem() throws Exception {
+        // Arrange - the database holds the first batch until released, then takes nothing more.
+        properties.getStore().getTiered().setWalRewriteSize(DataSize.ofBytes(1));
+        CountDownLatch entered = new CountDownLatch(1);
+        Semaphore permits = new Semaphore(0);
+        OffHeapTokenStore slowCold = new OffHeapTokenStore(properties) {
+            @Override
+            public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+                entered.countDown();
+                permits.acquireUninterruptibly();
+                return super.saveAll(tokensByAccount);
+            }
+        };
+        TieredTokenStore store = new TieredTokenStore(properties, slowCold);
+        Path log = directory.resolve("write-behind.log");
+        store.saveAll(mappings(0, 100));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Map<String, String> unflushed = mappings(100, 50);
+        store.saveAll(unflushed);
+
+        // Act - the first batch commits, the second is still in flight.
+        permits.release();
+
+        // Assert - only the second batch's records are left in the log.
+        long expected = 0;
+        for (String accountNumber : unflushed.keySet()) {
+            expected += Short.BYTES + OffHeapTokenStore.RAW_TOKEN_BYTES + accountNumber.length() + Integer.BYTES;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.size(log) != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, Files.size(log));
+        Path copy = directory.resolve("copy.log");
+        Files.copy(log, copy);
+        Map<String, String> replayed = new LinkedHashMap<>();
+        try (TokenLog tokenLog = new TokenLog(copy, Duration.ofMillis(1))) {
+            tokenLog.replay(0, replayed::putAll);
+        }
+        assertEquals(unflushed, replayed);
+        permits.release(Integer.MAX_VALUE / 2);
+        store.destroy();
+    }
+
+    @Test
+    void testSaveAll_HotCapacityReached_EvictsOnlyWrittenBehindGeneration() throws Exception {
+        // Arrange - the database takes nothing until released, so no generation is written behind yet.
+        properties.getStore().getTiered().setDurability(TokenisationProperties.Store.Tiered.Durability.MEMORY);
+        properties.getStore().getTiered().setHotCapacity(100);
+        CountDownLatch release = new CountDownLatch(1);
+        OffHeapTokenStore slowCold = new OffHeapTokenStore(properties) {
+            @Override
+            public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.saveAll(tokensByAccount);
+            }
+        };
+        TieredTokenStore store = new TieredTokenStore(properties, slowCold);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+        store.saveAll(mappings(0, 100));
+
+        // Act - filling a second generation would drop the first, which isn't in the database yet.
+        CompletableFuture<Map<String, String>> second = CompletableFuture.supplyAsync(() -> store.saveAll(mappings(100, 100)));
+
+        // Assert - the rotation waits for the write-behind, then drops only what the database holds.
+        assertThrows(TimeoutException.class, () -> second.get(300, TimeUnit.MILLISECONDS));
+        assertEquals(200, store.hotSize());
+        release.countDown();
+        assertEquals(100, second.get(10, TimeUnit.SECONDS).size());
+        assertEquals(100, registry.get("tokenisation.store.tiered.evictions").functionCounter().count());
+        assertEquals(100, store.hotSize());
+        store.flush();
+        assertEquals(200, slowCold.count());
+        store.destroy();
+    }
+
+    @Test
+    void testWriteBehind_DatabaseHoldsOtherToken_AdoptsItAndCountsConflict() throws Exception {
+        // Arrange - another writer stored account-0 with its own token.
+        properties.getStore().getTiered().setDurability(TokenisationProperties.Store.Tiered.Durability.MEMORY);
+        String winner = mappings(0, 1).get("account-0");
+        String loser = mappings(0, 1).get("account-0");
+        cold.saveAll(Map.of("account-0", winner));
+        TieredTokenStore store = new TieredTokenStore(properties, cold);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+
+        // Act
+        store.saveAll(Map.of("account-0", loser));
+        store.flush();
+
+        // Assert - the hot tier now agrees with the database.
+        assertEquals(Map.of("account-0", winner), store.findTokensByAccountNumbers(List.of("account-0")));
+        assertEquals(Map.of(winner, "account-0"), store.findAccountNumbersByTokens(List.of(winner, loser)));
+        assertEquals(1, registry.get("tokenisation.store.tiered.conflicts").functionCounter().count());
+        store.destroy();
+    }
+
+    @Test
+    void testWriteBehind_DatabaseLeavesAccountOut_RetriesWithFreshToken() throws Exception {
+        // Arrange - the database turns account-0 away once, as it does when its token is another account's.
+        properties.getStore().getTiered().setDurability(TokenisationProperties.Store.Tiered.Durability.MEMORY);
+        AtomicInteger refusals = new AtomicInteger(1);
+        OffHeapTokenStore collidingCold = new OffHeapTokenStore(properties) {
+            @Override
+            public Map<String, String> saveAll(Map<String, String> tokensByAccount) {
+                if (tokensByAccount.containsKey("account-0") && refusals.getAndDecrement() > 0) {
+                    Map<String, String> accepted = new LinkedHashMap<>(tokensByAccount);
+                    accepted.remove("account-0");
+                    return super.saveAll(accepted);
+                }
+                return super.saveAll(tokensByAccount);
+            }
+        };
+        TieredTokenStore store = new TieredTokenStore(properties, collidingCold);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+        Map<String, String> batch = mappings(0, 10);
+
+        // Act
+        store.saveAll(batch);
+        store.flush();
+
+        // Assert - account-0 reached the database under a fresh token, which the hot tier now holds as well.
+        String token = store.findTokensByAccountNumbers(List.of("account-0")).get("account-0");
+        assertNotEquals(batch.get("account-0"), token);
+        assertEquals(Map.of("account-0", token), collidingCold.findTokensByAccountNumbers(List.of("account-0")));
+        assertEquals(10, store.count());
+        assertEquals(1, registry.get("tokenisation.store.tiered.conflicts").functionCounter().count());
+        store.destroy();
+    }
+
+    private static Map<String, String> mappings(int from, int count) {
+        SecureRandom random = new SecureRandom();
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (int i = from; i < from + count; i++) {
+            byte[] raw = new byte[OffHeapTokenStore.RAW_TOKEN_BYTES];
+            random.nextBytes(raw);
+            mappings.put("account-" + i, Base64.getUrlEncoder().withoutPadding().encodeToString(raw));
+        }
+        return mappings;
+    }
+}
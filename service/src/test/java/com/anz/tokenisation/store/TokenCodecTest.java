@@ -0,0 +1,57 @@
+package com.anz.tokenisation.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test the Shared Token Codec Against the JDK Base64 URL Codec.
+class TokenCodecTest {
+
+    @Test
+    void testEncodeDecode_RandomTokensAtOffset_MatchJdkBase64() {
+        // Arrange
+        SecureRandom random = new SecureRandom();
+        byte[] body = new byte[5 + TokenCodec.RAW_TOKEN_BYTES];
+        byte[] encoded = new byte[TokenCodec.TOKEN_LENGTH];
+        byte[] decoded = new byte[body.length];
+
+        for (int i = 0; i < 1_000; i++) {
+            random.nextBytes(body);
+            byte[] raw = Arrays.copyOfRange(body, 5, body.length);
+
+            // Act
+            String token = TokenCodec.encode(body, 5, encoded);
+            boolean valid = TokenCodec.decode(token, decoded, 5);
+
+            // Assert
+            assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(raw), token);
+            assertTrue(valid);
+            assertArrayEquals(raw, Arrays.copyOfRange(decoded, 5, decoded.length));
+        }
+    }
+
+    @Test
+    void testDecode_NotAToken_ReturnsFalse() {
+        // Arrange
+        byte[] raw = new byte[TokenCodec.RAW_TOKEN_BYTES];
+
+        // Act & Assert - wrong length, standard Base64 characters, non ASCII, null.
+        assertFalse(TokenCodec.decode("fvMymE7X0Je1IzMDgWooV5iGBPw0yoF", raw, 0));
+        assertFalse(TokenCodec.decode("fvMymE7X0Je1IzMDgWooV5iGBPw0yo+/", raw, 0));
+        assertFalse(TokenCodec.decode("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFé", raw, 0));
+        assertFalse(TokenCodec.decode(null, raw, 0));
+    }
+
+    @Test
+    void testDigitValue_WholeAlphabet_RoundTrips() {
+        for (int value = 0; value < 64; value++) {
+            assertEquals(value, TokenCodec.value(TokenCodec.digit(value)));
+        }
+        assertEquals(-1, TokenCodec.value('+'));
+        assertEquals(-1, TokenCodec.value('é'));
+    }
+}
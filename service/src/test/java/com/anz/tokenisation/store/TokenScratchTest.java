@@ -0,0 +1,65 @@
+package com.anz.tokenisation.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Scratch Buffer Token Codec Against the JDK Base64 URL Codec.
+class TokenScratchTest {
+
+    @Test
+    void testEncodeDecode_RandomTokens_MatchJdkBase64() {
+        // Arrange
+        SecureRandom random = new SecureRandom();
+        TokenScratch scratch = TokenScratch.get();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+
+        for (int i = 0; i < 1_000; i++) {
+            byte[] raw = new byte[OffHeapTokenStore.RAW_TOKEN_BYTES];
+            random.nextBytes(raw);
+            buffer.put(7, raw);
+
+            // Act
+            String token = scratch.encode(buffer, 7);
+            boolean decoded = scratch.decode(token);
+
+            // Assert
+            assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(raw), token);
+            assertTrue(decoded);
+            assertArrayEquals(raw, scratch.raw);
+        }
+    }
+
+    @Test
+    void testDecode_NotAToken_ReturnsFalse() {
+        // Arrange
+        TokenScratch scratch = TokenScratch.get();
+
+        // Act & Assert - wrong length, standard Base64 characters, non ASCII, null.
+        assertFalse(scratch.decode("fvMymE7X0Je1IzMDgWooV5iGBPw0yoF"));
+        assertFalse(scratch.decode("fvMymE7X0Je1IzMDgWooV5iGBPw0yo+/"));
+        assertFalse(scratch.decode("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFé"));
+        assertFalse(scratch.decode(null));
+    }
+
+    @Test
+    void testEncodeUtf8_AsciiAndNonAscii_MatchesJdkEncoding() {
+        // Arrange
+        TokenScratch scratch = TokenScratch.get();
+        String longAccount = "4".repeat(500);
+
+        // Act & Assert - the buffer grows as needed.
+        for (String value : new String[] {"4111-1111-1111-1111", "DE-é-€-😀", longAccount}) {
+            byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+            int length = scratch.encodeUtf8(value);
+            assertEquals(expected.length, length);
+            assertArrayEquals(expected, Arrays.copyOf(scratch.bytes(), length));
+        }
+    }
+}
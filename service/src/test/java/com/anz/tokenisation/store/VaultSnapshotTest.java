@@ -0,0 +1,87 @@
+package com.anz.tokenisation.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test Vault Snapshot Round Trip, Damage Detection and Unfinished Writes.
+class VaultSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTrip_ManyBlocks_ReturnsEveryMapping() throws Exception {
+        // Arrange
+        Path path = directory.resolve("vault.snapshot");
+        Map<String, String> mappings = mappings(60_000);
+        try (VaultSnapshot.Writer writer = new VaultSnapshot.Writer(path, 2)) {
+            for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+                writer.add(mapping.getKey(), mapping.getValue());
+            }
+            writer.finish();
+        }
+
+        // Act
+        Map<String, String> read = new ConcurrentHashMap<>();
+        long loaded = VaultSnapshot.read(path, 2, read::putAll);
+
+        // Assert
+        assertTrue(Files.size(path) > 0);
+        assertEquals(60_000, loaded);
+        assertEquals(mappings, read);
+        assertFalse(Files.exists(path.resolveSibling("vault.snapshot.tmp")));
+    }
+
+    @Test
+    void testRead_DamagedBlock_Throws() throws Exception {
+        // Arrange
+        Path path = directory.resolve("vault.snapshot");
+        try (VaultSnapshot.Writer writer = new VaultSnapshot.Writer(path, 1)) {
+            mappings(1_000).forEach((account, token) -> {
+                try {
+                    writer.add(account, token);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(path, bytes);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> VaultSnapshot.read(path, 1, mappings -> { }));
+    }
+
+    @Test
+    void testWriter_ClosedWithoutFinish_LeavesNoFile() throws Exception {
+        // Arrange
+        Path path = directory.resolve("vault.snapshot");
+
+        // Act
+        try (VaultSnapshot.Writer writer = new VaultSnapshot.Writer(path, 1)) {
+            writer.add("100000001", "tok_abc");
+        }
+
+        // Assert
+        assertFalse(Files.exists(path));
+        assertFalse(Files.exists(path.resolveSibling("vault.snapshot.tmp")));
+    }
+
+    private static Map<String, String> mappings(int count) {
+        Map<String, String> mappings = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            mappings.put(String.format("4111%012d", i), "tok_" + Long.toString((i * 2654435761L) & 0xFFFFFFFFL, 36));
+        }
+        return mappings;
+    }
+}
@@ -1,50 +0,0 @@
-package com.anz.tokenisation.entity;
-
-import jakarta.persistence.*;
-
-@Entity
-@Table(name = "tokens")
-public class Token {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
-    @Column(unique = true, nullable = false, length = 32)
-    private String token;
-
-    @Column(nullable = false, length = 255)
-    private String accountNumber;
-
-    public Token() {
-    }
-
-    public Token(String token, String accountNumber) {
-        this.token = token;
-        this.accountNumber = accountNumber;
-    }
-
-    public Long getId() {
-        return id;
-    }
-
-    public void setId(Long id) {
-        this.id = id;
-    }
-
-    public String getToken() {
-        return token;
-    }
-
-    public void setToken(String token) {
-        this.token = token;
-    }
-
-    public String getAccountNumber() {
-        return accountNumber;
-    }
-
-    public void setAccountNumber(String accountNumber) {
-        this.accountNumber = accountNumber;
-    }
-}